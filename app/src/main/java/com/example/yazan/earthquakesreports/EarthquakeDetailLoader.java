@@ -0,0 +1,76 @@
+package com.example.yazan.earthquakesreports;
+
+import android.content.AsyncTaskLoader;
+import android.content.Context;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.utils.EarthquakeDetailCache;
+import com.example.yazan.earthquakesreports.utils.FetchCancellation;
+
+/**
+ * Loads one earthquake with its details for the detail screen, from the
+ * {@link EarthquakeDetailCache} when the row has been prefetched, from the USGS
+ * "eventid" query otherwise.
+ */
+public class EarthquakeDetailLoader extends AsyncTaskLoader<Earthquake> {
+
+    private final String mId;
+
+    private final EarthquakeDetailCache mDetailCache;
+
+    /** loaded earthquake, delivered again when the activity is recreated */
+    private Earthquake mEarthquake;
+
+    /** stops the request of the load in progress */
+    private volatile FetchCancellation mCancellation;
+
+    /**
+     * Constructs a new {@link EarthquakeDetailLoader} object.
+     *
+     * @param context of the activity
+     * @param id      is the USGS event id of the earthquake
+     */
+    public EarthquakeDetailLoader(Context context, String id) {
+        super(context);
+        this.mId = id;
+        this.mDetailCache = EarthquakeQuery.getDetailCache();
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (mEarthquake != null) {
+            deliverResult(mEarthquake);
+        } else {
+            forceLoad();
+        }
+    }
+
+    @Override
+    public Earthquake loadInBackground() {
+        mCancellation = new FetchCancellation();
+        return mDetailCache.fetch(mId, mCancellation);
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        FetchCancellation cancellation = mCancellation;
+        if (cancellation != null) {
+            cancellation.cancel();
+        }
+    }
+
+    @Override
+    public void deliverResult(Earthquake earthquake) {
+        mEarthquake = earthquake;
+        super.deliverResult(earthquake);
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        cancelLoad();
+        // cancelLoad() only cancels the requests itself from API 16
+        cancelLoadInBackground();
+        mEarthquake = null;
+    }
+}
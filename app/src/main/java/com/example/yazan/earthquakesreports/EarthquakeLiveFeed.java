@@ -0,0 +1,128 @@
+package com.example.yazan.earthquakesreports;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeStore;
+import com.example.yazan.earthquakesreports.utils.LiveFeedPoller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Polls the USGS past-hour summary feed on a background thread while it is started, and
+ * reports the new or revised earthquakes matching the magnitude range of the query.
+ * <p>
+ * Matching earthquakes are saved to the {@link EarthquakeStore} before they are reported,
+ * the listener is called on the main thread.
+ */
+public class EarthquakeLiveFeed {
+
+    /**
+     * Receives the changes found by the live feed.
+     */
+    public interface Listener {
+        void onEarthquakesChanged(List<Earthquake> changes);
+    }
+
+    private final LiveFeedPoller mPoller = new LiveFeedPoller(LiveFeedPoller.PAST_HOUR_FEED_URL);
+    private final EarthquakeStore mStore;
+    private final Listener mListener;
+    private final double mMinMagnitude;
+    private final double mMaxMagnitude;
+
+    /** reports the changes on the main thread */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread mPollThread;
+
+    /** posts the polls to the poll thread, null while stopped */
+    private volatile Handler mPollHandler;
+
+    private final Runnable mPoll = new Runnable() {
+        @Override
+        public void run() {
+            List<Earthquake> changes = mPoller.poll();
+            if (changes != null && !changes.isEmpty()) {
+                report(changes);
+            }
+
+            Handler pollHandler = mPollHandler;
+            if (pollHandler != null) {
+                pollHandler.postDelayed(this, mPoller.getIntervalMillis());
+            }
+        }
+    };
+
+    /**
+     * Construct a new {@link EarthquakeLiveFeed} object.
+     *
+     * @param context  of the app
+     * @param queryUrl is the USGS query URL whose magnitude range the changes must match
+     * @param listener is called with the matching changes
+     */
+    public EarthquakeLiveFeed(Context context, String queryUrl, Listener listener) {
+        mStore = EarthquakeStore.getInstance(context);
+        mListener = listener;
+        mMinMagnitude = EarthquakeQuery.getMinMagnitude(queryUrl);
+        mMaxMagnitude = EarthquakeQuery.getMaxMagnitude(queryUrl);
+    }
+
+    /**
+     * Start polling now, does nothing if the feed is already started.
+     */
+    public void start() {
+        if (mPollThread != null) {
+            return;
+        }
+        mPollThread = new HandlerThread("earthquake-live-feed", Process.THREAD_PRIORITY_BACKGROUND);
+        mPollThread.start();
+        mPollHandler = new Handler(mPollThread.getLooper());
+        mPollHandler.post(mPoll);
+    }
+
+    /**
+     * Stop polling, changes found by a poll still running are not reported.
+     */
+    public void stop() {
+        if (mPollThread == null) {
+            return;
+        }
+        mPollHandler.removeCallbacks(mPoll);
+        mPollHandler = null;
+        mPollThread.quit();
+        mPollThread = null;
+    }
+
+    /**
+     * Helper method for {@link #mPoll}
+     * <p>
+     * save the changes matching the query and report them on the main thread
+     */
+    private void report(List<Earthquake> changes) {
+        final List<Earthquake> matchingChanges = new ArrayList<>(changes.size());
+        for (Earthquake earthquake : changes) {
+            double magnitude = earthquake.getMagnitude();
+            if (magnitude >= mMinMagnitude && magnitude <= mMaxMagnitude) {
+                matchingChanges.add(earthquake);
+            }
+        }
+        if (matchingChanges.isEmpty()) {
+            return;
+        }
+
+        mStore.save(matchingChanges);
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mPollHandler != null) {
+                    mListener.onEarthquakesChanged(matchingChanges);
+                }
+            }
+        });
+    }
+}
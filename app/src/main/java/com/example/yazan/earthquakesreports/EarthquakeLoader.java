@@ -2,12 +2,32 @@ package com.example.yazan.earthquakesreports;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.net.Uri;
 import android.util.Log;
 
 import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeAggregator;
+import com.example.yazan.earthquakesreports.data.EarthquakeCatalog;
+import com.example.yazan.earthquakesreports.data.EarthquakeQueryEngine;
+import com.example.yazan.earthquakesreports.data.EarthquakeSnapshot;
+import com.example.yazan.earthquakesreports.data.EarthquakeSpatialIndex;
+import com.example.yazan.earthquakesreports.data.EarthquakeStore;
+import com.example.yazan.earthquakesreports.utils.EarthquakeChanges;
+import com.example.yazan.earthquakesreports.utils.EarthquakeFormatter;
+import com.example.yazan.earthquakesreports.utils.FetchCancellation;
+import com.example.yazan.earthquakesreports.utils.LiveFeedPoller;
+import com.example.yazan.earthquakesreports.utils.MagnitudeColors;
+import com.example.yazan.earthquakesreports.utils.PipelineMetrics;
 import com.example.yazan.earthquakesreports.utils.QueryUtils;
+import com.example.yazan.earthquakesreports.utils.ShardedQuery;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by yazan on 2/8/17.
@@ -16,6 +36,34 @@ import java.util.List;
 /**
  * Loads a list of earthquakes by using an AsyncTaskLoader to perform the
  * network request to the given URL.
+ * <p>
+ * Earthquakes are requested one page at a time with the USGS "offset" and "limit"
+ * parameters, every delivered list contains all the pages loaded so far.
+ * <p>
+ * The first delivery comes from the {@link EarthquakeSnapshot} of the last load when it
+ * holds the same query, otherwise from the local {@link EarthquakeStore} when it has
+ * matching earthquakes. It is then refreshed with only the changes since the last fetch of the
+ * same query through {@link EarthquakeSync}, or with the first page from the network
+ * when the query has never been fetched.
+ * <p>
+ * A query with a large time window is not paged: the whole window is fetched at once, split
+ * into sub-windows fetched in parallel by a {@link ShardedQuery}. A query without "starttime"
+ * has the 30-day window USGS applies by default, so the list of the settings is fetched that way.
+ * <p>
+ * New and revised earthquakes found by the live feed are merged into the delivered list
+ * with {@link #pushLiveChanges(List)}, without a request.
+ * <p>
+ * Every delivered network result is indexed by an {@link EarthquakeQueryEngine}, so a new
+ * order or a narrower magnitude range is answered from it by {@link #changeQuery(String)},
+ * and by an {@link EarthquakeSpatialIndex} over the same catalog, which counts the
+ * earthquakes of the list around a tapped one with {@link #countNearby(Earthquake, double)}.
+ * <p>
+ * The histograms and magnitude statistics of the list are kept by an
+ * {@link EarthquakeAggregator}, updated with the new and revised earthquakes only, and
+ * rebuilt from the selection when {@link #changeQuery(String)} narrows the list.
+ * <p>
+ * A cancelled load disconnects its requests, so an abandoned query stops using the
+ * network and the parser right away.
  */
 public class EarthquakeLoader extends AsyncTaskLoader<List<Earthquake>> {
 
@@ -23,38 +71,558 @@ public class EarthquakeLoader extends AsyncTaskLoader<List<Earthquake>> {
     private static final String LOG_TAG = EarthquakeLoader.class.getName();
 
 
-    /** Query URL */
+    /** Query URL without the paging parameters */
     private String mUrl;
 
+    /** number of earthquakes requested per page */
+    private int mPageSize;
+
+    /** USGS offset (1-based) of the next page, only used by the background thread */
+    private int mNextOffset = 1;
+
+    /** earthquakes of all the pages delivered so far */
+    private List<Earthquake> mEarthquakes;
+
+    /** false once USGS returned an empty page */
+    private volatile boolean mHasMorePages = true;
+
+    /** true while a page is being fetched */
+    private boolean mLoading;
+
+    /** local store the pages are saved to and the first delivery is read from */
+    private EarthquakeStore mStore;
+
+    /** last list loaded from the network, read back before the store at the next launch */
+    private EarthquakeSnapshot mSnapshot;
+
+    /** prepares the display model of every delivered earthquake, only used by the background thread */
+    private EarthquakeFormatter mFormatter;
+
+    /** merges the changes since the last fetch into the store */
+    private EarthquakeSync mSync;
+
+    /** true once the store has been read, only used by the background thread */
+    private boolean mStoreChecked;
+
+    /** true while the delivered list comes from the store, only used by the background thread */
+    private boolean mShowingStored;
+
+    /** true when the stored list has been delivered and must be refreshed from the network */
+    private volatile boolean mRevalidationPending;
+
+    /** start of the query time window, unix time in milliseconds, or -1 if the query has none */
+    private long mWindowStart;
+
+    /** end of the query time window, unix time in milliseconds, or -1 to end it now */
+    private long mWindowEnd;
+
+    /** shards of the large window being fetched, cancelled when the loader is reset */
+    private volatile ShardedQuery mShardedQuery;
+
+    /** stops the requests of the load in progress, a new one is made for every load */
+    private volatile FetchCancellation mCancellation;
+
+    /** order of the query, the live changes are merged in this order */
+    private Comparator<Earthquake> mOrder;
+
+    /** live feed changes waiting to be merged, guarded by itself */
+    private final List<Earthquake> mLiveChanges = new ArrayList<>();
+
+    /** local index of the delivered list, null while it comes from the store */
+    private volatile IndexedEarthquakes mIndexedEarthquakes;
+
+    /** summaries of the earthquakes of the list, updated with every change */
+    private final EarthquakeAggregator mAggregator = new EarthquakeAggregator();
+
     /**
      * Constructs a new {@link EarthquakeLoader} object.
      *
      * @param context of the activity
      * @param url given url to load the data from
+     * @param pageSize number of earthquakes to request per page
      * */
-    public EarthquakeLoader(Context context,String url) {
+    public EarthquakeLoader(Context context, String url, int pageSize) {
         super(context);
         this.mUrl = url;
+        this.mPageSize = pageSize;
+        this.mStore = EarthquakeStore.getInstance(context);
+        this.mSnapshot = new EarthquakeSnapshot(new File(context.getFilesDir(), EarthquakeSnapshot.FILE_NAME));
+        this.mSync = new EarthquakeSync(context);
+        this.mFormatter = new EarthquakeFormatter(MagnitudeColors.resolve(context));
+
+        Uri uri = Uri.parse(url);
+        this.mWindowStart = ShardedQuery.parseTime(uri.getQueryParameter("starttime"));
+        this.mWindowEnd = ShardedQuery.parseTime(uri.getQueryParameter("endtime"));
+        this.mOrder = ShardedQuery.getOrder(uri.getQueryParameter("orderby"));
     }
 
     @Override
     protected void onStartLoading() {
-        Log.d(LOG_TAG , "TEST : onStartLoading() called ...");
+        if (mEarthquakes != null) {
+            // the pages are already loaded, deliver them right away
+            deliverResult(mEarthquakes);
+        } else {
+            forceLoad();
+        }
+    }
 
+    @Override
+    protected void onForceLoad() {
+        super.onForceLoad();
+        mLoading = true;
+    }
+
+    /**
+     * Fetch the next page in the background, unless a page is already loading
+     * or the last page has been reached.
+     */
+    public void loadNextPage() {
+        if (mLoading || !mHasMorePages || mEarthquakes == null) {
+            return;
+        }
         forceLoad();
     }
 
+    /**
+     * Merge new and revised earthquakes into the delivered list in the background,
+     * after the page being loaded if there is one.
+     *
+     * @param changes are new or revised earthquakes matching the query
+     */
+    public void pushLiveChanges(List<Earthquake> changes) {
+        synchronized (mLiveChanges) {
+            mLiveChanges.addAll(changes);
+        }
+        if (!mLoading && mEarthquakes != null) {
+            forceLoad();
+        }
+    }
+
+    /**
+     * Answer a new query from the delivered earthquakes when they hold its first results.
+     * <p>
+     * A new order, or a magnitude range within the one of the current query, is selected
+     * from the local index and delivered right away, and the next page continues the new query.
+     * A wider range, or a new order of a list that is not complete, needs a new loader.
+     *
+     * @param url is the new query URL without the paging parameters
+     * @return true if the new query has been delivered, false if it needs a new loader
+     */
+    public boolean changeQuery(String url) {
+        if (url.equals(mUrl)) {
+            return true;
+        }
+        IndexedEarthquakes indexedEarthquakes = mIndexedEarthquakes;
+        if (mLoading || indexedEarthquakes == null || indexedEarthquakes.mDelivered != mEarthquakes) {
+            return false;
+        }
+
+        Uri uri = Uri.parse(url);
+        if (ShardedQuery.parseTime(uri.getQueryParameter("starttime")) != mWindowStart
+                || ShardedQuery.parseTime(uri.getQueryParameter("endtime")) != mWindowEnd) {
+            return false;
+        }
+
+        double minMagnitude = EarthquakeQuery.getMinMagnitude(url);
+        double maxMagnitude = EarthquakeQuery.getMaxMagnitude(url);
+        String orderBy = uri.getQueryParameter("orderby");
+        EarthquakeQueryEngine engine = indexedEarthquakes.mEngine;
+        if (!engine.answers(minMagnitude, maxMagnitude, orderBy)) {
+            return false;
+        }
+
+        int[] rows = engine.select(minMagnitude, maxMagnitude, orderBy, Integer.MAX_VALUE);
+        List<Earthquake> earthquakes = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            earthquakes.add(indexedEarthquakes.mEarthquakes.get(row));
+        }
+
+        mUrl = url;
+        mOrder = ShardedQuery.getOrder(orderBy);
+        // the selected earthquakes are the first results of the new query
+        mNextOffset = earthquakes.size() + 1;
+        mHasMorePages = !engine.isComplete();
+        // the index still answers the queries within the new one
+        mIndexedEarthquakes = new IndexedEarthquakes(indexedEarthquakes.mEarthquakes, engine,
+                indexedEarthquakes.mSpatialIndex, earthquakes);
+        // the summaries cover the selected earthquakes only, the ones shown
+        mAggregator.clear();
+        mAggregator.addAll(earthquakes);
+        deliverResult(earthquakes);
+        // a selection shorter than the screen can not be scrolled to ask for the next page
+        if (earthquakes.size() < mPageSize) {
+            loadNextPage();
+        }
+        return true;
+    }
+
+    /**
+     * Count the earthquakes of the delivered list within a radius of the given one, from the
+     * local spatial index. Called on the main thread.
+     *
+     * @param earthquake is an earthquake of the delivered list
+     * @param radiusKm   is the radius in kilometers
+     * @return number of the other earthquakes of the list within the radius, or -1 if the list
+     * is not indexed or the earthquake has no coordinates
+     */
+    public int countNearby(Earthquake earthquake, double radiusKm) {
+        IndexedEarthquakes indexedEarthquakes = mIndexedEarthquakes;
+        if (indexedEarthquakes == null || !earthquake.hasCoordinates()) {
+            return -1;
+        }
+
+        EarthquakeSpatialIndex spatialIndex = indexedEarthquakes.mSpatialIndex;
+        EarthquakeCatalog catalog = spatialIndex.getCatalog();
+        // the catalog may hold a wider range than the list a narrower query delivered
+        double minMagnitude = EarthquakeQuery.getMinMagnitude(mUrl);
+        double maxMagnitude = EarthquakeQuery.getMaxMagnitude(mUrl);
+        int count = 0;
+        for (int row : spatialIndex.withinRadius(earthquake.getLatitude(), earthquake.getLongitude(), radiusKm)) {
+            double magnitude = catalog.getMagnitude(row);
+            if (magnitude >= minMagnitude && magnitude <= maxMagnitude
+                    && !earthquake.getId().equals(catalog.getId(row))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return summaries of the earthquakes of the delivered list, readable from any thread
+     */
+    public EarthquakeAggregator getAggregator() {
+        return mAggregator;
+    }
+
+    /**
+     * @return query URL of the loader, without the paging parameters
+     */
+    public String getUrl() {
+        return mUrl;
+    }
+
     @Override
     public List<Earthquake> loadInBackground() {
-        Log.d(LOG_TAG , "TEST : loadInBackground() called ...");
+        mCancellation = new FetchCancellation();
+
+        PipelineMetrics.beginSection("EarthquakeLoader.load");
+        try {
+            // format the rows here, so binding them on the main thread only assigns texts
+            List<Earthquake> earthquakes = mFormatter.prepare(loadEarthquakes());
+            indexEarthquakes(earthquakes);
+            saveSnapshot(earthquakes);
+            return earthquakes;
+        } finally {
+            PipelineMetrics.endSection();
+        }
+    }
+
+    /**
+     * Called on the main thread when the load in progress is cancelled, i.e. by a restart
+     * of the loader: disconnect its requests, so it returns without waiting for them.
+     */
+    @Override
+    public void cancelLoadInBackground() {
+        FetchCancellation cancellation = mCancellation;
+        if (cancellation != null) {
+            cancellation.cancel();
+        }
+        ShardedQuery shardedQuery = mShardedQuery;
+        if (shardedQuery != null) {
+            // stop the shards still running in the shared executor
+            shardedQuery.cancel();
+            mShardedQuery = null;
+        }
+    }
 
+    /**
+     * Helper method for {@link #loadInBackground()}
+     * <p>
+     * index the list about to be delivered, unless it is already indexed or it comes from the store
+     */
+    private void indexEarthquakes(List<Earthquake> earthquakes) {
+        IndexedEarthquakes indexedEarthquakes = mIndexedEarthquakes;
+        if (earthquakes == null || mShowingStored) {
+            mIndexedEarthquakes = null;
+        } else if (indexedEarthquakes == null || indexedEarthquakes.mDelivered != earthquakes) {
+            EarthquakeCatalog catalog = EarthquakeCatalog.of(earthquakes);
+            EarthquakeQueryEngine engine = new EarthquakeQueryEngine(catalog,
+                    EarthquakeQuery.getMinMagnitude(mUrl), EarthquakeQuery.getMaxMagnitude(mUrl),
+                    Uri.parse(mUrl).getQueryParameter("orderby"), !mHasMorePages);
+            mIndexedEarthquakes = new IndexedEarthquakes(earthquakes, engine,
+                    new EarthquakeSpatialIndex(catalog), earthquakes);
+        }
+    }
 
+    /**
+     * Helper method for {@link #loadInBackground()}
+     * <p>
+     * snapshot a new list from the network, so the next launch shows it right away
+     */
+    private void saveSnapshot(List<Earthquake> earthquakes) {
+        if (earthquakes == null || earthquakes.isEmpty() || earthquakes == mEarthquakes || mShowingStored) {
+            return;
+        }
+        try {
+            mSnapshot.write(mUrl, earthquakes);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem in writing the earthquakes snapshot", e);
+        }
+    }
+
+    /**
+     * Helper method for {@link #loadInBackground()}
+     * <p>
+     * load the stored earthquakes, their changes, or the next page from the network
+     *
+     * @return list of earthquakes to deliver
+     */
+    private List<Earthquake> loadEarthquakes() {
         if(mUrl == null){
             return null;
         }
 
-        // Perform the network request, parse the response, and extract a list of earthquakes.
-        List<Earthquake> earthquakes= QueryUtils.fetchEarthquakeData(mUrl);;
+        // show the stored earthquakes first, then refresh them from the network
+        if (!mStoreChecked) {
+            mStoreChecked = true;
+            // the snapshot is read without a query or a parse, the store is queried otherwise
+            List<Earthquake> storedEarthquakes = mSnapshot.read(mUrl);
+            if (storedEarthquakes == null) {
+                storedEarthquakes = readStore(mPageSize);
+            }
+            if (!storedEarthquakes.isEmpty()) {
+                mAggregator.addAll(storedEarthquakes);
+                mShowingStored = true;
+                mRevalidationPending = true;
+                return storedEarthquakes;
+            }
+        }
+
+        // merge the live changes into the list shown, without a request
+        List<Earthquake> liveChanges = mEarthquakes != null ? takeLiveChanges() : null;
+        if (liveChanges != null && !liveChanges.isEmpty()) {
+            List<Earthquake> earthquakes = new ArrayList<>(mEarthquakes);
+            // the pages after the list start that many events later now
+            mNextOffset += LiveFeedPoller.mergeInto(earthquakes, liveChanges, mOrder, !mHasMorePages);
+            mAggregator.addAll(liveChanges);
+            // a stored list still has to be refreshed afterwards
+            mRevalidationPending = mRevalidationPending || mShowingStored;
+            return earthquakes;
+        }
+
+        // refresh the stored list with the changes made since the last fetch
+        if (mShowingStored && mSync.canSync(mUrl)) {
+            List<Earthquake> changes = mSync.syncChanges(mUrl, mCancellation);
+            if (changes == null) {
+                return mEarthquakes;
+            }
+            mShowingStored = false;
+            List<Earthquake> earthquakes = changes.isEmpty() ? mEarthquakes : mergeChanges(changes);
+            mNextOffset = earthquakes.size() + 1;
+            return earthquakes;
+        }
+
+        // a large window is fetched whole, so it replaces the list shown
+        boolean sharded = isLargeWindow();
+
+        // the stored list is replaced by the first page, not extended
+        List<Earthquake> loadedEarthquakes = mShowingStored || sharded ? null : mEarthquakes;
+
+        // Perform the network request, parse the response, and extract a page of earthquakes.
+        List<Earthquake> page = sharded ? fetchWindow()
+                : QueryUtils.fetchEarthquakeData(buildPageUrl(mNextOffset), mCancellation);
+
+        // keep the list already shown if this page failed
+        if (page == null) {
+            return mEarthquakes;
+        }
+
+        mStore.save(page);
+        if (mNextOffset == 1) {
+            mSync.recordFetch(mUrl, page);
+        }
+        mShowingStored = false;
+        mNextOffset += mPageSize;
+        mHasMorePages = !sharded && !page.isEmpty();
+
+        if (loadedEarthquakes == null) {
+            // the page replaces the list shown
+            mAggregator.clear();
+            mAggregator.addAll(page);
+            return page;
+        }
+        mAggregator.addAll(page);
+
+        List<Earthquake> earthquakes = new ArrayList<>(loadedEarthquakes.size() + page.size());
+        earthquakes.addAll(loadedEarthquakes);
+        earthquakes.addAll(page);
         return earthquakes;
     }
+
+    @Override
+    public void deliverResult(List<Earthquake> earthquakes) {
+        mLoading = false;
+        mEarthquakes = earthquakes;
+        super.deliverResult(earthquakes);
+
+        if (mRevalidationPending || hasLiveChanges()) {
+            mRevalidationPending = false;
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        cancelLoad();
+        // cancelLoad() only cancels the requests itself from API 16
+        cancelLoadInBackground();
+        mEarthquakes = null;
+        mNextOffset = 1;
+        mHasMorePages = true;
+        mLoading = false;
+        mStoreChecked = false;
+        mShowingStored = false;
+        mRevalidationPending = false;
+        mIndexedEarthquakes = null;
+        mAggregator.clear();
+        synchronized (mLiveChanges) {
+            mLiveChanges.clear();
+        }
+    }
+
+    private boolean hasLiveChanges() {
+        synchronized (mLiveChanges) {
+            return !mLiveChanges.isEmpty();
+        }
+    }
+
+    private List<Earthquake> takeLiveChanges() {
+        synchronized (mLiveChanges) {
+            List<Earthquake> liveChanges = new ArrayList<>(mLiveChanges);
+            mLiveChanges.clear();
+            return liveChanges;
+        }
+    }
+
+    /**
+     * Helper method for {@link #loadInBackground()}
+     * <p>
+     * merge the changes of a sync into the list shown by event id, the rest of the store is
+     * not read again; only the changed and removed earthquakes change the summaries
+     *
+     * @param changes are the earthquakes of the query updated since the last fetch
+     * @return the updated list
+     */
+    private List<Earthquake> mergeChanges(List<Earthquake> changes) {
+        List<Earthquake> earthquakes = new ArrayList<>(mEarthquakes);
+        List<Earthquake> removed = EarthquakeChanges.mergeInto(earthquakes, changes,
+                EarthquakeQuery.getMinMagnitude(mUrl), EarthquakeQuery.getMaxMagnitude(mUrl),
+                EarthquakeQuery.getWindowStart(mUrl), mOrder, !mHasMorePages);
+
+        Set<String> shownIds = new HashSet<>(earthquakes.size() * 2);
+        for (Earthquake earthquake : earthquakes) {
+            shownIds.add(earthquake.getId());
+        }
+        for (Earthquake earthquake : removed) {
+            mAggregator.remove(earthquake.getId());
+        }
+        for (Earthquake change : changes) {
+            if (shownIds.contains(change.getId())) {
+                mAggregator.add(change);
+            } else {
+                mAggregator.remove(change.getId());
+            }
+        }
+        return earthquakes;
+    }
+
+    /**
+     * Helper method for {@link #loadInBackground()}
+     * <p>
+     * read the first stored earthquakes matching the query URL, within its time window
+     *
+     * @param limit is the maximum number of earthquakes to read
+     * @return list of stored earthquakes, empty if there are none
+     */
+    private List<Earthquake> readStore(int limit) {
+        return mStore.query(EarthquakeQuery.getMinMagnitude(mUrl), EarthquakeQuery.getMaxMagnitude(mUrl),
+                Uri.parse(mUrl).getQueryParameter("orderby"), EarthquakeQuery.getWindowStart(mUrl), limit);
+    }
+
+    /**
+     * @return true if the query has a time window large enough to be fetched in shards
+     */
+    private boolean isLargeWindow() {
+        long windowEnd = mWindowEnd >= 0 ? mWindowEnd : System.currentTimeMillis();
+        return ShardedQuery.isLarge(EarthquakeQuery.getWindowStart(mUrl), windowEnd);
+    }
+
+    /**
+     * Helper method for {@link #loadInBackground()}
+     * <p>
+     * fetch the whole time window of the query in parallel shards
+     *
+     * @return earthquakes of the window in the order of the query, or null if it failed
+     */
+    private List<Earthquake> fetchWindow() {
+        Uri uri = Uri.parse(mUrl);
+
+        // the shards set their own time window
+        Uri.Builder builder = uri.buildUpon().clearQuery();
+        for (String name : uri.getQueryParameterNames()) {
+            if (!"starttime".equals(name) && !"endtime".equals(name)) {
+                for (String value : uri.getQueryParameters(name)) {
+                    builder.appendQueryParameter(name, value);
+                }
+            }
+        }
+
+        long windowEnd = mWindowEnd >= 0 ? mWindowEnd : System.currentTimeMillis();
+        ShardedQuery shardedQuery = new ShardedQuery(builder.build().toString(),
+                EarthquakeQuery.getWindowStart(mUrl), windowEnd, uri.getQueryParameter("orderby"));
+        mShardedQuery = shardedQuery;
+        try {
+            return shardedQuery.fetch();
+        } finally {
+            mShardedQuery = null;
+        }
+    }
+
+    /**
+     * Helper method for {@link #loadInBackground()}
+     * <p>
+     * append the paging parameters to the query URL
+     *
+     * @param offset is the 1-based USGS offset of the first earthquake of the page
+     * @return URL of the requested page
+     */
+    private String buildPageUrl(int offset) {
+        return EarthquakeQuery.buildPageUrl(mUrl, offset, mPageSize);
+    }
+
+    /**
+     * A delivered list, the {@link EarthquakeQueryEngine} it was selected from and the
+     * {@link EarthquakeSpatialIndex} over the same catalog.
+     */
+    private static final class IndexedEarthquakes {
+
+        /** earthquakes of the engine catalog rows, in the same order */
+        final List<Earthquake> mEarthquakes;
+
+        final EarthquakeQueryEngine mEngine;
+
+        final EarthquakeSpatialIndex mSpatialIndex;
+
+        /** list delivered from the engine, the index is stale once another list is delivered */
+        final List<Earthquake> mDelivered;
+
+        IndexedEarthquakes(List<Earthquake> earthquakes, EarthquakeQueryEngine engine,
+                           EarthquakeSpatialIndex spatialIndex, List<Earthquake> delivered) {
+            mEarthquakes = earthquakes;
+            mEngine = engine;
+            mSpatialIndex = spatialIndex;
+            mDelivered = delivered;
+        }
+    }
 }
@@ -0,0 +1,192 @@
+package com.example.yazan.earthquakesreports;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the stored earthquakes of the current settings query in the background, so
+ * opening the app starts with a local read instead of a network round-trip.
+ * <p>
+ * The job runs periodically while the device is on an unmetered network, or while it
+ * is charging. Every run makes a single request through {@link EarthquakeSync#refresh}
+ * and saves the result in one transaction. The period doubles every time USGS has
+ * nothing new, and goes back to the base period as soon as something changed.
+ * <p>
+ * JobScheduler needs API 21, older devices keep loading when the app is opened.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class EarthquakePrefetchService extends JobService {
+
+    /**
+     * Tag for log messages
+     */
+    private static final String LOG_TAG = EarthquakePrefetchService.class.getName();
+
+    /**
+     * the same work is scheduled twice, because job constraints can only be combined with "and"
+     */
+    private static final int JOB_ID_UNMETERED = 1001;
+    private static final int JOB_ID_CHARGING = 1002;
+
+    private static final long BASE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    private static final long MAX_INTERVAL = TimeUnit.HOURS.toMillis(24);
+
+    /**
+     * name of the preferences file holding the prefetch schedule
+     */
+    private static final String PREFERENCES_NAME = "earthquake_prefetch";
+    private static final String KEY_INTERVAL = "interval";
+    private static final String KEY_LAST_RUN = "last_run";
+
+    /**
+     * running task of each job, by job id
+     */
+    private final SparseArray<PrefetchTask> mTasks = new SparseArray<>();
+
+    /**
+     * Schedule the prefetch jobs, unless they are already scheduled.
+     *
+     * @param context of the app
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo jobInfo : jobScheduler.getAllPendingJobs()) {
+            if (jobInfo.getId() == JOB_ID_UNMETERED) {
+                // rescheduling would restart the period every time the app is opened
+                return;
+            }
+        }
+        schedule(context, getPreferences(context).getLong(KEY_INTERVAL, BASE_INTERVAL));
+    }
+
+    /**
+     * Helper method for {@link #schedule(Context)}
+     * <p>
+     * schedule, or replace, both prefetch jobs with the given period
+     */
+    private static void schedule(Context context, long interval) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        ComponentName service = new ComponentName(context, EarthquakePrefetchService.class);
+
+        jobScheduler.schedule(new JobInfo.Builder(JOB_ID_UNMETERED, service)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setPeriodic(interval)
+                .setPersisted(true)
+                .build());
+        jobScheduler.schedule(new JobInfo.Builder(JOB_ID_CHARGING, service)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setRequiresCharging(true)
+                .setPeriodic(interval)
+                .setPersisted(true)
+                .build());
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        SharedPreferences preferences = getPreferences(this);
+        long interval = preferences.getLong(KEY_INTERVAL, BASE_INTERVAL);
+
+        // both jobs are often ready at the same time, one run per period is enough
+        long lastRun = preferences.getLong(KEY_LAST_RUN, 0);
+        long now = System.currentTimeMillis();
+        if (now - lastRun < interval / 2) {
+            return false;
+        }
+        // claim the run before starting it, so the other job started right after skips it
+        preferences.edit().putLong(KEY_LAST_RUN, now).commit();
+
+        PrefetchTask task = new PrefetchTask(params, lastRun);
+        mTasks.put(params.getJobId(), task);
+        task.execute();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // the constraints are gone, try again the next time they are met
+        PrefetchTask task = mTasks.get(params.getJobId());
+        if (task != null) {
+            mTasks.remove(params.getJobId());
+            task.cancel(true);
+            task.releaseRun();
+        }
+        return true;
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Refreshes the store off the main thread, then adapts the period of the jobs.
+     */
+    private class PrefetchTask extends AsyncTask<Void, Void, Integer> {
+
+        private final JobParameters mParams;
+
+        /**
+         * last run before this one claimed it
+         */
+        private final long mPreviousRun;
+
+        PrefetchTask(JobParameters params, long previousRun) {
+            mParams = params;
+            mPreviousRun = previousRun;
+        }
+
+        /**
+         * give the claimed run back, so the retry is not skipped
+         */
+        void releaseRun() {
+            getPreferences(EarthquakePrefetchService.this).edit()
+                    .putLong(KEY_LAST_RUN, mPreviousRun)
+                    .apply();
+        }
+
+        @Override
+        protected Integer doInBackground(Void... voids) {
+            Context context = getApplicationContext();
+            return new EarthquakeSync(context).refresh(EarthquakeQuery.buildUrl(context), EarthquakeQuery.PAGE_SIZE);
+        }
+
+        @Override
+        protected void onPostExecute(Integer changeCount) {
+            mTasks.remove(mParams.getJobId());
+            Log.d(LOG_TAG, "prefetch done, changes: " + changeCount);
+
+            if (changeCount < 0) {
+                // let JobScheduler retry the failed request with its back-off
+                releaseRun();
+                jobFinished(mParams, true);
+                return;
+            }
+            jobFinished(mParams, false);
+
+            SharedPreferences preferences = getPreferences(EarthquakePrefetchService.this);
+            long interval = preferences.getLong(KEY_INTERVAL, BASE_INTERVAL);
+            long newInterval = changeCount == 0 ? Math.min(interval * 2, MAX_INTERVAL) : BASE_INTERVAL;
+            preferences.edit()
+                    .putLong(KEY_INTERVAL, newInterval)
+                    .apply();
+
+            if (newInterval != interval) {
+                schedule(EarthquakePrefetchService.this, newInterval);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.yazan.earthquakesreports;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+
+import com.example.yazan.earthquakesreports.utils.EarthquakeDetailCache;
+import com.example.yazan.earthquakesreports.utils.ShardedQuery;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EarthquakeQuery} class contains static helper methods that build the USGS query
+ * of the earthquake list from the user settings, so the list and the background prefetch
+ * ask USGS the same question.
+ */
+public final class EarthquakeQuery {
+
+    /**
+     * earthquake URL data from the USGS website
+     */
+    private static final String USGS_REQUEST_URL = "https://earthquake.usgs.gov/fdsnws/event/1/query";
+
+    /**
+     * number of earthquakes requested per page
+     */
+    public static final int PAGE_SIZE = 20;
+
+    /**
+     * window of a query without "starttime", USGS returns the earthquakes of the last 30 days
+     */
+    public static final long DEFAULT_WINDOW = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * earthquakes of the detail screen, prefetched by the list
+     */
+    private static final EarthquakeDetailCache sDetailCache =
+            new EarthquakeDetailCache(USGS_REQUEST_URL, EarthquakeDetailCache.DEFAULT_MAX_ENTRIES);
+
+    /**
+     * private constructor no need to construct new {@link EarthquakeQuery} object
+     */
+    private EarthquakeQuery() {
+    }
+
+    /**
+     * @param context is used to read the user settings
+     * @return USGS query URL of the current settings, without the paging parameters
+     */
+    public static String buildUrl(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+
+        String orderBy = sharedPrefs.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default));
+
+        String maxMagnitude = sharedPrefs.getString(
+                context.getString(R.string.settings_max_magnitude_key),
+                context.getString(R.string.settings_max_magnitude_default));
+
+        String minMagnitude = sharedPrefs.getString(
+                context.getString(R.string.settings_min_magnitude_key),
+                context.getString(R.string.settings_min_magnitude_default));
+
+        // create Uri object from given USGS url
+        Uri baseUri = Uri.parse(USGS_REQUEST_URL);
+        Uri.Builder uriBuilder = baseUri.buildUpon();
+
+        //APPEND QUERY to the Uri.Builder object
+        uriBuilder.appendQueryParameter("format", "geojson");
+        uriBuilder.appendQueryParameter("maxmagnitude", maxMagnitude);
+        uriBuilder.appendQueryParameter("minmagnitude", minMagnitude);
+        uriBuilder.appendQueryParameter("orderby", orderBy);
+
+        return uriBuilder.toString();
+    }
+
+    /**
+     * @return cache of the earthquakes of the detail screen, shared by the whole app
+     */
+    public static EarthquakeDetailCache getDetailCache() {
+        return sDetailCache;
+    }
+
+    /**
+     * append the paging parameters to a query URL
+     *
+     * @param queryUrl is the USGS query URL without the paging parameters
+     * @param offset   is the 1-based USGS offset of the first earthquake of the page
+     * @param pageSize is the number of earthquakes of the page
+     * @return URL of the requested page
+     */
+    public static String buildPageUrl(String queryUrl, int offset, int pageSize) {
+        return Uri.parse(queryUrl).buildUpon()
+                .appendQueryParameter("offset", String.valueOf(offset))
+                .appendQueryParameter("limit", String.valueOf(pageSize))
+                .toString();
+    }
+
+    /**
+     * @param queryUrl is a USGS query URL
+     * @return the "minmagnitude" of the query, 0 if it has none
+     */
+    public static double getMinMagnitude(String queryUrl) {
+        return parseMagnitude(Uri.parse(queryUrl).getQueryParameter("minmagnitude"), 0);
+    }
+
+    /**
+     * @param queryUrl is a USGS query URL
+     * @return the "maxmagnitude" of the query, Double.MAX_VALUE if it has none
+     */
+    public static double getMaxMagnitude(String queryUrl) {
+        return parseMagnitude(Uri.parse(queryUrl).getQueryParameter("maxmagnitude"), Double.MAX_VALUE);
+    }
+
+    /**
+     * @param queryUrl is a USGS query URL
+     * @return unix time in milliseconds of the "starttime" of the query, the start of the
+     * default USGS window if it has none
+     */
+    public static long getWindowStart(String queryUrl) {
+        long startTime = ShardedQuery.parseTime(Uri.parse(queryUrl).getQueryParameter("starttime"));
+        return startTime >= 0 ? startTime : System.currentTimeMillis() - DEFAULT_WINDOW;
+    }
+
+    private static double parseMagnitude(String magnitude, double defaultValue) {
+        if (magnitude == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(magnitude);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.yazan.earthquakesreports;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeStore;
+import com.example.yazan.earthquakesreports.utils.EarthquakeChanges;
+import com.example.yazan.earthquakesreports.utils.FetchCancellation;
+import com.example.yazan.earthquakesreports.utils.QueryUtils;
+import com.example.yazan.earthquakesreports.utils.ShardedQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the local {@link EarthquakeStore} up to date by asking USGS only for the events
+ * updated after a high-water mark, instead of downloading the whole query window again.
+ * <p>
+ * The high-water mark is the latest "updated" time seen for a query URL. Changed events
+ * are merged into the store by event id, so revised events replace the stale ones.
+ * Methods that touch the network or the store must not be called on the main thread.
+ */
+public final class EarthquakeSync {
+
+    /**
+     * name of the preferences file holding a high-water mark per query URL
+     */
+    private static final String PREFERENCES_NAME = "earthquake_sync";
+
+    /**
+     * most changes asked for in one request, below {@link QueryUtils} switching to CSV, so the
+     * changes keep their status. More changes than that are not worth a delta.
+     */
+    static final int MAX_CHANGES = 100;
+
+    private final SharedPreferences mPreferences;
+    private final EarthquakeStore mStore;
+
+    /**
+     * Construct a new {@link EarthquakeSync} object.
+     *
+     * @param context of the app
+     */
+    public EarthquakeSync(Context context) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mStore = EarthquakeStore.getInstance(context);
+    }
+
+    /**
+     * @param queryUrl is the USGS query URL without paging parameters
+     * @return true if the query has been fetched before, so only its changes are needed
+     */
+    public boolean canSync(String queryUrl) {
+        // a mark of 0 was recorded for an empty first page by earlier versions
+        return mPreferences.getLong(queryUrl, 0) > 0;
+    }
+
+    /**
+     * Move the high-water mark of the query past the given earthquakes. Without earthquakes
+     * there is no mark to move to, the query is fetched whole again next time.
+     *
+     * @param queryUrl    is the USGS query URL without paging parameters
+     * @param earthquakes are the earthquakes just fetched for the query
+     */
+    public void recordFetch(String queryUrl, List<Earthquake> earthquakes) {
+        if (earthquakes.isEmpty()) {
+            return;
+        }
+        long highWaterMark = mPreferences.getLong(queryUrl, 0);
+        for (Earthquake earthquake : earthquakes) {
+            highWaterMark = Math.max(highWaterMark, earthquake.getUpdatedTimeInMilliseconds());
+        }
+        mPreferences.edit().putLong(queryUrl, highWaterMark).apply();
+    }
+
+    /**
+    /**
+     * Fetch the events of the query updated after its high-water mark and merge them
+     * into the store, unless the request is cancelled first: revised events replace the
+     * stored ones, deleted events are removed. The list already shown for the query is
+     * updated with the same changes, see {@link EarthquakeChanges}.
+     * <p>
+     * At most {@link #MAX_CHANGES} changes are asked for. When there are that many, some may
+     * be missing, so the mark is dropped and the next refresh fetches the first page instead.
+     *
+     * @param queryUrl     is the USGS query URL without paging parameters
+     * @param cancellation stops the request when cancelled, or null
+     * @return the new and revised events, or null if the request failed or was cancelled
+     */
+    public List<Earthquake> syncChanges(String queryUrl, FetchCancellation cancellation) {
+        List<Earthquake> changes = QueryUtils.fetchEarthquakeData(buildChangesUrl(queryUrl), cancellation);
+        if (changes == null) {
+            return null;
+        }
+
+        List<Earthquake> revised = new ArrayList<>(changes.size());
+        List<String> deletedIds = new ArrayList<>();
+        for (Earthquake change : changes) {
+            if (EarthquakeChanges.isDeleted(change)) {
+                deletedIds.add(change.getId());
+            } else {
+                revised.add(change);
+            }
+        }
+        if (!revised.isEmpty()) {
+            mStore.save(revised);
+        }
+        if (!deletedIds.isEmpty()) {
+            mStore.delete(deletedIds);
+        }
+
+        if (changes.size() >= MAX_CHANGES) {
+            mPreferences.edit().remove(queryUrl).apply();
+        } else {
+            recordFetch(queryUrl, changes);
+        }
+        return changes;
+    }
+
+    /**
+     * Helper method for {@link #syncChanges(String, FetchCancellation)}
+     * <p>
+     * ask for the events of the query window updated after the high-water mark, at any
+     * magnitude and deleted ones included, so an event revised out of the magnitude range
+     * of the query, or deleted, is updated too
+     *
+     * @param queryUrl is the USGS query URL without paging parameters
+     * @return URL of the changes of the query
+     */
+    private String buildChangesUrl(String queryUrl) {
+        Uri uri = Uri.parse(queryUrl);
+        Uri.Builder builder = uri.buildUpon().clearQuery();
+        for (String name : uri.getQueryParameterNames()) {
+            if (!"minmagnitude".equals(name) && !"maxmagnitude".equals(name)) {
+                for (String value : uri.getQueryParameters(name)) {
+                    builder.appendQueryParameter(name, value);
+                }
+            }
+        }
+        if (uri.getQueryParameter("starttime") == null) {
+            builder.appendQueryParameter("starttime",
+                    ShardedQuery.formatTime(EarthquakeQuery.getWindowStart(queryUrl)));
+        }
+        return builder
+                .appendQueryParameter("updatedafter", ShardedQuery.formatTime(mPreferences.getLong(queryUrl, 0)))
+                .appendQueryParameter("includedeleted", "true")
+                .appendQueryParameter("limit", String.valueOf(MAX_CHANGES))
+                .toString();
+    }
+
+    /**
+     * Bring the stored earthquakes of the query up to date in one request: only its
+     * changes if it has been fetched before, its first page otherwise.
+     *
+     * @param queryUrl is the USGS query URL without paging parameters
+     * @param pageSize is the number of earthquakes of the first page
+     * @return number of new or revised events, or -1 if the request failed
+     */
+    public int refresh(String queryUrl, int pageSize) {
+        if (canSync(queryUrl)) {
+            List<Earthquake> changes = syncChanges(queryUrl, null);
+            return changes != null ? changes.size() : -1;
+        }
+
+        List<Earthquake> firstPage = QueryUtils.fetchEarthquakeData(
+                EarthquakeQuery.buildPageUrl(queryUrl, 1, pageSize));
+        if (firstPage == null) {
+            return -1;
+        }
+
+        mStore.save(firstPage);
+        recordFetch(queryUrl, firstPage);
+        return firstPage.size();
+    }
+}
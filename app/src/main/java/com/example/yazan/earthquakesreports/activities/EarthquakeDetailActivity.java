@@ -0,0 +1,168 @@
+package com.example.yazan.earthquakesreports.activities;
+
+import android.app.LoaderManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.Loader;
+import android.graphics.drawable.GradientDrawable;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.example.yazan.earthquakesreports.EarthquakeDetailLoader;
+import com.example.yazan.earthquakesreports.EarthquakeQuery;
+import com.example.yazan.earthquakesreports.R;
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeDetails;
+import com.example.yazan.earthquakesreports.data.EarthquakeDisplayModel;
+import com.example.yazan.earthquakesreports.utils.EarthquakeFormatter;
+import com.example.yazan.earthquakesreports.utils.MagnitudeColors;
+
+/**
+ * Shows the details of one earthquake: its coordinates and depth, and the extended USGS
+ * properties of {@link EarthquakeDetails}.
+ * <p>
+ * The earthquake is usually in the detail cache already, prefetched while its row was
+ * visible, and is shown right away. Otherwise the tapped row is shown while an
+ * {@link EarthquakeDetailLoader} fetches the details.
+ */
+public class EarthquakeDetailActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<Earthquake> {
+
+    /**
+     * intent extras of the tapped row
+     */
+    private static final String EXTRA_ID = "id";
+    private static final String EXTRA_MAGNITUDE = "magnitude";
+    private static final String EXTRA_LOCATION = "location";
+    private static final String EXTRA_TIME = "time";
+    private static final String EXTRA_URL = "url";
+    private static final String EXTRA_NEARBY_COUNT = "nearby_count";
+
+    /**
+     * EARTHQUAKE DETAIL LOADER ID
+     */
+    private static final int DETAIL_LOADER_ID = 1;
+
+    private EarthquakeFormatter mFormatter;
+
+    private View mLoadingIndicatorView;
+
+    /**
+     * @param context    is the activity starting the detail screen
+     * @param earthquake is the tapped earthquake
+     * @param nearbyCount is the number of loaded earthquakes within
+     *                    {@link MainActivity#NEARBY_RADIUS_KM} of it, or -1 if unknown
+     * @return intent of the detail screen of the earthquake
+     */
+    public static Intent newIntent(Context context, Earthquake earthquake, int nearbyCount) {
+        return new Intent(context, EarthquakeDetailActivity.class)
+                .putExtra(EXTRA_ID, earthquake.getId())
+                .putExtra(EXTRA_MAGNITUDE, earthquake.getMagnitude())
+                .putExtra(EXTRA_LOCATION, earthquake.getLocation())
+                .putExtra(EXTRA_TIME, earthquake.getTimeInMilliseconds())
+                .putExtra(EXTRA_URL, earthquake.getUrl())
+                .putExtra(EXTRA_NEARBY_COUNT, nearbyCount);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_earthquake_detail);
+
+        mFormatter = new EarthquakeFormatter(MagnitudeColors.resolve(this));
+        mLoadingIndicatorView = findViewById(R.id.detail_loading_indicator);
+
+        Intent intent = getIntent();
+        String id = intent.getStringExtra(EXTRA_ID);
+        Earthquake earthquake = EarthquakeQuery.getDetailCache().get(id);
+        if (earthquake != null) {
+            bind(earthquake);
+            return;
+        }
+
+        // show the row while its details are fetched
+        bind(new Earthquake(id, intent.getDoubleExtra(EXTRA_MAGNITUDE, 0),
+                intent.getStringExtra(EXTRA_LOCATION), intent.getLongExtra(EXTRA_TIME, 0), 0,
+                intent.getStringExtra(EXTRA_URL)));
+        mLoadingIndicatorView.setVisibility(View.VISIBLE);
+        getLoaderManager().initLoader(DETAIL_LOADER_ID, null, this);
+    }
+
+    /**
+     * display the earthquake, and the lines of the details it has
+     */
+    private void bind(final Earthquake earthquake) {
+        EarthquakeDisplayModel displayModel = mFormatter.format(earthquake);
+
+        TextView magnitudeTextView = (TextView) findViewById(R.id.detail_magnitude);
+        magnitudeTextView.setText(displayModel.getMagnitude());
+        ((GradientDrawable) magnitudeTextView.getBackground()).setColor(displayModel.getMagnitudeColor());
+        ((TextView) findViewById(R.id.detail_location_offset)).setText(displayModel.getLocationOffset());
+        ((TextView) findViewById(R.id.detail_primary_location)).setText(displayModel.getPrimaryLocation());
+        ((TextView) findViewById(R.id.detail_time)).setText(
+                getString(R.string.detail_time, displayModel.getDate(), displayModel.getTime()));
+
+        EarthquakeDetails details = earthquake.getDetails();
+        boolean hasDetails = details != null;
+        setLine(R.id.detail_coordinates, earthquake.hasCoordinates(), getString(R.string.detail_coordinates,
+                earthquake.getLatitude(), earthquake.getLongitude()));
+        setLine(R.id.detail_depth, !Double.isNaN(earthquake.getDepth()),
+                getString(R.string.detail_depth, earthquake.getDepth()));
+        setLine(R.id.detail_felt, hasDetails && details.getFelt() >= 0,
+                hasDetails ? getString(R.string.detail_felt, details.getFelt()) : null);
+        setLine(R.id.detail_tsunami, hasDetails && details.getTsunami() >= 0,
+                hasDetails ? getString(R.string.detail_tsunami, getString(details.getTsunami() == 1
+                        ? R.string.detail_yes : R.string.detail_no)) : null);
+        setLine(R.id.detail_alert, hasDetails && details.getAlert() != null,
+                hasDetails ? getString(R.string.detail_alert, details.getAlert()) : null);
+        setLine(R.id.detail_significance, hasDetails && details.getSignificance() >= 0,
+                hasDetails ? getString(R.string.detail_significance, details.getSignificance()) : null);
+        setLine(R.id.detail_status, hasDetails && details.getStatus() != null,
+                hasDetails ? getString(R.string.detail_status, details.getStatus()) : null);
+        int nearbyCount = getIntent().getIntExtra(EXTRA_NEARBY_COUNT, -1);
+        setLine(R.id.detail_nearby, nearbyCount >= 0,
+                getString(R.string.detail_nearby, nearbyCount, MainActivity.NEARBY_RADIUS_KM));
+
+        View websiteButton = findViewById(R.id.detail_open_website);
+        websiteButton.setVisibility(earthquake.getUrl().isEmpty() ? View.GONE : View.VISIBLE);
+        websiteButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(earthquake.getUrl())));
+            }
+        });
+    }
+
+    /**
+     * show a line of the details with its text, or hide it if the earthquake does not have it
+     */
+    private void setLine(int viewId, boolean known, String text) {
+        TextView textView = (TextView) findViewById(viewId);
+        textView.setVisibility(known ? View.VISIBLE : View.GONE);
+        if (known) {
+            textView.setText(text);
+        }
+    }
+
+    @Override
+    public Loader<Earthquake> onCreateLoader(int id, Bundle args) {
+        return new EarthquakeDetailLoader(this, getIntent().getStringExtra(EXTRA_ID));
+    }
+
+    @Override
+    public void onLoadFinished(Loader<Earthquake> loader, Earthquake earthquake) {
+        mLoadingIndicatorView.setVisibility(View.GONE);
+        if (earthquake != null) {
+            bind(earthquake);
+        } else {
+            Toast.makeText(this, R.string.detail_unavailable, Toast.LENGTH_LONG).show();
+        }
+    }
+
+    @Override
+    public void onLoaderReset(Loader<Earthquake> loader) {
+    }
+}
@@ -7,28 +7,38 @@ import android.content.Loader;
 import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.net.Uri;
-import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.Handler;
+import android.preference.PreferenceManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.TypedValue;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.example.yazan.earthquakesreports.BuildConfig;
+import com.example.yazan.earthquakesreports.EarthquakeLiveFeed;
 import com.example.yazan.earthquakesreports.EarthquakeLoader;
+import com.example.yazan.earthquakesreports.EarthquakePrefetchService;
+import com.example.yazan.earthquakesreports.EarthquakeQuery;
 import com.example.yazan.earthquakesreports.R;
 import com.example.yazan.earthquakesreports.adapters.EarthquakeAdapter;
 import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeAggregator;
+import com.example.yazan.earthquakesreports.utils.PipelineMetrics;
+import com.example.yazan.earthquakesreports.utils.SystemTracer;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<Earthquake>> {
+public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<Earthquake>>,
+        SharedPreferences.OnSharedPreferenceChangeListener {
 
 
     /**
@@ -42,9 +52,24 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     private static final int EARTHQUAKE_LOADER_ID = 1;
 
     /**
-     * earthquake URL data from the USGS website
+     * radius in kilometers of the nearby earthquakes shown on the detail screen
+     */
+    public static final double NEARBY_RADIUS_KM = 100;
+
+    /**
+     * start loading the next page when the last visible row is this close to the end of the list
      */
-    private static final String USGS_REQUEST_URL = "https://earthquake.usgs.gov/fdsnws/event/1/query";
+    private static final int PREFETCH_DISTANCE = 5;
+
+    /**
+     * saved instance state key of the live mode
+     */
+    private static final String STATE_LIVE_MODE = "live_mode";
+
+    /**
+     * settings changes closer than this are applied together, with one query
+     */
+    private static final long QUERY_DEBOUNCE_MILLIS = 500;
 
     /**
      * TextView that is displayed when the list is empty
@@ -58,13 +83,49 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
     View mLoadingIndicatorView;
 
+    private LinearLayoutManager mLayoutManager;
+
+    /**
+     * prefetches the details of the rows of a new list once they are laid out
+     */
+    private final Runnable mPrefetchDetails = new Runnable() {
+        @Override
+        public void run() {
+            prefetchVisibleDetails();
+        }
+    };
+
+    /**
+     * polls the USGS live feed while the live mode is on and the activity is resumed
+     */
+    private EarthquakeLiveFeed mLiveFeed;
+
+    private boolean mLiveMode;
+
+    /**
+     * applies the settings once they stopped changing
+     */
+    private final Handler mHandler = new Handler();
+
+    private final Runnable mApplyQuery = new Runnable() {
+        @Override
+        public void run() {
+            applyQuery();
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        Log.i(LOG_TAG, "TEST : Earthquack Activity onCreate called ...");
+        // record where the time goes while developing, or once turned on in the settings,
+        // at a negligible cost otherwise
+        applyRecordMetrics(PreferenceManager.getDefaultSharedPreferences(this));
+        PipelineMetrics.setTracer(new SystemTracer());
 
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        mLiveMode = savedInstanceState != null && savedInstanceState.getBoolean(STATE_LIVE_MODE);
+
         mLoadingIndicatorView = findViewById(R.id.loading_indicator);
 
         //find and attach the empty state TextView
@@ -78,18 +139,53 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         mAdapter = new EarthquakeAdapter(this, new ArrayList<Earthquake>());
 
         //setup earthquake RecyclerView
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         earthquakeRecyclerView.setAdapter(mAdapter);
-        earthquakeRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        earthquakeRecyclerView.setLayoutManager(layoutManager);
+        mLayoutManager = layoutManager;
+
+        //inflate a screen of rows in the background while the first list is fetched
+        mAdapter.prewarm(earthquakeRecyclerView, getScreenRowCount());
+
+        //fetch the next page in the background before the user reaches the end of the list
+        earthquakeRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= mAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                // only the rows the user stopped on are worth their details
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchVisibleDetails();
+                }
+            }
+        });
 
 
         mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
             @Override
             public void onChanged() {
-                Log.d(LOG_TAG," TEST : onChanged() Called...");
                 super.onChanged();
                 checkAdapterIsEmpty();
 
             }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                super.onItemRangeInserted(positionStart, itemCount);
+                checkAdapterIsEmpty();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                super.onItemRangeRemoved(positionStart, itemCount);
+                checkAdapterIsEmpty();
+            }
         });
 
         //setup item click listener for earthquake RecyclerView
@@ -97,14 +193,14 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
             @Override
             public void onItemClick(Earthquake earthquakeItem) {
 
-                // Convert the String URL into a URI object (to pass into the Intent constructor)
-                Uri earthquakeUri = Uri.parse(earthquakeItem.getUrl());
-
-                // Create a new intent to view the earthquake URI
-                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, earthquakeUri);
+                // a row of a GeoJSON page has its details already
+                if (earthquakeItem.getDetails() != null) {
+                    EarthquakeQuery.getDetailCache().put(earthquakeItem);
+                }
 
-                // Send the intent to launch a new activity
-                startActivity(websiteIntent);
+                // show the details in the app, they are usually prefetched
+                startActivity(EarthquakeDetailActivity.newIntent(MainActivity.this, earthquakeItem,
+                        countNearby(earthquakeItem)));
 
             }
         });
@@ -121,7 +217,6 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
             // Get LoaderManager object
             LoaderManager loaderManager = getLoaderManager();
 
-            Log.i(LOG_TAG, "TEST : initLoader() called ...");
             loaderManager.initLoader(EARTHQUAKE_LOADER_ID, null, this);
 
         } else {
@@ -130,6 +225,42 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
         }
 
+        // keep the stored earthquakes fresh while the app is closed
+        EarthquakePrefetchService.schedule(this);
+
+        // apply the settings as soon as they change, not when the app restarts
+        PreferenceManager.getDefaultSharedPreferences(this).registerOnSharedPreferenceChangeListener(this);
+
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        PreferenceManager.getDefaultSharedPreferences(this).unregisterOnSharedPreferenceChangeListener(this);
+        mHandler.removeCallbacks(mApplyQuery);
+        mHandler.removeCallbacks(mPrefetchDetails);
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        if (getString(R.string.settings_order_by_key).equals(key)
+                || getString(R.string.settings_min_magnitude_key).equals(key)
+                || getString(R.string.settings_max_magnitude_key).equals(key)) {
+            // wait for the other changes of a burst, the restart cancels the query in flight anyway
+            mHandler.removeCallbacks(mApplyQuery);
+            mHandler.postDelayed(mApplyQuery, QUERY_DEBOUNCE_MILLIS);
+        } else if (getString(R.string.settings_record_metrics_key).equals(key)) {
+            applyRecordMetrics(sharedPreferences);
+        }
+    }
+
+    /**
+     * turn the pipeline metrics on in debug builds, and in release builds once the
+     * setting is checked, so a release build can be measured without a new build
+     */
+    private void applyRecordMetrics(SharedPreferences sharedPreferences) {
+        PipelineMetrics.setEnabled(BuildConfig.DEBUG
+                || sharedPreferences.getBoolean(getString(R.string.settings_record_metrics_key), false));
     }
 
     @Override
@@ -144,6 +275,103 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         if(networkInfo == null){
             Toast.makeText(this,"NO INTERNET CONNECTION",Toast.LENGTH_LONG).show();
         }
+
+        // apply the settings changes still waiting for their debounce right away
+        mHandler.removeCallbacks(mApplyQuery);
+        applyQuery();
+
+        if (mLiveMode) {
+            startLiveFeed();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // no polling while the list is not visible
+        if (mLiveFeed != null) {
+            mLiveFeed.stop();
+        }
+
+        if (PipelineMetrics.isEnabled()) {
+            logMetrics();
+        }
+    }
+
+    /**
+     * log a summary of every pipeline metric recorded so far
+     */
+    private void logMetrics() {
+        for (int metric = 0; metric < PipelineMetrics.getMetricCount(); metric++) {
+            Log.i(LOG_TAG, PipelineMetrics.getName(metric) + ": " + PipelineMetrics.getHistogram(metric));
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(STATE_LIVE_MODE, mLiveMode);
+    }
+
+    /**
+     * Show the query of the current settings. The earthquake loader answers it from the
+     * loaded earthquakes when they cover it, otherwise a new loader fetches it and the
+     * load of the old query is cancelled.
+     */
+    private void applyQuery() {
+        Loader<List<Earthquake>> loader = getLoaderManager().getLoader(EARTHQUAKE_LOADER_ID);
+        if (!(loader instanceof EarthquakeLoader)) {
+            return;
+        }
+        String url = EarthquakeQuery.buildUrl(this);
+        EarthquakeLoader earthquakeLoader = (EarthquakeLoader) loader;
+        if (url.equals(earthquakeLoader.getUrl())) {
+            return;
+        }
+
+        if (!earthquakeLoader.changeQuery(url)) {
+            getLoaderManager().restartLoader(EARTHQUAKE_LOADER_ID, null, this);
+        }
+
+        // the live feed filters the changes by the magnitude range of the old query
+        if (mLiveFeed != null) {
+            mLiveFeed.stop();
+            mLiveFeed = null;
+        }
+    }
+
+    /**
+     * Helper method for the item click listener
+     * <p>
+     * count the loaded earthquakes around the tapped one, from the index of the loader
+     *
+     * @return number of the other earthquakes of the list within {@link #NEARBY_RADIUS_KM}, or -1
+     */
+    private int countNearby(Earthquake earthquake) {
+        Loader<List<Earthquake>> loader = getLoaderManager().getLoader(EARTHQUAKE_LOADER_ID);
+        if (!(loader instanceof EarthquakeLoader)) {
+            return -1;
+        }
+        return ((EarthquakeLoader) loader).countNearby(earthquake, NEARBY_RADIUS_KM);
+    }
+
+    /**
+     * start polling the live feed, the changes are merged into the list by the earthquake loader
+     */
+    private void startLiveFeed() {
+        if (mLiveFeed == null) {
+            mLiveFeed = new EarthquakeLiveFeed(this, EarthquakeQuery.buildUrl(this),
+                    new EarthquakeLiveFeed.Listener() {
+                        @Override
+                        public void onEarthquakesChanged(List<Earthquake> changes) {
+                            Loader<List<Earthquake>> loader = getLoaderManager().getLoader(EARTHQUAKE_LOADER_ID);
+                            if (loader instanceof EarthquakeLoader) {
+                                ((EarthquakeLoader) loader).pushLiveChanges(changes);
+                            }
+                        }
+                    });
+        }
+        mLiveFeed.start();
     }
 
 
@@ -165,65 +393,108 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         }
     }
 
-    @Override
-    public Loader<List<Earthquake>> onCreateLoader(int id, Bundle args) {
-        Log.d(LOG_TAG, "TEST : onCreateLoader() called ...");
-
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-
-        String orderBy = sharedPrefs.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default));
-
-        String maxMagnitude = sharedPrefs.getString(
-                getString(R.string.settings_max_magnitude_key),
-                getString(R.string.settings_max_magnitude_default));
-
-        String minMagnitude = sharedPrefs.getString(
-                getString(R.string.settings_min_magnitude_key),
-                getString(R.string.settings_min_magnitude_default));
-
+    /**
+     * @return number of rows filling the screen, plus the ones scrolling in
+     */
+    private int getScreenRowCount() {
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        TypedValue value = new TypedValue();
+        float rowHeight = getTheme().resolveAttribute(android.R.attr.listPreferredItemHeight, value, true)
+                ? value.getDimension(metrics) : 0;
+        if (rowHeight <= 0) {
+            // the default height of the rows of the platform lists
+            rowHeight = 64 * metrics.density;
+        }
+        return (int) (metrics.heightPixels / rowHeight) + 2;
+    }
 
-// create Uri object from given USGS url
-        Uri baseUri = Uri.parse(USGS_REQUEST_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
+    /**
+     * prefetch the details of the visible rows at low priority, so a tap on one of them
+     * opens its detail screen without a request
+     */
+    private void prefetchVisibleDetails() {
+        int first = mLayoutManager.findFirstVisibleItemPosition();
+        int last = mLayoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        List<Earthquake> visibleEarthquakes = new ArrayList<>(last - first + 1);
+        for (int position = first; position <= last && position < mAdapter.getItemCount(); position++) {
+            visibleEarthquakes.add(mAdapter.getItem(position));
+        }
+        EarthquakeQuery.getDetailCache().prefetch(visibleEarthquakes);
+    }
 
-        //APPEND QUERY to the Uri.Builder object
-        uriBuilder.appendQueryParameter("format", "geojson");
-        uriBuilder.appendQueryParameter("limit", "10");
-        uriBuilder.appendQueryParameter("maxmagnitude", maxMagnitude);
-        uriBuilder.appendQueryParameter("minmagnitude", minMagnitude);
-        uriBuilder.appendQueryParameter("orderby", orderBy);
+    /**
+     * ask the earthquake loader for the next page, it ignores the call while a page is loading
+     */
+    private void loadNextPage() {
+        Loader<List<Earthquake>> loader = getLoaderManager().getLoader(EARTHQUAKE_LOADER_ID);
+        if (loader instanceof EarthquakeLoader) {
+            ((EarthquakeLoader) loader).loadNextPage();
+        }
+    }
 
-// create loader to load new earthquake data
-        return new EarthquakeLoader(this, uriBuilder.toString());
+    @Override
+    public Loader<List<Earthquake>> onCreateLoader(int id, Bundle args) {
+// create loader to load new earthquake data, for the query of the current settings
+        return new EarthquakeLoader(this, EarthquakeQuery.buildUrl(this), EarthquakeQuery.PAGE_SIZE);
     }
 
     @Override
     public void onLoadFinished(Loader<List<Earthquake>> loader, List<Earthquake> earthquakeList) {
-        Log.d(LOG_TAG, "TEST : onLoadFinished() called ...");
-
-
         // Hide loading indicator because the data has been loaded
         mLoadingIndicatorView.setVisibility(View.GONE);
 
 
-        if (earthquakeList != null && !earthquakeList.isEmpty()) {
-            mAdapter.swap(earthquakeList);
-        }else {
-            Log.d("null","null null");
+        // an empty list is delivered for a query without results, i.e. a narrower magnitude range
+        if (earthquakeList != null) {
+            int shownCount = mAdapter.getItemCount();
+
+            // a new page extends the list that is already shown, append only the new rows,
+            // unless the shown rows are about to be replaced by a pending diff
+            if (!mAdapter.isDiffPending() && shownCount > 0 && earthquakeList.size() > shownCount
+                    && earthquakeList.get(shownCount - 1) == mAdapter.getItem(shownCount - 1)) {
+                mAdapter.append(earthquakeList.subList(shownCount, earthquakeList.size()));
+            } else {
+                mAdapter.swap(earthquakeList);
+            }
+
+            // once the new rows are laid out
+            mHandler.removeCallbacks(mPrefetchDetails);
+            mHandler.post(mPrefetchDetails);
+        }
+        showSummary(((EarthquakeLoader) loader).getAggregator());
+    }
+
+    /**
+     * Helper method for {@link #onLoadFinished}
+     * <p>
+     * show the number of loaded earthquakes and their magnitudes under the title, read from
+     * the summaries the loader keeps up to date instead of a scan of the list
+     */
+    private void showSummary(EarthquakeAggregator aggregator) {
+        if (getSupportActionBar() == null) {
+            return;
         }
+        int eventCount = aggregator.size();
+        getSupportActionBar().setSubtitle(eventCount == 0 ? null : getString(R.string.summary, eventCount,
+                aggregator.getMaxMagnitude(null), aggregator.getMagnitudePercentile(null, 50)));
     }
 
     @Override
     public void onLoaderReset(Loader<List<Earthquake>> loader) {
 
         mAdapter.clear();
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setSubtitle(null);
+        }
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+        menu.findItem(R.id.action_live).setChecked(mLiveMode);
         return true;
     }
 
@@ -235,6 +506,16 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
             startActivity(settingsIntent);
             return true;
         }
+        if (id == R.id.action_live) {
+            mLiveMode = !item.isChecked();
+            item.setChecked(mLiveMode);
+            if (mLiveMode) {
+                startLiveFeed();
+            } else if (mLiveFeed != null) {
+                mLiveFeed.stop();
+            }
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
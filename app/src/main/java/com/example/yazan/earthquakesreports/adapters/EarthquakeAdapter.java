@@ -2,9 +2,11 @@ package com.example.yazan.earthquakesreports.adapters;
 
 import android.content.Context;
 import android.graphics.drawable.GradientDrawable;
-import android.support.v4.content.ContextCompat;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,11 +16,17 @@ import android.widget.TextView;
 import com.example.yazan.earthquakesreports.R;
 import com.example.yazan.earthquakesreports.activities.MainActivity;
 import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeDisplayModel;
+import com.example.yazan.earthquakesreports.utils.EarthquakeFormatter;
+import com.example.yazan.earthquakesreports.utils.MagnitudeColors;
+import com.example.yazan.earthquakesreports.utils.PipelineMetrics;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * Created by yazan on 2/6/17.
@@ -30,11 +38,33 @@ public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.Ea
     /** Tag for log messages */
     private static final String LOG_TAG = EarthquakeAdapter.class.getName();
 
-    private static final String LOCATION_SEPARATOR = "of";
+    /** view type of the earthquake rows, the only one */
+    private static final int VIEW_TYPE_EARTHQUAKE = 0;
+
+    /** list diffs are computed off the main thread, one at a time */
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
 
     private List<Earthquake> mEarthquakeList;
     private Context mContext;
 
+    /** formats rows that reach the adapter without a display model */
+    private EarthquakeFormatter mFormatter;
+
+    /** posts computed diffs back to the main thread */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /** incremented on every list change, a diff computed for an older generation is dropped */
+    private int mGeneration;
+
+    /** latest list passed to {@link #swap} while its diff is computed, null once it is shown */
+    private List<Earthquake> mPendingList;
+
+    /** stable row id of every USGS event id seen by this adapter */
+    private final Map<String, Long> mStableIds = new HashMap<>();
+
+    /** row inflated in the background, handed to {@link #onCreateViewHolder} by {@link #prewarm} */
+    private View mPrewarmedView;
+
     // Define listener
     private static OnItemClickListener mListener;
 
@@ -57,6 +87,9 @@ public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.Ea
         public TextView mDateTextView;
         public TextView mTimeTextView;
 
+        /** earthquake currently bound to this row */
+        private Earthquake mEarthquake;
+
         /**
          * Construct new {@link EarthquakeViewHolder} object
          * */
@@ -70,16 +103,30 @@ public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.Ea
             mDateTextView = (TextView) itemView.findViewById(R.id.date);
             mTimeTextView = (TextView) itemView.findViewById(R.id.time);
 
-        }
-
-        public void bind(final Earthquake earthquakeItem){
+            //one click listener per row, it reports the earthquake currently bound
             itemView.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    mListener.onItemClick(earthquakeItem);
+                    if (mListener != null && mEarthquake != null) {
+                        mListener.onItemClick(mEarthquake);
+                    }
                 }
             });
         }
+
+        /**
+         * display the precomputed texts and color of the earthquake
+         */
+        public void bind(Earthquake earthquakeItem, EarthquakeDisplayModel displayModel){
+            mEarthquake = earthquakeItem;
+
+            mMagnitudeTextView.setText(displayModel.getMagnitude());
+            ((GradientDrawable) mMagnitudeTextView.getBackground()).setColor(displayModel.getMagnitudeColor());
+            mLocationOffsetTextView.setText(displayModel.getLocationOffset());
+            mPrimaryLocationTextView.setText(displayModel.getPrimaryLocation());
+            mDateTextView.setText(displayModel.getDate());
+            mTimeTextView.setText(displayModel.getTime());
+        }
     }
 
 
@@ -93,26 +140,141 @@ public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.Ea
     public EarthquakeAdapter(Context context, List<Earthquake> earthquakesList) {
         this.mContext = context;
         this.mEarthquakeList = earthquakesList;
+        setHasStableIds(true);
 
     }
 
 
+    /**
+     * Inflate rows on a background thread and put their view holders in the pool of the
+     * RecyclerView, so the first list shown binds them without inflating a row on the main
+     * thread. Call it before the first list arrives, i.e. while the loader fetches it.
+     *
+     * @param recyclerView is the RecyclerView showing this adapter
+     * @param rowCount     is the number of rows to prepare, about a screen of them
+     */
+    public void prewarm(final RecyclerView recyclerView, final int rowCount) {
+        final RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        // the pool only keeps 5 holders of a type by default
+        pool.setMaxRecycledViews(VIEW_TYPE_EARTHQUAKE, rowCount);
+
+        final AsyncLayoutInflater inflater = new AsyncLayoutInflater(mContext);
+        inflater.inflate(R.layout.earthquake_list_item, recyclerView,
+                new AsyncLayoutInflater.OnInflateFinishedListener() {
+                    private int mInflatedCount;
+
+                    @Override
+                    public void onInflateFinished(View view, int resid, ViewGroup parent) {
+                        // created through the adapter, so the holder has its view type
+                        mPrewarmedView = view;
+                        try {
+                            pool.putRecycledView(createViewHolder(recyclerView, VIEW_TYPE_EARTHQUAKE));
+                        } finally {
+                            mPrewarmedView = null;
+                        }
+
+                        // one row at a time, a full inflater queue would block the main thread
+                        if (++mInflatedCount < rowCount) {
+                            inflater.inflate(R.layout.earthquake_list_item, recyclerView, this);
+                        }
+                    }
+                });
+    }
+
     public void clear() {
+        mGeneration++;
+        mPendingList = null;
         int size = this.mEarthquakeList.size();
         if (size > 0) {
-            for (int i = 0; i < size; i++) {
-                this.mEarthquakeList.remove(0);
-            }
-
+            this.mEarthquakeList.clear();
             this.notifyItemRangeRemoved(0, size);
         }
     }
 
 
+    /**
+     * Replace the shown earthquakes with the given list. The difference between the two
+     * lists is computed on a background thread, then only the rows of new, removed or
+     * revised earthquakes are notified.
+     *
+     * @param earthquakeList is the list to show
+     */
     public void swap(List<Earthquake> earthquakeList){
-        mEarthquakeList.clear();
+        final int generation = ++mGeneration;
+        final List<Earthquake> newList = new ArrayList<>(earthquakeList);
+
+        // nothing on screen to keep, no need for a diff
+        if (mEarthquakeList.isEmpty()) {
+            mPendingList = null;
+            mEarthquakeList.addAll(newList);
+            notifyItemRangeInserted(0, newList.size());
+            return;
+        }
+
+        final List<Earthquake> oldList = new ArrayList<>(mEarthquakeList);
+        mPendingList = newList;
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                PipelineMetrics.beginSection("EarthquakeAdapter.diff");
+                long diffStart = PipelineMetrics.start();
+                final DiffUtil.DiffResult diffResult =
+                        DiffUtil.calculateDiff(new EarthquakeDiffCallback(oldList, newList));
+                PipelineMetrics.recordSince(PipelineMetrics.DIFF, diffStart);
+                PipelineMetrics.endSection();
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // a newer list has been set meanwhile
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        mPendingList = null;
+                        mEarthquakeList.clear();
+                        mEarthquakeList.addAll(newList);
+                        diffResult.dispatchUpdatesTo(EarthquakeAdapter.this);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return true while a list passed to {@link #swap} is not shown yet, the rows of the
+     * adapter are about to be replaced
+     */
+    public boolean isDiffPending() {
+        return mPendingList != null;
+    }
+
+    /**
+     * add a page of earthquakes to the end of the list, without rebinding the rows already shown
+     * <p>
+     * the rows shown are about to be replaced while a diff is pending, the page is then
+     * appended to the pending list instead
+     *
+     * @param earthquakeList is the page to append
+     */
+    public void append(List<Earthquake> earthquakeList) {
+        if (mPendingList != null) {
+            List<Earthquake> pendingList = new ArrayList<>(mPendingList);
+            pendingList.addAll(earthquakeList);
+            swap(pendingList);
+            return;
+        }
+        mGeneration++;
+        int positionStart = mEarthquakeList.size();
         mEarthquakeList.addAll(earthquakeList);
-       notifyDataSetChanged();
+        notifyItemRangeInserted(positionStart, earthquakeList.size());
+    }
+
+    /**
+     * @param position of the earthquake in the list
+     * @return the {@link Earthquake} shown at the given position
+     */
+    public Earthquake getItem(int position) {
+        return mEarthquakeList.get(position);
     }
 
     @Override
@@ -121,7 +283,11 @@ public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.Ea
         Context context = parent.getContext();
 
         //inflate earthquake list item , then passing to the EarthquakeViewHolder
-        View earthquakeView = LayoutInflater.from(context).inflate(R.layout.earthquake_list_item, parent, false);
+        //unless prewarm is handing over a row inflated in the background
+        View earthquakeView = mPrewarmedView;
+        if (earthquakeView == null) {
+            earthquakeView = LayoutInflater.from(context).inflate(R.layout.earthquake_list_item, parent, false);
+        }
         EarthquakeViewHolder earthquakeViewHolder = new EarthquakeViewHolder(earthquakeView);
 
         return earthquakeViewHolder;
@@ -129,56 +295,26 @@ public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.Ea
 
     @Override
     public void onBindViewHolder(EarthquakeViewHolder holder, int position) {
-        Log.i(LOG_TAG, "TEST : onBindViewHolder() called ...");
-
-        //get the correct Earthquake data for the correct click position
-        holder.bind(mEarthquakeList.get(position));
+        PipelineMetrics.beginSection("EarthquakeAdapter.bind");
+        long bindStart = PipelineMetrics.start();
 
         // get the {@link Earthquake} object based on the position
         Earthquake currentEarthquake = mEarthquakeList.get(position);
 
-        // Display the magnitude of the current earthquake
-        holder.mMagnitudeTextView.setText(String.valueOf(currentEarthquake.getMagnitude()));
-
-        //get mMagnitudeTextView background
-        GradientDrawable magnitudeCircle = (GradientDrawable) holder.mMagnitudeTextView.getBackground();
-
-        // Set the proper background color on the magnitude circle
-        int magnitudeColor = getMagnitudeColor(currentEarthquake.getMagnitude());
-        magnitudeCircle.setColor(magnitudeColor);
-
-        //get current magnitude location
-        String originalLocation = currentEarthquake.getLocation();
-        String locationOffset;
-        String primaryLocation;
-
-        //check if the originalLocation contains "of"
-        if (originalLocation.contains(LOCATION_SEPARATOR)) {
-            String[] parts = originalLocation.split(LOCATION_SEPARATOR);
-            locationOffset = parts[0] + LOCATION_SEPARATOR;
-            primaryLocation = parts[1];
-
-        } else {
-            locationOffset = "near the";
-            primaryLocation = originalLocation;
+        //the loader prepares the display model, format here only if it did not
+        EarthquakeDisplayModel displayModel = currentEarthquake.getDisplayModel();
+        if (displayModel == null) {
+            if (mFormatter == null) {
+                mFormatter = new EarthquakeFormatter(MagnitudeColors.resolve(mContext));
+            }
+            displayModel = mFormatter.format(currentEarthquake);
+            currentEarthquake.setDisplayModel(displayModel);
         }
 
-        //display location Offset and primary Location
-        holder.mLocationOffsetTextView.setText(locationOffset);
-        holder.mPrimaryLocationTextView.setText(primaryLocation);
-
-        //create Date object from current earthquake unix time in millisecond
-        Date date = new Date(currentEarthquake.getTimeInMilliseconds());
-
-        //display formatted date of current earthquake
-        String formatDate = formatDate(date);
-        holder.mDateTextView.setText(formatDate);
-
-        //display formatted time of current earthquake
-        String formatTime = formatTime(date);
-        holder.mTimeTextView.setText(formatTime);
-
+        holder.bind(currentEarthquake, displayModel);
 
+        PipelineMetrics.recordSince(PipelineMetrics.BIND, bindStart);
+        PipelineMetrics.endSection();
     }
 
     @Override
@@ -186,90 +322,15 @@ public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.Ea
         return mEarthquakeList.size();
     }
 
-    /**
-     * Helper method for {@link #bindViewHolder(RecyclerView.ViewHolder, int)}
-     * <p>
-     * get the proper background color on the magnitude circle
-     * depending on earthquake magnitude.
-     *
-     * @param magnitude is the earthquake magnitude.
-     * @return background color magnitude circle
-     */
-    private int getMagnitudeColor(double magnitude) {
-
-        //hold the color value
-        int magnitudeColorResourceId;
-
-        //round the magnitude , then omit floating point
-        int magnitudeFloor = (int) Math.floor(magnitude);
-
-        //choose correct color for the proper earthquake magnitude
-        switch (magnitudeFloor) {
-            case 0:
-            case 1:
-                magnitudeColorResourceId = R.color.magnitude1;
-                break;
-            case 2:
-                magnitudeColorResourceId = R.color.magnitude2;
-                break;
-            case 3:
-                magnitudeColorResourceId = R.color.magnitude3;
-                break;
-            case 4:
-                magnitudeColorResourceId = R.color.magnitude4;
-                break;
-            case 5:
-                magnitudeColorResourceId = R.color.magnitude5;
-                break;
-            case 6:
-                magnitudeColorResourceId = R.color.magnitude6;
-                break;
-            case 7:
-                magnitudeColorResourceId = R.color.magnitude7;
-                break;
-            case 8:
-                magnitudeColorResourceId = R.color.magnitude8;
-                break;
-            case 9:
-                magnitudeColorResourceId = R.color.magnitude9;
-                break;
-            default:
-                magnitudeColorResourceId = R.color.magnitude10plus;
-                break;
+    @Override
+    public long getItemId(int position) {
+        String eventId = mEarthquakeList.get(position).getId();
+        Long stableId = mStableIds.get(eventId);
+        if (stableId == null) {
+            stableId = (long) mStableIds.size();
+            mStableIds.put(eventId, stableId);
         }
-        return ContextCompat.getColor(mContext, magnitudeColorResourceId);
-    }
-
-    /**
-     * Helper method for {@link #bindViewHolder(RecyclerView.ViewHolder, int)}
-     * <p>
-     * format the  given unix time of current earthquake
-     *
-     * @param date is Date object in millisecond unix time
-     * @return formatted time (i.e. "4:30 PM")
-     */
-    private String formatTime(Date date) {
-        SimpleDateFormat timeFormat = new SimpleDateFormat("h:mm a");
-        return timeFormat.format(date);
-
-
+        return stableId;
     }
 
-    /**
-     * Helper method for {@link #bindViewHolder(RecyclerView.ViewHolder, int)}
-     * <p>
-     * format the  given unix time of current earthquake
-     *
-     * @param date is Date object in millisecond unix time
-     * @return formatted date (i.e. "2016.07.04")
-     */
-    private String formatDate(Date date) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy.MM.dd");
-        return dateFormat.format(date);
-
-
-    }
-
-
-
 }
@@ -0,0 +1,56 @@
+package com.example.yazan.earthquakesreports.adapters;
+
+import android.support.v7.util.DiffUtil;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import java.util.List;
+
+/**
+ * {@link EarthquakeDiffCallback} compares two lists of earthquakes by USGS event id,
+ * so only the rows of new, removed or revised earthquakes are touched.
+ */
+public class EarthquakeDiffCallback extends DiffUtil.Callback {
+
+    private final List<Earthquake> mOldList;
+    private final List<Earthquake> mNewList;
+
+    /**
+     * Construct new {@link EarthquakeDiffCallback} object
+     *
+     * @param oldList is the list currently shown
+     * @param newList is the list to show
+     */
+    public EarthquakeDiffCallback(List<Earthquake> oldList, List<Earthquake> newList) {
+        this.mOldList = oldList;
+        this.mNewList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return mOldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return mNewList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        return mOldList.get(oldItemPosition).getId().equals(mNewList.get(newItemPosition).getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        Earthquake oldEarthquake = mOldList.get(oldItemPosition);
+        Earthquake newEarthquake = mNewList.get(newItemPosition);
+        if (oldEarthquake == newEarthquake) {
+            return true;
+        }
+        return oldEarthquake.getMagnitude() == newEarthquake.getMagnitude()
+                && oldEarthquake.getTimeInMilliseconds() == newEarthquake.getTimeInMilliseconds()
+                && oldEarthquake.getLocation().equals(newEarthquake.getLocation())
+                && oldEarthquake.getUrl().equals(newEarthquake.getUrl());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.yazan.earthquakesreports.data;
+
+import android.provider.BaseColumns;
+
+/**
+ * {@link EarthquakeContract} defines the schema of the local earthquake store.
+ */
+public final class EarthquakeContract {
+
+    /**
+     * private constructor no need to construct new {@link EarthquakeContract} object
+     */
+    private EarthquakeContract() {
+    }
+
+    /**
+     * Table of parsed {@link Earthquake} records, one row per USGS event id.
+     */
+    public static final class EarthquakeEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "earthquakes";
+
+        /**
+         * USGS event id, unique for each earthquake
+         */
+        public static final String COLUMN_EVENT_ID = "event_id";
+
+        public static final String COLUMN_MAGNITUDE = "magnitude";
+
+        public static final String COLUMN_PLACE = "place";
+
+        /**
+         * unix time of the earthquake in milliseconds
+         */
+        public static final String COLUMN_TIME = "time";
+
+        /**
+         * unix time of the last USGS update of the earthquake in milliseconds
+         */
+        public static final String COLUMN_UPDATED = "updated";
+
+        public static final String COLUMN_URL = "url";
+
+        /**
+         * epicenter in degrees and depth in kilometers, null if unknown
+         */
+        public static final String COLUMN_LATITUDE = "latitude";
+        public static final String COLUMN_LONGITUDE = "longitude";
+        public static final String COLUMN_DEPTH = "depth";
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.yazan.earthquakesreports.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.yazan.earthquakesreports.data.EarthquakeContract.EarthquakeEntry;
+
+/**
+ * {@link EarthquakeDbHelper} creates and upgrades the local earthquake database.
+ */
+public class EarthquakeDbHelper extends SQLiteOpenHelper {
+
+    /**
+     * name of the database file
+     */
+    private static final String DATABASE_NAME = "earthquakes.db";
+
+    /**
+     * database version, increment it when the schema changes
+     */
+    private static final int DATABASE_VERSION = 3;
+
+    /**
+     * Construct a new {@link EarthquakeDbHelper} object.
+     *
+     * @param context of the app
+     */
+    public EarthquakeDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + EarthquakeEntry.TABLE_NAME + " ("
+                + EarthquakeEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + EarthquakeEntry.COLUMN_EVENT_ID + " TEXT NOT NULL UNIQUE, "
+                + EarthquakeEntry.COLUMN_MAGNITUDE + " REAL NOT NULL, "
+                + EarthquakeEntry.COLUMN_PLACE + " TEXT NOT NULL, "
+                + EarthquakeEntry.COLUMN_TIME + " INTEGER NOT NULL, "
+                + EarthquakeEntry.COLUMN_UPDATED + " INTEGER NOT NULL, "
+                + EarthquakeEntry.COLUMN_URL + " TEXT NOT NULL, "
+                + EarthquakeEntry.COLUMN_LATITUDE + " REAL, "
+                + EarthquakeEntry.COLUMN_LONGITUDE + " REAL, "
+                + EarthquakeEntry.COLUMN_DEPTH + " REAL);");
+
+        // the list is always read ordered by time or by magnitude
+        db.execSQL("CREATE INDEX " + EarthquakeEntry.TABLE_NAME + "_time_index ON "
+                + EarthquakeEntry.TABLE_NAME + " (" + EarthquakeEntry.COLUMN_TIME + ");");
+        db.execSQL("CREATE INDEX " + EarthquakeEntry.TABLE_NAME + "_magnitude_index ON "
+                + EarthquakeEntry.TABLE_NAME + " (" + EarthquakeEntry.COLUMN_MAGNITUDE + ");");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // the table only caches USGS data, so it can simply be rebuilt
+        db.execSQL("DROP TABLE IF EXISTS " + EarthquakeEntry.TABLE_NAME);
+        onCreate(db);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.yazan.earthquakesreports.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.yazan.earthquakesreports.data.EarthquakeContract.EarthquakeEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link EarthquakeStore} persists parsed {@link Earthquake} records, keyed by their
+ * USGS event id, so the list can be shown before the network answers.
+ * <p>
+ * Methods of this class do disk I/O and must not be called on the main thread.
+ */
+public final class EarthquakeStore {
+
+    /**
+     * value of the USGS "orderby" parameter that sorts by most recent
+     */
+    public static final String ORDER_BY_TIME = "time";
+
+    private static final String[] PROJECTION = {
+            EarthquakeEntry.COLUMN_EVENT_ID,
+            EarthquakeEntry.COLUMN_MAGNITUDE,
+            EarthquakeEntry.COLUMN_PLACE,
+            EarthquakeEntry.COLUMN_TIME,
+            EarthquakeEntry.COLUMN_UPDATED,
+            EarthquakeEntry.COLUMN_URL,
+            EarthquakeEntry.COLUMN_LATITUDE,
+            EarthquakeEntry.COLUMN_LONGITUDE,
+            EarthquakeEntry.COLUMN_DEPTH
+    };
+
+    private static final String INSERT_OR_REPLACE = "INSERT OR REPLACE INTO " + EarthquakeEntry.TABLE_NAME
+            + " (" + EarthquakeEntry.COLUMN_EVENT_ID + ", " + EarthquakeEntry.COLUMN_MAGNITUDE + ", "
+            + EarthquakeEntry.COLUMN_PLACE + ", " + EarthquakeEntry.COLUMN_TIME + ", "
+            + EarthquakeEntry.COLUMN_UPDATED + ", " + EarthquakeEntry.COLUMN_URL + ", "
+            + EarthquakeEntry.COLUMN_LATITUDE + ", " + EarthquakeEntry.COLUMN_LONGITUDE + ", "
+            + EarthquakeEntry.COLUMN_DEPTH + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static EarthquakeStore sInstance;
+
+    private final EarthquakeDbHelper mDbHelper;
+
+    /**
+     * @param context of the app
+     * @return the store shared by the whole app
+     */
+    public static synchronized EarthquakeStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new EarthquakeStore(new EarthquakeDbHelper(context.getApplicationContext()));
+        }
+        return sInstance;
+    }
+
+    private EarthquakeStore(EarthquakeDbHelper dbHelper) {
+        mDbHelper = dbHelper;
+    }
+
+    /**
+     * Read the stored earthquakes within a magnitude range, in the same order USGS would return them.
+     *
+     * @param minMagnitude is the smallest magnitude to return
+     * @param maxMagnitude is the largest magnitude to return
+     * @param orderBy      is the USGS "orderby" value, "time" or "magnitude"
+     * @param minTime      is the unix time in milliseconds of the oldest earthquake to return
+     * @param limit        is the maximum number of earthquakes to return
+     * @return list of stored {@link Earthquake} objects, empty if nothing is stored
+     */
+    public List<Earthquake> query(double minMagnitude, double maxMagnitude, String orderBy, long minTime,
+                                  int limit) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+
+        String sortOrder = ORDER_BY_TIME.equals(orderBy)
+                ? EarthquakeEntry.COLUMN_TIME + " DESC"
+                : EarthquakeEntry.COLUMN_MAGNITUDE + " DESC";
+
+        Cursor cursor = db.query(EarthquakeEntry.TABLE_NAME, PROJECTION,
+                EarthquakeEntry.COLUMN_MAGNITUDE + " BETWEEN ? AND ? AND " + EarthquakeEntry.COLUMN_TIME + " >= ?",
+                new String[]{String.valueOf(minMagnitude), String.valueOf(maxMagnitude), String.valueOf(minTime)},
+                null, null, sortOrder, String.valueOf(limit));
+
+        final List<Earthquake> earthquakeList = new ArrayList<>(cursor.getCount());
+        readRows(cursor, new RowReader() {
+            @Override
+            public void onRow(String id, double magnitude, String place, long time, long updated,
+                              String url, double latitude, double longitude, double depth) {
+                earthquakeList.add(new Earthquake(id, magnitude, place, time, updated, url,
+                        latitude, longitude, depth));
+            }
+        });
+        return earthquakeList;
+    }
+
+    /**
+     * Receives the columns of every row read by {@link #readRows(Cursor, RowReader)}.
+     */
+    private interface RowReader {
+        void onRow(String id, double magnitude, String place, long time, long updated,
+                   String url, double latitude, double longitude, double depth);
+    }
+
+    /**
+     * Helper method for {@link #query(double, double, String, long, int)}
+     * <p>
+     * hand every row of the cursor to the reader, then close the cursor
+     */
+    private static void readRows(Cursor cursor, RowReader reader) {
+        try {
+            int idIndex = cursor.getColumnIndexOrThrow(EarthquakeEntry.COLUMN_EVENT_ID);
+            int magnitudeIndex = cursor.getColumnIndexOrThrow(EarthquakeEntry.COLUMN_MAGNITUDE);
+            int placeIndex = cursor.getColumnIndexOrThrow(EarthquakeEntry.COLUMN_PLACE);
+            int timeIndex = cursor.getColumnIndexOrThrow(EarthquakeEntry.COLUMN_TIME);
+            int updatedIndex = cursor.getColumnIndexOrThrow(EarthquakeEntry.COLUMN_UPDATED);
+            int urlIndex = cursor.getColumnIndexOrThrow(EarthquakeEntry.COLUMN_URL);
+            int latitudeIndex = cursor.getColumnIndexOrThrow(EarthquakeEntry.COLUMN_LATITUDE);
+            int longitudeIndex = cursor.getColumnIndexOrThrow(EarthquakeEntry.COLUMN_LONGITUDE);
+            int depthIndex = cursor.getColumnIndexOrThrow(EarthquakeEntry.COLUMN_DEPTH);
+
+            while (cursor.moveToNext()) {
+                reader.onRow(
+                        cursor.getString(idIndex),
+                        cursor.getDouble(magnitudeIndex),
+                        cursor.getString(placeIndex),
+                        cursor.getLong(timeIndex),
+                        cursor.getLong(updatedIndex),
+                        cursor.getString(urlIndex),
+                        getDoubleOrNaN(cursor, latitudeIndex),
+                        getDoubleOrNaN(cursor, longitudeIndex),
+                        getDoubleOrNaN(cursor, depthIndex));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static double getDoubleOrNaN(Cursor cursor, int index) {
+        return cursor.isNull(index) ? Double.NaN : cursor.getDouble(index);
+    }
+
+    /**
+     * Insert the given earthquakes, replacing stored records with the same event id.
+     *
+     * @param earthquakeList is the list of earthquakes to store
+     */
+    public void save(List<Earthquake> earthquakeList) {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        SQLiteStatement statement = db.compileStatement(INSERT_OR_REPLACE);
+
+        db.beginTransaction();
+        try {
+            for (Earthquake earthquake : earthquakeList) {
+                statement.bindString(1, earthquake.getId());
+                statement.bindDouble(2, earthquake.getMagnitude());
+                statement.bindString(3, earthquake.getLocation());
+                statement.bindLong(4, earthquake.getTimeInMilliseconds());
+                statement.bindLong(5, earthquake.getUpdatedTimeInMilliseconds());
+                statement.bindString(6, earthquake.getUrl());
+                bindDoubleOrNull(statement, 7, earthquake.getLatitude());
+                bindDoubleOrNull(statement, 8, earthquake.getLongitude());
+                bindDoubleOrNull(statement, 9, earthquake.getDepth());
+                statement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+        }
+    }
+
+    /**
+     * Delete the stored records of the given event ids, i.e. events deleted by USGS.
+     *
+     * @param ids are the event ids of the earthquakes to delete
+     */
+    public void delete(List<String> ids) {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+
+        db.beginTransaction();
+        try {
+            for (String id : ids) {
+                db.delete(EarthquakeEntry.TABLE_NAME, EarthquakeEntry.COLUMN_EVENT_ID + " = ?", new String[]{id});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * unknown coordinates (NaN) are stored as null
+     */
+    private static void bindDoubleOrNull(SQLiteStatement statement, int index, double value) {
+        if (Double.isNaN(value)) {
+            statement.bindNull(index);
+        } else {
+            statement.bindDouble(index, value);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import android.content.Context;
+import android.support.v4.content.ContextCompat;
+
+import com.example.yazan.earthquakesreports.R;
+
+/**
+ * {@link MagnitudeColors} resolves the magnitude circle colors of the app once, in the
+ * order expected by {@link EarthquakeFormatter}.
+ */
+public final class MagnitudeColors {
+
+    /**
+     * magnitude circle color resources, indexed by {@link EarthquakeFormatter#getMagnitudeColorIndex(double)}
+     */
+    private static final int[] MAGNITUDE_COLOR_RESOURCE_IDS = {
+            R.color.magnitude1, R.color.magnitude1, R.color.magnitude2, R.color.magnitude3,
+            R.color.magnitude4, R.color.magnitude5, R.color.magnitude6, R.color.magnitude7,
+            R.color.magnitude8, R.color.magnitude9, R.color.magnitude10plus
+    };
+
+    /**
+     * private constructor no need to construct new {@link MagnitudeColors} object
+     */
+    private MagnitudeColors() {
+    }
+
+    /**
+     * @param context of the app
+     * @return the magnitude circle colors, indexed by {@link EarthquakeFormatter#getMagnitudeColorIndex(double)}
+     */
+    public static int[] resolve(Context context) {
+        int[] magnitudeColors = new int[MAGNITUDE_COLOR_RESOURCE_IDS.length];
+        for (int i = 0; i < magnitudeColors.length; i++) {
+            magnitudeColors[i] = ContextCompat.getColor(context, MAGNITUDE_COLOR_RESOURCE_IDS[i]);
+        }
+        return magnitudeColors;
+    }
+}
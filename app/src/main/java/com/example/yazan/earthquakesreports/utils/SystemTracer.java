@@ -0,0 +1,25 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * {@link SystemTracer} shows the {@link PipelineMetrics} sections in the Android system
+ * trace, which exists from API 18.
+ */
+public final class SystemTracer implements PipelineMetrics.Tracer {
+
+    @Override
+    public void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= 18) {
+            Trace.beginSection(name);
+        }
+    }
+
+    @Override
+    public void endSection() {
+        if (Build.VERSION.SDK_INT >= 18) {
+            Trace.endSection();
+        }
+    }
+}
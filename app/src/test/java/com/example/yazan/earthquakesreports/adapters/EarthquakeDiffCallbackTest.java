@@ -0,0 +1,126 @@
+package com.example.yazan.earthquakesreports.adapters;
+
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeDiffCallback}, counting the rows a list refresh rebinds.
+ */
+public class EarthquakeDiffCallbackTest {
+
+    private static final int LIST_SIZE = 200;
+
+    @Test
+    public void identicalListTouchesNoRow() {
+        List<Earthquake> oldList = createList(LIST_SIZE);
+        RowCounter counter = dispatch(oldList, copyOf(oldList));
+
+        assertEquals(0, counter.reboundRows());
+        assertEquals(0, counter.mRemoved);
+    }
+
+    @Test
+    public void threeRevisedEventsRebindThreeRows() {
+        List<Earthquake> oldList = createList(LIST_SIZE);
+        List<Earthquake> newList = copyOf(oldList);
+        newList.set(3, revise(newList.get(3)));
+        newList.set(50, revise(newList.get(50)));
+        newList.set(199, revise(newList.get(199)));
+
+        RowCounter counter = dispatch(oldList, newList);
+
+        assertEquals(3, counter.mChanged);
+        assertEquals(3, counter.reboundRows());
+        assertEquals(0, counter.mRemoved);
+    }
+
+    @Test
+    public void newEventOnTopBindsOneRow() {
+        List<Earthquake> oldList = createList(LIST_SIZE);
+        List<Earthquake> newList = copyOf(oldList);
+        newList.add(0, new Earthquake("new", 5.1, "10km N of Somewhere", 3000L, 3000L, "url"));
+        newList.remove(newList.size() - 1);
+
+        RowCounter counter = dispatch(oldList, newList);
+
+        assertEquals(1, counter.mInserted);
+        assertEquals(1, counter.mRemoved);
+        assertEquals(1, counter.reboundRows());
+    }
+
+    private static RowCounter dispatch(List<Earthquake> oldList, List<Earthquake> newList) {
+        RowCounter counter = new RowCounter();
+        DiffUtil.calculateDiff(new EarthquakeDiffCallback(oldList, newList)).dispatchUpdatesTo(counter);
+        return counter;
+    }
+
+    private static List<Earthquake> createList(int size) {
+        List<Earthquake> earthquakes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            earthquakes.add(new Earthquake("us" + i, 4 + (i % 30) / 10.0, i + "km S of Place " + i,
+                    1000L - i, 1000L - i, "https://earthquake.usgs.gov/earthquakes/eventpage/us" + i));
+        }
+        return earthquakes;
+    }
+
+    /**
+     * @return an equal copy of every earthquake, as a new response would contain
+     */
+    private static List<Earthquake> copyOf(List<Earthquake> earthquakes) {
+        List<Earthquake> copy = new ArrayList<>(earthquakes.size());
+        for (Earthquake earthquake : earthquakes) {
+            copy.add(new Earthquake(earthquake.getId(), earthquake.getMagnitude(), earthquake.getLocation(),
+                    earthquake.getTimeInMilliseconds(), earthquake.getUpdatedTimeInMilliseconds(),
+                    earthquake.getUrl()));
+        }
+        return copy;
+    }
+
+    private static Earthquake revise(Earthquake earthquake) {
+        return new Earthquake(earthquake.getId(), earthquake.getMagnitude() + 0.2, earthquake.getLocation(),
+                earthquake.getTimeInMilliseconds(), earthquake.getUpdatedTimeInMilliseconds() + 1,
+                earthquake.getUrl());
+    }
+
+    /**
+     * Counts the rows the dispatched updates would create or rebind.
+     */
+    private static class RowCounter implements ListUpdateCallback {
+        int mInserted;
+        int mRemoved;
+        int mChanged;
+
+        @Override
+        public void onInserted(int position, int count) {
+            mInserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mRemoved += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mChanged += 2;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mChanged += count;
+        }
+
+        int reboundRows() {
+            return mInserted + mChanged;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.yazan.earthquakesreports.benchmark;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeAggregator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one revised event in an {@link EarthquakeAggregator} of 200k events, i.e. a live
+ * feed poll of 1000 revisions followed by a percentile, and of the same percentile computed
+ * by sorting the magnitudes of every event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregatorBenchmark {
+
+    private static final int EVENT_COUNT = 200000;
+    private static final int CHANGE_COUNT = 1000;
+
+    private static final String[] REGIONS = {"Alaska", "CA", "Japan", "Indonesia", "Chile"};
+
+    private final Random mRandom = new Random(7);
+    private EarthquakeAggregator mAggregator;
+    private List<Earthquake> mEarthquakes;
+
+    /** updated time of the next revisions, revisions of an older version are ignored */
+    private long mVersion = 2;
+
+    @Setup
+    public void setUp() {
+        mEarthquakes = new ArrayList<>(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            mEarthquakes.add(randomEarthquake("us" + i, 1));
+        }
+        mAggregator = new EarthquakeAggregator();
+        mAggregator.addAll(mEarthquakes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHANGE_COUNT)
+    public double revisions() {
+        List<Earthquake> changes = new ArrayList<>(CHANGE_COUNT);
+        for (int i = 0; i < CHANGE_COUNT; i++) {
+            changes.add(randomEarthquake("us" + mRandom.nextInt(EVENT_COUNT), mVersion++));
+        }
+        mAggregator.addAll(changes);
+        return mAggregator.getMagnitudePercentile(null, 95);
+    }
+
+    @Benchmark
+    public double scanPercentile() {
+        double[] magnitudes = new double[mEarthquakes.size()];
+        for (int i = 0; i < magnitudes.length; i++) {
+            magnitudes[i] = mEarthquakes.get(i).getMagnitude();
+        }
+        Arrays.sort(magnitudes);
+        return magnitudes[(int) Math.ceil(magnitudes.length * 0.95) - 1];
+    }
+
+    private Earthquake randomEarthquake(String id, long updatedTime) {
+        // magnitudes rounded to a tenth like USGS
+        double magnitude = -0.5 + mRandom.nextInt(90) / 10.0;
+        String location = mRandom.nextInt(100) + "km N of Somewhere, " + REGIONS[mRandom.nextInt(REGIONS.length)];
+        return new Earthquake(id, magnitude, location, mRandom.nextInt(1000) * TimeUnit.HOURS.toMillis(1),
+                updatedTime, "");
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.yazan.earthquakesreports.benchmark;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeDisplayModel;
+import com.example.yazan.earthquakesreports.utils.EarthquakeFormatter;
+import com.example.yazan.earthquakesreports.utils.EarthquakeJsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of formatting one row, per step: date and time, location splitting and magnitude
+ * color, with {@link EarthquakeFormatter} and with what onBindViewHolder did before it.
+ * Every operation formats the same 1000 recorded earthquakes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+
+    private static final int[] COLORS = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    private List<Earthquake> mEarthquakes;
+    private EarthquakeFormatter mFormatter;
+
+    @Setup
+    public void setUp() throws IOException {
+        mEarthquakes = new EarthquakeJsonParser().parse(new ByteArrayInputStream(UsgsPayloads.geoJson(1000)));
+        mFormatter = new EarthquakeFormatter(COLORS);
+    }
+
+    @Benchmark
+    public void displayModel(Blackhole blackhole) {
+        for (Earthquake earthquake : mEarthquakes) {
+            EarthquakeDisplayModel displayModel = mFormatter.format(earthquake);
+            blackhole.consume(displayModel);
+        }
+    }
+
+    @Benchmark
+    public void dateAndTime(Blackhole blackhole) {
+        for (Earthquake earthquake : mEarthquakes) {
+            blackhole.consume(mFormatter.formatDate(earthquake.getTimeInMilliseconds()));
+            blackhole.consume(mFormatter.formatTime(earthquake.getTimeInMilliseconds()));
+        }
+    }
+
+    @Benchmark
+    public void dateAndTimeWithNewFormats(Blackhole blackhole) {
+        for (Earthquake earthquake : mEarthquakes) {
+            Date date = new Date(earthquake.getTimeInMilliseconds());
+            blackhole.consume(new SimpleDateFormat("yyyy.MM.dd").format(date));
+            blackhole.consume(new SimpleDateFormat("h:mm a").format(date));
+        }
+    }
+
+    @Benchmark
+    public void locationSplit(Blackhole blackhole) {
+        for (Earthquake earthquake : mEarthquakes) {
+            String location = earthquake.getLocation();
+            int primaryStart = EarthquakeFormatter.getPrimaryLocationStart(location);
+            blackhole.consume(location.substring(0, primaryStart));
+            blackhole.consume(location.substring(primaryStart));
+        }
+    }
+
+    @Benchmark
+    public void locationStringSplit(Blackhole blackhole) {
+        for (Earthquake earthquake : mEarthquakes) {
+            String location = earthquake.getLocation();
+            if (location.contains("of")) {
+                String[] parts = location.split("of");
+                blackhole.consume(parts[0] + "of");
+                blackhole.consume(parts[1]);
+            } else {
+                blackhole.consume(location);
+            }
+        }
+    }
+
+    @Benchmark
+    public void magnitudeColor(Blackhole blackhole) {
+        for (Earthquake earthquake : mEarthquakes) {
+            blackhole.consume(mFormatter.getMagnitudeColor(earthquake.getMagnitude()));
+        }
+    }
+}
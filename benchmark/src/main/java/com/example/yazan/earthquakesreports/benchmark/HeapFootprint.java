@@ -0,0 +1,63 @@
+package com.example.yazan.earthquakesreports.benchmark;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeCatalog;
+import com.example.yazan.earthquakesreports.utils.EarthquakeJsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Heap retained per earthquake by the parsed {@code List<Earthquake>} and by the
+ * {@link EarthquakeCatalog} holding the same earthquakes, for the response sizes of
+ * {@link ParseBenchmark}.
+ * <p>
+ * The two are measured apart. The app keeps the list and builds the catalog from it, so
+ * its heap is the sum of both, not the catalog alone.
+ */
+public final class HeapFootprint {
+
+    private static final int[] FEATURE_COUNTS = {1000, 20000};
+
+    /**
+     * private constructor no need to construct new {@link HeapFootprint} object
+     */
+    private HeapFootprint() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println(String.format(Locale.US, "%8s %14s %14s", "events", "list", "catalog"));
+        for (int featureCount : FEATURE_COUNTS) {
+            byte[] payload = UsgsPayloads.geoJson(featureCount);
+
+            long before = usedHeap();
+            List<Earthquake> earthquakes = new EarthquakeJsonParser().parse(new ByteArrayInputStream(payload));
+            long listBytes = usedHeap() - before;
+
+            before = usedHeap();
+            EarthquakeCatalog catalog = EarthquakeCatalog.of(earthquakes);
+            long catalogBytes = usedHeap() - before;
+
+            System.out.println(String.format(Locale.US, "%8d %14d %14d", earthquakes.size(),
+                    listBytes / earthquakes.size(), catalogBytes / catalog.size()));
+        }
+    }
+
+    /**
+     * @return heap bytes in use once the garbage is collected
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.yazan.earthquakesreports.benchmark;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.utils.EarthquakeCsvParser;
+import com.example.yazan.earthquakesreports.utils.EarthquakeJsonParser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing throughput of USGS responses of 10, 1k and 20k earthquakes, with the streaming
+ * {@link EarthquakeJsonParser} and with the previous readLine + org.json path, and of the
+ * CSV response of the same query with the {@link EarthquakeCsvParser}.
+ * {@link PayloadSizes} gives the bytes transferred for each format.
+ * <p>
+ * streamingParser is the list path, its gc.alloc.rate.norm is what a list pays for the raw
+ * extended properties; streamingParserAndDetails also decodes the details of every earthquake.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"10", "1000", "20000"})
+    public int featureCount;
+
+    private byte[] mPayload;
+    private EarthquakeJsonParser mParser;
+    private byte[] mCsvPayload;
+    private EarthquakeCsvParser mCsvParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        mPayload = UsgsPayloads.geoJson(featureCount);
+        mParser = new EarthquakeJsonParser();
+        mCsvPayload = UsgsPayloads.csv(featureCount);
+        mCsvParser = new EarthquakeCsvParser();
+    }
+
+    @Benchmark
+    public List<Earthquake> streamingParser() throws IOException {
+        return mParser.parse(new ByteArrayInputStream(mPayload));
+    }
+
+    @Benchmark
+    public void streamingParserAndDetails(Blackhole blackhole) throws IOException {
+        for (Earthquake earthquake : mParser.parse(new ByteArrayInputStream(mPayload))) {
+            blackhole.consume(earthquake.getDetails());
+        }
+    }
+
+    @Benchmark
+    public List<Earthquake> streamingCsvParser() throws IOException {
+        return mCsvParser.parse(new ByteArrayInputStream(mCsvPayload));
+    }
+
+    @Benchmark
+    public List<Earthquake> readLineAndOrgJson() throws IOException, JSONException {
+        // what QueryUtils did before the streaming parser: the whole response as a String, then a DOM
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(mPayload), Charset.forName("UTF-8")));
+        StringBuilder output = new StringBuilder();
+        String line = bufferedReader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = bufferedReader.readLine();
+        }
+
+        JSONArray earthquakeArray = new JSONObject(output.toString()).getJSONArray("features");
+        List<Earthquake> earthquakeList = new ArrayList<>();
+        for (int i = 0; i < earthquakeArray.length(); i++) {
+            JSONObject feature = earthquakeArray.getJSONObject(i);
+            JSONObject properties = feature.getJSONObject("properties");
+            if (properties.isNull("mag")) {
+                continue;
+            }
+            JSONArray coordinates = feature.getJSONObject("geometry").getJSONArray("coordinates");
+            earthquakeList.add(new Earthquake(feature.getString("id"), properties.getDouble("mag"),
+                    properties.getString("place"), properties.getLong("time"),
+                    properties.getLong("updated"), properties.getString("url"),
+                    coordinates.getDouble(1), coordinates.getDouble(0), coordinates.getDouble(2)));
+        }
+        return earthquakeList;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.yazan.earthquakesreports.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bytes transferred for the same query as GeoJSON and as CSV, as received and gzip
+ * compressed, for the response sizes of {@link ParseBenchmark}.
+ */
+public final class PayloadSizes {
+
+    private static final int[] FEATURE_COUNTS = {10, 1000, 20000};
+
+    /**
+     * private constructor no need to construct new {@link PayloadSizes} object
+     */
+    private PayloadSizes() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println(String.format(Locale.US, "%8s %14s %14s %14s %14s",
+                "events", "geojson", "geojson gzip", "csv", "csv gzip"));
+        for (int featureCount : FEATURE_COUNTS) {
+            byte[] geoJson = UsgsPayloads.geoJson(featureCount);
+            byte[] csv = UsgsPayloads.csv(featureCount);
+            System.out.println(String.format(Locale.US, "%8d %14d %14d %14d %14d", featureCount,
+                    geoJson.length, gzip(geoJson).length, csv.length, gzip(csv).length));
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        gzipOutputStream.write(bytes);
+        gzipOutputStream.close();
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.yazan.earthquakesreports.benchmark;
+
+import com.example.yazan.earthquakesreports.data.EarthquakeCatalog;
+import com.example.yazan.earthquakesreports.data.EarthquakeQueryEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of answering a settings change from 20k loaded earthquakes: the first page of 20 rows
+ * of a narrower magnitude range with {@link EarthquakeQueryEngine}, and the sort keys of
+ * the same range filtered from the catalog and sorted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryEngineBenchmark {
+
+    private static final int EVENT_COUNT = 20000;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({EarthquakeQueryEngine.ORDER_BY_TIME, EarthquakeQueryEngine.ORDER_BY_MAGNITUDE})
+    public String orderBy;
+
+    private EarthquakeCatalog mCatalog;
+    private EarthquakeQueryEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        mCatalog = new EarthquakeCatalog(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            // magnitudes rounded to a tenth like USGS, so many rows share one
+            double magnitude = 2 + random.nextInt(60) / 10.0;
+            long time = random.nextInt(Integer.MAX_VALUE);
+            mCatalog.add("us" + i, magnitude, "Somewhere", time, time, "");
+        }
+        mEngine = new EarthquakeQueryEngine(mCatalog, 2, 8, EarthquakeQueryEngine.ORDER_BY_TIME, true);
+    }
+
+    @Benchmark
+    public int[] select() {
+        return mEngine.select(5, 7, orderBy, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public double[] scanAndSort() {
+        int[] rows = mCatalog.selectByMagnitude(5, 7);
+        boolean byMagnitude = EarthquakeQueryEngine.ORDER_BY_MAGNITUDE.equals(orderBy);
+        double[] keys = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keys[i] = byMagnitude ? mCatalog.getMagnitude(rows[i]) : mCatalog.getTimeInMilliseconds(rows[i]);
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+}
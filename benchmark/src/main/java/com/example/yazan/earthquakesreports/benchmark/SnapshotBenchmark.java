@@ -0,0 +1,70 @@
+package com.example.yazan.earthquakesreports.benchmark;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeSnapshot;
+import com.example.yazan.earthquakesreports.utils.EarthquakeJsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of showing the last loaded list at startup: reading it from an {@link EarthquakeSnapshot},
+ * and parsing the USGS response of the same earthquakes again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private static final String QUERY_URL =
+            "https://earthquake.usgs.gov/fdsnws/event/1/query?format=geojson&orderby=time&minmagnitude=4";
+
+    @Param({"1000", "5000"})
+    public int eventCount;
+
+    private File mFile;
+    private EarthquakeSnapshot mSnapshot;
+    private byte[] mPayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        mPayload = UsgsPayloads.geoJson(eventCount);
+        mFile = File.createTempFile("earthquakes", ".snapshot");
+        mSnapshot = new EarthquakeSnapshot(mFile);
+        mSnapshot.write(QUERY_URL, new EarthquakeJsonParser().parse(new ByteArrayInputStream(mPayload)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Benchmark
+    public List<Earthquake> readSnapshot() {
+        return mSnapshot.read(QUERY_URL);
+    }
+
+    @Benchmark
+    public List<Earthquake> parseResponse() throws IOException {
+        return new EarthquakeJsonParser().parse(new ByteArrayInputStream(mPayload));
+    }
+}
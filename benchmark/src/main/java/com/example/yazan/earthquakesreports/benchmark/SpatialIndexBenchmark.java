@@ -0,0 +1,86 @@
+package com.example.yazan.earthquakesreports.benchmark;
+
+import com.example.yazan.earthquakesreports.data.EarthquakeCatalog;
+import com.example.yazan.earthquakesreports.data.EarthquakeSpatialIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the spatial queries of {@link EarthquakeSpatialIndex} over 50k earthquakes spread
+ * over the sphere, and of the same radius query as a distance check of every row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+    private static final int EVENT_COUNT = 50000;
+
+    private static final double RADIUS_KM = 500;
+
+    /**
+     * query centers: Tokyo, near the north pole, on the 180th meridian
+     */
+    @Param({"35.68,139.69", "89.5,10", "-17.5,180"})
+    public String center;
+
+    private EarthquakeCatalog mCatalog;
+    private EarthquakeSpatialIndex mIndex;
+    private double mLatitude;
+    private double mLongitude;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mCatalog = new EarthquakeCatalog(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            // uniform over the sphere
+            double latitude = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double longitude = random.nextDouble() * 360 - 180;
+            mCatalog.add("us" + i, 2.5, "Somewhere", i, i, "", latitude, longitude, 10);
+        }
+        mIndex = new EarthquakeSpatialIndex(mCatalog);
+
+        String[] coordinates = center.split(",");
+        mLatitude = Double.parseDouble(coordinates[0]);
+        mLongitude = Double.parseDouble(coordinates[1]);
+    }
+
+    @Benchmark
+    public int[] withinRadius() {
+        return mIndex.withinRadius(mLatitude, mLongitude, RADIUS_KM);
+    }
+
+    @Benchmark
+    public int[] nearest() {
+        return mIndex.nearest(mLatitude, mLongitude, 10);
+    }
+
+    @Benchmark
+    public int scanWithinRadius() {
+        int count = 0;
+        for (int row = 0; row < mCatalog.size(); row++) {
+            if (EarthquakeSpatialIndex.distanceKm(mLatitude, mLongitude,
+                    mCatalog.getLatitude(row), mCatalog.getLongitude(row)) <= RADIUS_KM) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
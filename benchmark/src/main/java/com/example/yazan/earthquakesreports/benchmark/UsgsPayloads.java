@@ -0,0 +1,92 @@
+package com.example.yazan.earthquakesreports.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * {@link UsgsPayloads} builds USGS GeoJSON and CSV responses of any size from the recorded
+ * responses of the same query.
+ */
+final class UsgsPayloads {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * recorded USGS response with 10 features
+     */
+    private static final String RECORDED_RESPONSE = "usgs_query_10.geojson";
+
+    /**
+     * the same 10 earthquakes as CSV
+     */
+    private static final String RECORDED_CSV_RESPONSE = "usgs_query_10.csv";
+
+    private static final String FEATURES_START = "\"features\":[";
+    private static final String FEATURES_END = "],\"bbox\"";
+
+    /**
+     * private constructor no need to construct new {@link UsgsPayloads} object
+     */
+    private UsgsPayloads() {
+    }
+
+    /**
+     * @param featureCount is the number of features of the response, a multiple of 10
+     * @return UTF-8 bytes of a response made of copies of the recorded features,
+     * each copy with its own event ids
+     */
+    static byte[] geoJson(int featureCount) throws IOException {
+        String recorded = readRecordedResponse(RECORDED_RESPONSE);
+        int featuresStart = recorded.indexOf(FEATURES_START) + FEATURES_START.length();
+        int featuresEnd = recorded.lastIndexOf(FEATURES_END);
+        String features = recorded.substring(featuresStart, featuresEnd);
+
+        StringBuilder response = new StringBuilder(recorded.length() * Math.max(1, featureCount / 10));
+        response.append(recorded, 0, featuresStart);
+        for (int copy = 0; copy < featureCount / 10; copy++) {
+            if (copy > 0) {
+                response.append(',');
+            }
+            response.append(features.replace("us20008v", "us" + Integer.toString(copy, 36) + "v"));
+        }
+        response.append(recorded, featuresEnd, recorded.length());
+        return response.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @param featureCount is the number of lines of the response, a multiple of 10
+     * @return UTF-8 bytes of a CSV response with the same earthquakes as {@link #geoJson(int)}
+     */
+    static byte[] csv(int featureCount) throws IOException {
+        String recorded = readRecordedResponse(RECORDED_CSV_RESPONSE);
+        int linesStart = recorded.indexOf('\n') + 1;
+        String lines = recorded.substring(linesStart);
+
+        StringBuilder response = new StringBuilder(recorded.length() * Math.max(1, featureCount / 10));
+        response.append(recorded, 0, linesStart);
+        for (int copy = 0; copy < featureCount / 10; copy++) {
+            response.append(lines.replace("us20008v", "us" + Integer.toString(copy, 36) + "v"));
+        }
+        return response.toString().getBytes(UTF_8);
+    }
+
+    private static String readRecordedResponse(String name) throws IOException {
+        InputStream inputStream = UsgsPayloads.class.getClassLoader().getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing " + name);
+        }
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return new String(outputStream.toByteArray(), UTF_8);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
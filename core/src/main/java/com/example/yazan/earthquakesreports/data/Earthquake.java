@@ -0,0 +1,180 @@
+package com.example.yazan.earthquakesreports.data;
+
+/**
+ * Created by yazan on 2/4/17.
+ */
+
+public class Earthquake {
+
+    /**
+     * USGS event id of Earthquake
+     */
+    private String mId;
+
+    /**
+     * Magnitude of Earthquake
+     */
+    private double mMagnitude;
+
+    /**
+     * Location  of Earthquake
+     */
+    private String mLocation;
+    /**
+     * Time of Earthquake
+     */
+    private long mTimeInMilliseconds;
+    /**
+     * Time in milliseconds when USGS last updated the Earthquake
+     */
+    private long mUpdatedTimeInMilliseconds;
+    /**
+     * Url for more details about Earthquake
+     */
+    private String mUrl;
+    /**
+     * Latitude and longitude of the epicenter in degrees, NaN if unknown
+     */
+    private double mLatitude;
+    private double mLongitude;
+    /**
+     * Depth of the hypocenter in kilometers, NaN if unknown
+     */
+    private double mDepth;
+
+    /**
+     * Precomputed texts and color of the list row, or null until prepared
+     */
+    private EarthquakeDisplayModel mDisplayModel;
+
+    /**
+     * Raw extended properties in a chunk shared with the other earthquakes of the response,
+     * or null if the earthquake was not parsed from a response, i.e. read from the store
+     */
+    private byte[] mRawDetails;
+    private int mRawDetailsOffset;
+
+    /**
+     * Extended properties decoded on first access
+     */
+    private EarthquakeDetails mDetails;
+
+    /**
+     * Construct a new {@link Earthquake} object .
+     *
+     * @param id is the USGS event id of the earthquake
+     * @param magnitude is magnitude(size) of the earthquake
+     * @param location is the location where the Earthquake happened
+     * @param timeInMilliseconds is the time in milliseconds when the earthquake happened
+     * @param updatedTimeInMilliseconds is the time in milliseconds when USGS last updated the earthquake
+     * @param url is the website URL to find more detailS about earthquake*/
+    public Earthquake(String id, double magnitude, String location, long timeInMilliseconds,
+                      long updatedTimeInMilliseconds, String url){
+        this(id, magnitude, location, timeInMilliseconds, updatedTimeInMilliseconds, url,
+                Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Construct a new {@link Earthquake} object with its coordinates.
+     *
+     * @param latitude is the latitude of the epicenter in degrees
+     * @param longitude is the longitude of the epicenter in degrees
+     * @param depth is the depth of the hypocenter in kilometers
+     * @see #Earthquake(String, double, String, long, long, String)
+     */
+    public Earthquake(String id, double magnitude, String location, long timeInMilliseconds,
+                      long updatedTimeInMilliseconds, String url,
+                      double latitude, double longitude, double depth){
+        this.mId = id;
+        this.mMagnitude = magnitude;
+        this.mLocation = location;
+        this.mTimeInMilliseconds = timeInMilliseconds;
+        this.mUpdatedTimeInMilliseconds = updatedTimeInMilliseconds;
+        this.mUrl = url;
+        this.mLatitude = latitude;
+        this.mLongitude = longitude;
+        this.mDepth = depth;
+
+    }
+
+
+    public String getId() {
+        return mId;
+    }
+
+    public double getMagnitude() {
+        return mMagnitude;
+    }
+
+    public String getLocation() {
+        return mLocation;
+    }
+
+    public long getTimeInMilliseconds() {
+        return mTimeInMilliseconds;
+    }
+
+
+    public long getUpdatedTimeInMilliseconds() {
+        return mUpdatedTimeInMilliseconds;
+    }
+
+    public String getUrl() {
+        return mUrl;
+    }
+
+    public double getLatitude() {
+        return mLatitude;
+    }
+
+    public double getLongitude() {
+        return mLongitude;
+    }
+
+    public double getDepth() {
+        return mDepth;
+    }
+
+    /**
+     * @return true if the latitude and longitude of the earthquake are known
+     */
+    public boolean hasCoordinates() {
+        return !Double.isNaN(mLatitude) && !Double.isNaN(mLongitude);
+    }
+
+    public EarthquakeDisplayModel getDisplayModel() {
+        return mDisplayModel;
+    }
+
+    public void setDisplayModel(EarthquakeDisplayModel displayModel) {
+        this.mDisplayModel = displayModel;
+    }
+
+    /**
+     * Decode the extended properties on first access, the list never pays for them.
+     *
+     * @return the extended properties, or null if the earthquake was not parsed from a response
+     */
+    public EarthquakeDetails getDetails() {
+        // decoding twice on a race is harmless, the details are immutable
+        if (mDetails == null && mRawDetails != null) {
+            mDetails = EarthquakeDetails.decode(mRawDetails, mRawDetailsOffset);
+        }
+        return mDetails;
+    }
+
+    /**
+     * @param rawDetails is the chunk holding the raw extended properties
+     * @param offset     is the index of their first byte in the chunk
+     * @see EarthquakeDetails.Recorder
+     */
+    void setRawDetails(byte[] rawDetails, int offset) {
+        this.mRawDetails = rawDetails;
+        this.mRawDetailsOffset = offset;
+    }
+
+
+
+
+
+}
@@ -0,0 +1,456 @@
+package com.example.yazan.earthquakesreports.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EarthquakeAggregator} keeps the summaries of a catalog up to date as earthquakes
+ * are added or revised, instead of scanning the whole list for every summary:
+ * <ul>
+ * <li>the number of events per time bucket, an hour by default, and magnitude band,</li>
+ * <li>the count, mean, min, max and percentiles of the magnitudes, of the whole catalog
+ * and of every region.</li>
+ * </ul>
+ * An update costs O(1) per added or revised earthquake, a read is O(1) whatever the size
+ * of the catalog. The magnitudes are counted in bins of a tenth, the precision of the list,
+ * so min, max and percentiles are rounded to a tenth, the mean is exact.
+ * <p>
+ * A region is the part of the location after its last comma, i.e. "India" for
+ * "47km SSW of Khalatse, India", or the whole location when it has none, i.e. "Fiji region".
+ * <p>
+ * The methods are synchronized, so the summaries can be read on the main thread while the
+ * loader thread updates them.
+ */
+public final class EarthquakeAggregator {
+
+    /**
+     * number of magnitude bands: below 1, 1 to 2, ..., 9 and above
+     */
+    public static final int BAND_COUNT = 10;
+
+    public static final long DEFAULT_BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * bins of a tenth of magnitude from -1.0 to 10.0, the lower and higher ones are clamped
+     */
+    private static final int BIN_COUNT = 111;
+
+    /**
+     * bin of an earthquake that was removed, its row is kept for a later revision
+     */
+    private static final int REMOVED = -1;
+
+    private final long mBucketMillis;
+
+    /**
+     * contribution of the earthquake of each row, to take it back on a revision
+     */
+    private int mSize;
+    private String[] mIds = new String[64];
+    private long[] mUpdatedTimes = new long[64];
+    private long[] mBuckets = new long[64];
+    private double[] mMagnitudes = new double[64];
+    private int[] mBins = new int[64];
+    private int[] mRegionCodes = new int[64];
+
+    /**
+     * open addressing table of the rows by id, a slot holds row + 1, or 0 when empty
+     */
+    private int[] mSlots = new int[128];
+
+    private int mEventCount;
+
+    /**
+     * number of events of each band, by bucket, a bucket without events is dropped
+     */
+    private final Map<Long, int[]> mBandCounts = new HashMap<>();
+
+    private final Sketch mCatalog = new Sketch();
+    private final Map<String, Integer> mRegionCodesByName = new HashMap<>();
+    private final List<String> mRegionNames = new ArrayList<>();
+    private final List<Sketch> mRegions = new ArrayList<>();
+
+    /**
+     * Construct an empty {@link EarthquakeAggregator} counting the events per hour.
+     */
+    public EarthquakeAggregator() {
+        this(DEFAULT_BUCKET_MILLIS);
+    }
+
+    /**
+     * Construct an empty {@link EarthquakeAggregator}.
+     *
+     * @param bucketMillis is the length of the time buckets of the counts
+     */
+    public EarthquakeAggregator(long bucketMillis) {
+        mBucketMillis = bucketMillis;
+    }
+
+    /**
+     * Add a new earthquake, or replace the previous version of a revised one. An older
+     * version of an earthquake already added, or the same version, changes nothing.
+     *
+     * @return true if the summaries changed
+     */
+    public synchronized boolean add(Earthquake earthquake) {
+        double magnitude = earthquake.getMagnitude();
+        if (Double.isNaN(magnitude)) {
+            return false;
+        }
+        int row = findRow(earthquake.getId());
+        if (row >= 0) {
+            if (mBins[row] != REMOVED && mUpdatedTimes[row] >= earthquake.getUpdatedTimeInMilliseconds()) {
+                return false;
+            }
+            subtract(row);
+        } else {
+            row = addRow(earthquake.getId());
+        }
+
+        mUpdatedTimes[row] = earthquake.getUpdatedTimeInMilliseconds();
+        mBuckets[row] = getBucket(earthquake.getTimeInMilliseconds());
+        mMagnitudes[row] = magnitude;
+        mBins[row] = getBin(magnitude);
+        mRegionCodes[row] = encodeRegion(getRegion(earthquake.getLocation()));
+
+        int[] bandCounts = mBandCounts.get(mBuckets[row]);
+        if (bandCounts == null) {
+            bandCounts = new int[BAND_COUNT];
+            mBandCounts.put(mBuckets[row], bandCounts);
+        }
+        bandCounts[getBand(magnitude)]++;
+        mCatalog.add(mBins[row], magnitude);
+        mRegions.get(mRegionCodes[row]).add(mBins[row], magnitude);
+        mEventCount++;
+        return true;
+    }
+
+    /**
+     * @param earthquakes are new or revised earthquakes
+     * @return number of earthquakes that changed the summaries
+     */
+    public synchronized int addAll(List<Earthquake> earthquakes) {
+        int changeCount = 0;
+        for (Earthquake earthquake : earthquakes) {
+            if (add(earthquake)) {
+                changeCount++;
+            }
+        }
+        return changeCount;
+    }
+
+    /**
+     * @param id is the USGS event id of the earthquake to take out of the summaries
+     * @return true if the summaries changed
+     */
+    public synchronized boolean remove(String id) {
+        int row = findRow(id);
+        if (row < 0 || mBins[row] == REMOVED) {
+            return false;
+        }
+        subtract(row);
+        mBins[row] = REMOVED;
+        // a revision of the removed version brings it back
+        mUpdatedTimes[row] = Long.MIN_VALUE;
+        return true;
+    }
+
+    /**
+     * Drop every earthquake.
+     */
+    public synchronized void clear() {
+        Arrays.fill(mIds, 0, mSize, null);
+        Arrays.fill(mSlots, 0);
+        mSize = 0;
+        mEventCount = 0;
+        mBandCounts.clear();
+        mCatalog.clear();
+        mRegionCodesByName.clear();
+        mRegionNames.clear();
+        mRegions.clear();
+    }
+
+    /**
+     * @return number of earthquakes in the summaries
+     */
+    public synchronized int size() {
+        return mEventCount;
+    }
+
+    /**
+     * @param time is a unix time in milliseconds
+     * @return start of the time bucket holding the time
+     */
+    public long getBucketStart(long time) {
+        return getBucket(time) * mBucketMillis;
+    }
+
+    /**
+     * @param time is a unix time in milliseconds
+     * @param band is a magnitude band, see {@link #getBand(double)}
+     * @return number of events of the band in the time bucket holding the time
+     */
+    public synchronized int getCount(long time, int band) {
+        int[] bandCounts = mBandCounts.get(getBucket(time));
+        return bandCounts != null ? bandCounts[band] : 0;
+    }
+
+    /**
+     * @param time is a unix time in milliseconds
+     * @return number of events of each band in the time bucket holding the time
+     */
+    public synchronized int[] getBandCounts(long time) {
+        int[] bandCounts = mBandCounts.get(getBucket(time));
+        return bandCounts != null ? bandCounts.clone() : new int[BAND_COUNT];
+    }
+
+    /**
+     * @param region is a region, or null for the whole catalog
+     * @return number of events of the region
+     */
+    public synchronized int getEventCount(String region) {
+        Sketch sketch = getSketch(region);
+        return sketch != null ? sketch.mCount : 0;
+    }
+
+    /**
+     * @param region is a region, or null for the whole catalog
+     * @return smallest magnitude of the region to a tenth, NaN if it has no events
+     */
+    public synchronized double getMinMagnitude(String region) {
+        Sketch sketch = getSketch(region);
+        return sketch != null && sketch.mCount > 0 ? getMagnitude(sketch.mMinBin) : Double.NaN;
+    }
+
+    /**
+     * @param region is a region, or null for the whole catalog
+     * @return largest magnitude of the region to a tenth, NaN if it has no events
+     */
+    public synchronized double getMaxMagnitude(String region) {
+        Sketch sketch = getSketch(region);
+        return sketch != null && sketch.mCount > 0 ? getMagnitude(sketch.mMaxBin) : Double.NaN;
+    }
+
+    /**
+     * @param region is a region, or null for the whole catalog
+     * @return mean magnitude of the region, NaN if it has no events
+     */
+    public synchronized double getMeanMagnitude(String region) {
+        Sketch sketch = getSketch(region);
+        return sketch != null && sketch.mCount > 0 ? sketch.mSum / sketch.mCount : Double.NaN;
+    }
+
+    /**
+     * @param region     is a region, or null for the whole catalog
+     * @param percentile is between 0 and 100, i.e. 95 for the 95th percentile
+     * @return magnitude of the percentile of the region to a tenth, NaN if it has no events
+     */
+    public synchronized double getMagnitudePercentile(String region, double percentile) {
+        Sketch sketch = getSketch(region);
+        if (sketch == null || sketch.mCount == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(sketch.mCount * percentile / 100));
+        long seen = 0;
+        for (int bin = sketch.mMinBin; bin < sketch.mMaxBin; bin++) {
+            seen += sketch.mBins[bin];
+            if (seen >= rank) {
+                return getMagnitude(bin);
+            }
+        }
+        return getMagnitude(sketch.mMaxBin);
+    }
+
+    /**
+     * @return regions with events, in the order they were first seen
+     */
+    public synchronized List<String> getRegions() {
+        List<String> regions = new ArrayList<>();
+        for (int code = 0; code < mRegionNames.size(); code++) {
+            if (mRegions.get(code).mCount > 0) {
+                regions.add(mRegionNames.get(code));
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * @param magnitude is the magnitude of an earthquake
+     * @return its band, from 0 for the magnitudes below 1 to {@link #BAND_COUNT} - 1
+     */
+    public static int getBand(double magnitude) {
+        return (int) Math.max(0, Math.min(BAND_COUNT - 1, Math.floor(magnitude)));
+    }
+
+    /**
+     * @param location is the location of an earthquake, i.e. "47km SSW of Khalatse, India"
+     * @return its region, i.e. "India"
+     */
+    public static String getRegion(String location) {
+        int commaIndex = location.lastIndexOf(',');
+        return (commaIndex >= 0 ? location.substring(commaIndex + 1) : location).trim();
+    }
+
+    private Sketch getSketch(String region) {
+        if (region == null) {
+            return mCatalog;
+        }
+        Integer code = mRegionCodesByName.get(region);
+        return code != null ? mRegions.get(code) : null;
+    }
+
+    private int encodeRegion(String region) {
+        Integer code = mRegionCodesByName.get(region);
+        if (code == null) {
+            code = mRegionNames.size();
+            mRegionCodesByName.put(region, code);
+            mRegionNames.add(region);
+            mRegions.add(new Sketch());
+        }
+        return code;
+    }
+
+    /**
+     * take the contribution of a row out of the summaries
+     */
+    private void subtract(int row) {
+        if (mBins[row] == REMOVED) {
+            return;
+        }
+        int[] bandCounts = mBandCounts.get(mBuckets[row]);
+        bandCounts[getBand(mMagnitudes[row])]--;
+        boolean empty = true;
+        for (int count : bandCounts) {
+            empty &= count == 0;
+        }
+        if (empty) {
+            mBandCounts.remove(mBuckets[row]);
+        }
+        mCatalog.remove(mBins[row], mMagnitudes[row]);
+        mRegions.get(mRegionCodes[row]).remove(mBins[row], mMagnitudes[row]);
+        mEventCount--;
+    }
+
+    /**
+     * @return index of the time bucket holding the time, rounded down for times before 1970
+     */
+    private long getBucket(long time) {
+        long bucket = time / mBucketMillis;
+        return time % mBucketMillis < 0 ? bucket - 1 : bucket;
+    }
+
+    private static int getBin(double magnitude) {
+        return (int) Math.max(0, Math.min(BIN_COUNT - 1, Math.round((magnitude + 1) * 10)));
+    }
+
+    private static double getMagnitude(int bin) {
+        return (bin - 10) / 10.0;
+    }
+
+    /**
+     * @return row of the id, or -1 if it has none
+     */
+    private int findRow(String id) {
+        int mask = mSlots.length - 1;
+        for (int slot = hash(id) & mask; mSlots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = mSlots[slot] - 1;
+            if (mIds[row].equals(id)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private int addRow(String id) {
+        if (mSize == mIds.length) {
+            int capacity = mSize * 2;
+            mIds = Arrays.copyOf(mIds, capacity);
+            mUpdatedTimes = Arrays.copyOf(mUpdatedTimes, capacity);
+            mBuckets = Arrays.copyOf(mBuckets, capacity);
+            mMagnitudes = Arrays.copyOf(mMagnitudes, capacity);
+            mBins = Arrays.copyOf(mBins, capacity);
+            mRegionCodes = Arrays.copyOf(mRegionCodes, capacity);
+        }
+        int row = mSize++;
+        mIds[row] = id;
+        mBins[row] = REMOVED;
+
+        // at most half full
+        if (mSize * 2 > mSlots.length) {
+            mSlots = new int[mSlots.length * 2];
+            for (int i = 0; i < mSize; i++) {
+                insertSlot(i);
+            }
+        } else {
+            insertSlot(row);
+        }
+        return row;
+    }
+
+    private void insertSlot(int row) {
+        int mask = mSlots.length - 1;
+        int slot = hash(mIds[row]) & mask;
+        while (mSlots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        mSlots[slot] = row + 1;
+    }
+
+    private static int hash(String id) {
+        int hash = id.hashCode();
+        // spread the high bits, the table size is a power of two
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Counts of the magnitudes of a set of events in bins of a tenth, with the lowest and
+     * highest bins holding events.
+     */
+    private static final class Sketch {
+
+        final int[] mBins = new int[BIN_COUNT];
+        int mCount;
+        double mSum;
+        int mMinBin = BIN_COUNT;
+        int mMaxBin = -1;
+
+        void add(int bin, double magnitude) {
+            mBins[bin]++;
+            mCount++;
+            mSum += magnitude;
+            mMinBin = Math.min(mMinBin, bin);
+            mMaxBin = Math.max(mMaxBin, bin);
+        }
+
+        void remove(int bin, double magnitude) {
+            mBins[bin]--;
+            mCount--;
+            mSum -= magnitude;
+            if (mCount == 0) {
+                mSum = 0;
+                mMinBin = BIN_COUNT;
+                mMaxBin = -1;
+                return;
+            }
+            // at most BIN_COUNT steps, whatever the number of events
+            while (mBins[mMinBin] == 0) {
+                mMinBin++;
+            }
+            while (mBins[mMaxBin] == 0) {
+                mMaxBin--;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(mBins, 0);
+            mCount = 0;
+            mSum = 0;
+            mMinBin = BIN_COUNT;
+            mMaxBin = -1;
+        }
+    }
+}
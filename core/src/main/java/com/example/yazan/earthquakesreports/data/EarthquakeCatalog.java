@@ -0,0 +1,361 @@
+package com.example.yazan.earthquakesreports.data;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link EarthquakeCatalog} stores a large set of earthquakes column by column instead of
+ * one {@link Earthquake} object per event.
+ * <p>
+ * Magnitudes, times and coordinates are kept in primitive arrays, event ids are packed into a single
+ * byte array, and locations are dictionary encoded: "47km SSW of Khalatse, India" is
+ * stored as the codes of its offset ("47km SSW of") and of its region (" Khalatse, India"),
+ * which repeat across many events. Event pages URLs are only stored when they are not the
+ * usual USGS event page of the id.
+ * <p>
+ * Rows are read by index through the column getters without creating any object,
+ * {@link #get(int)} creates an {@link Earthquake} view on demand.
+ * This class is not thread safe.
+ * <p>
+ * The catalog backs the in-memory indexes, {@link EarthquakeQueryEngine} and
+ * {@link EarthquakeSpatialIndex}. The list on screen keeps its {@link Earthquake} objects,
+ * which the row diff, the click listener and the detail screen work on, so in the app the
+ * catalog is a copy built next to the list for every delivery: it adds to the heap instead
+ * of saving any.
+ */
+public final class EarthquakeCatalog {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String LOCATION_SEPARATOR = "of";
+
+    /**
+     * prefix of the USGS event page URL, followed by the event id
+     */
+    private static final String EVENT_PAGE_URL = "https://earthquake.usgs.gov/earthquakes/eventpage/";
+
+    /**
+     * code of a URL that is the usual event page of the id
+     */
+    private static final int EVENT_PAGE_URL_CODE = -1;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int mSize;
+    private double[] mMagnitudes;
+    private long[] mTimes;
+    private long[] mUpdatedTimes;
+    private double[] mLatitudes;
+    private double[] mLongitudes;
+    private double[] mDepths;
+
+    /**
+     * event id of row i is mIdBytes[mIdOffsets[i] .. mIdOffsets[i + 1]]
+     */
+    private int[] mIdOffsets;
+    private byte[] mIdBytes;
+
+    private int[] mOffsetCodes;
+    private int[] mRegionCodes;
+    private int[] mUrlCodes;
+
+    private final StringDictionary mOffsets = new StringDictionary();
+    private final StringDictionary mRegions = new StringDictionary();
+    private final StringDictionary mUrls = new StringDictionary();
+
+    /**
+     * Construct an empty {@link EarthquakeCatalog} object.
+     */
+    public EarthquakeCatalog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct an empty {@link EarthquakeCatalog} object.
+     *
+     * @param capacity is the number of earthquakes to make room for
+     */
+    public EarthquakeCatalog(int capacity) {
+        capacity = Math.max(capacity, 1);
+        mMagnitudes = new double[capacity];
+        mTimes = new long[capacity];
+        mUpdatedTimes = new long[capacity];
+        mLatitudes = new double[capacity];
+        mLongitudes = new double[capacity];
+        mDepths = new double[capacity];
+        mIdOffsets = new int[capacity + 1];
+        mIdBytes = new byte[capacity * 12];
+        mOffsetCodes = new int[capacity];
+        mRegionCodes = new int[capacity];
+        mUrlCodes = new int[capacity];
+    }
+
+    /**
+     * @param earthquakeList is the list of earthquakes to store
+     * @return a new catalog holding the earthquakes of the list, in the same order
+     */
+    public static EarthquakeCatalog of(List<Earthquake> earthquakeList) {
+        EarthquakeCatalog catalog = new EarthquakeCatalog(earthquakeList.size());
+        for (Earthquake earthquake : earthquakeList) {
+            catalog.add(earthquake);
+        }
+        return catalog;
+    }
+
+    /**
+     * @return number of earthquakes in the catalog
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Append an earthquake to the catalog.
+     *
+     * @param earthquake is the earthquake to store
+     * @return index of the new row
+     */
+    public int add(Earthquake earthquake) {
+        return add(earthquake.getId(), earthquake.getMagnitude(), earthquake.getLocation(),
+                earthquake.getTimeInMilliseconds(), earthquake.getUpdatedTimeInMilliseconds(),
+                earthquake.getUrl(), earthquake.getLatitude(), earthquake.getLongitude(),
+                earthquake.getDepth());
+    }
+
+    /**
+     * Append an earthquake without coordinates to the catalog.
+     *
+     * @return index of the new row
+     */
+    public int add(String id, double magnitude, String location, long timeInMilliseconds,
+                   long updatedTimeInMilliseconds, String url) {
+        return add(id, magnitude, location, timeInMilliseconds, updatedTimeInMilliseconds, url,
+                Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Append an earthquake to the catalog.
+     *
+     * @return index of the new row
+     */
+    public int add(String id, double magnitude, String location, long timeInMilliseconds,
+                   long updatedTimeInMilliseconds, String url,
+                   double latitude, double longitude, double depth) {
+        ensureCapacity(mSize + 1);
+        int row = mSize;
+
+        mMagnitudes[row] = magnitude;
+        mTimes[row] = timeInMilliseconds;
+        mUpdatedTimes[row] = updatedTimeInMilliseconds;
+        mLatitudes[row] = latitude;
+        mLongitudes[row] = longitude;
+        mDepths[row] = depth;
+
+        byte[] idBytes = id.getBytes(UTF_8);
+        int idStart = mIdOffsets[row];
+        if (idStart + idBytes.length > mIdBytes.length) {
+            mIdBytes = Arrays.copyOf(mIdBytes, Math.max(mIdBytes.length * 2, idStart + idBytes.length));
+        }
+        System.arraycopy(idBytes, 0, mIdBytes, idStart, idBytes.length);
+        mIdOffsets[row + 1] = idStart + idBytes.length;
+
+        int separatorIndex = location.indexOf(LOCATION_SEPARATOR);
+        int regionStart = separatorIndex >= 0 ? separatorIndex + LOCATION_SEPARATOR.length() : 0;
+        mOffsetCodes[row] = mOffsets.encode(location.substring(0, regionStart));
+        mRegionCodes[row] = mRegions.encode(location.substring(regionStart));
+
+        mUrlCodes[row] = isEventPageUrl(id, url) ? EVENT_PAGE_URL_CODE : mUrls.encode(url);
+
+        mSize++;
+        return row;
+    }
+
+    public double getMagnitude(int row) {
+        checkRow(row);
+        return mMagnitudes[row];
+    }
+
+    public long getTimeInMilliseconds(int row) {
+        checkRow(row);
+        return mTimes[row];
+    }
+
+    public long getUpdatedTimeInMilliseconds(int row) {
+        checkRow(row);
+        return mUpdatedTimes[row];
+    }
+
+    /**
+     * @return latitude of the epicenter in degrees, NaN if unknown
+     */
+    public double getLatitude(int row) {
+        checkRow(row);
+        return mLatitudes[row];
+    }
+
+    /**
+     * @return longitude of the epicenter in degrees, NaN if unknown
+     */
+    public double getLongitude(int row) {
+        checkRow(row);
+        return mLongitudes[row];
+    }
+
+    /**
+     * @return depth of the hypocenter in kilometers, NaN if unknown
+     */
+    public double getDepth(int row) {
+        checkRow(row);
+        return mDepths[row];
+    }
+
+    /**
+     * @return the location offset (i.e. "47km SSW of"), empty if the location has none
+     */
+    public String getLocationOffset(int row) {
+        checkRow(row);
+        return mOffsets.decode(mOffsetCodes[row]);
+    }
+
+    /**
+     * @return the region part of the location (i.e. " Khalatse, India")
+     */
+    public String getRegion(int row) {
+        checkRow(row);
+        return mRegions.decode(mRegionCodes[row]);
+    }
+
+    /**
+     * @return dictionary code of the region, equal codes mean equal regions
+     */
+    public int getRegionCode(int row) {
+        checkRow(row);
+        return mRegionCodes[row];
+    }
+
+    /**
+     * @return number of distinct regions in the catalog
+     */
+    public int getRegionCount() {
+        return mRegions.size();
+    }
+
+    /**
+     * @return the full location, this allocates a new String
+     */
+    public String getLocation(int row) {
+        return getLocationOffset(row) + getRegion(row);
+    }
+
+    /**
+     * @return the USGS event id, this allocates a new String
+     */
+    public String getId(int row) {
+        checkRow(row);
+        int start = mIdOffsets[row];
+        return new String(mIdBytes, start, mIdOffsets[row + 1] - start, UTF_8);
+    }
+
+    /**
+     * @return the URL of the event page, this may allocate a new String
+     */
+    public String getUrl(int row) {
+        checkRow(row);
+        int urlCode = mUrlCodes[row];
+        return urlCode == EVENT_PAGE_URL_CODE ? EVENT_PAGE_URL + getId(row) : mUrls.decode(urlCode);
+    }
+
+    /**
+     * @return a new {@link Earthquake} view of the row
+     */
+    public Earthquake get(int row) {
+        return new Earthquake(getId(row), getMagnitude(row), getLocation(row),
+                getTimeInMilliseconds(row), getUpdatedTimeInMilliseconds(row), getUrl(row),
+                getLatitude(row), getLongitude(row), getDepth(row));
+    }
+
+    /**
+     * @return the indexes of the rows whose magnitude is within the range, in catalog order
+     */
+    public int[] selectByMagnitude(double minMagnitude, double maxMagnitude) {
+        int[] rows = new int[mSize];
+        int count = 0;
+        for (int row = 0; row < mSize; row++) {
+            double magnitude = mMagnitudes[row];
+            if (magnitude >= minMagnitude && magnitude <= maxMagnitude) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * @return a new list of {@link Earthquake} views of all the rows
+     */
+    public List<Earthquake> toList() {
+        List<Earthquake> earthquakeList = new ArrayList<>(mSize);
+        for (int row = 0; row < mSize; row++) {
+            earthquakeList.add(get(row));
+        }
+        return earthquakeList;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mMagnitudes.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mMagnitudes.length * 2);
+        mMagnitudes = Arrays.copyOf(mMagnitudes, newCapacity);
+        mTimes = Arrays.copyOf(mTimes, newCapacity);
+        mUpdatedTimes = Arrays.copyOf(mUpdatedTimes, newCapacity);
+        mLatitudes = Arrays.copyOf(mLatitudes, newCapacity);
+        mLongitudes = Arrays.copyOf(mLongitudes, newCapacity);
+        mDepths = Arrays.copyOf(mDepths, newCapacity);
+        mIdOffsets = Arrays.copyOf(mIdOffsets, newCapacity + 1);
+        mOffsetCodes = Arrays.copyOf(mOffsetCodes, newCapacity);
+        mRegionCodes = Arrays.copyOf(mRegionCodes, newCapacity);
+        mUrlCodes = Arrays.copyOf(mUrlCodes, newCapacity);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= mSize) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + mSize);
+        }
+    }
+
+    private static boolean isEventPageUrl(String id, String url) {
+        return url.length() == EVENT_PAGE_URL.length() + id.length()
+                && url.startsWith(EVENT_PAGE_URL) && url.endsWith(id);
+    }
+
+    /**
+     * Maps each distinct string to a small int code, and back.
+     */
+    private static final class StringDictionary {
+
+        private final Map<String, Integer> mCodes = new HashMap<>();
+        private final List<String> mValues = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = mCodes.get(value);
+            if (code == null) {
+                code = mValues.size();
+                mValues.add(value);
+                mCodes.put(value, code);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return mValues.get(code);
+        }
+
+        int size() {
+            return mValues.size();
+        }
+    }
+}
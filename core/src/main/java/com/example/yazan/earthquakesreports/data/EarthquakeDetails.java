@@ -0,0 +1,272 @@
+package com.example.yazan.earthquakesreports.data;
+
+import java.nio.charset.Charset;
+
+/**
+ * {@link EarthquakeDetails} holds the extended USGS properties of an {@link Earthquake} that
+ * only its details need: "Did You Feel It?" reports, tsunami flag, PAGER alert level,
+ * significance and review status.
+ * <p>
+ * The list does not need them, so the parsers only copy their raw bytes with a
+ * {@link Recorder}, and {@link Earthquake#getDetails()} decodes them on first access.
+ */
+public final class EarthquakeDetails {
+
+    /**
+     * tags of the raw properties
+     */
+    public static final int FELT = 0;
+    public static final int TSUNAMI = 1;
+    public static final int ALERT = 2;
+    public static final int SIGNIFICANCE = 3;
+    public static final int STATUS = 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * number of "Did You Feel It?" reports, -1 if unknown
+     */
+    private final int mFelt;
+
+    /**
+     * 1 if the event is in an oceanic region, which does not mean a tsunami happened, -1 if unknown
+     */
+    private final int mTsunami;
+
+    /**
+     * PAGER alert level, "green", "yellow", "orange" or "red", or null if none
+     */
+    private final String mAlert;
+
+    /**
+     * significance of the event from 0 to over 1000, -1 if unknown
+     */
+    private final int mSignificance;
+
+    /**
+     * "automatic", "reviewed" or "deleted", or null if unknown
+     */
+    private final String mStatus;
+
+    /**
+     * Construct a new {@link EarthquakeDetails} object.
+     *
+     * @param felt         is the number of felt reports, -1 if unknown
+     * @param tsunami      is 1 for an event in an oceanic region, 0 if not, -1 if unknown
+     * @param alert        is the PAGER alert level, or null
+     * @param significance is the significance of the event, -1 if unknown
+     * @param status       is the review status, or null
+     */
+    public EarthquakeDetails(int felt, int tsunami, String alert, int significance, String status) {
+        mFelt = felt;
+        mTsunami = tsunami;
+        mAlert = alert;
+        mSignificance = significance;
+        mStatus = status;
+    }
+
+    public int getFelt() {
+        return mFelt;
+    }
+
+    public int getTsunami() {
+        return mTsunami;
+    }
+
+    public String getAlert() {
+        return mAlert;
+    }
+
+    public int getSignificance() {
+        return mSignificance;
+    }
+
+    public String getStatus() {
+        return mStatus;
+    }
+
+    /**
+     * Decode the raw properties written by a {@link Recorder}: a length byte, then for every
+     * known property its tag, the length of its value and the value bytes, a number in ASCII
+     * or the UTF-8 bytes of a string.
+     *
+     * @param raw    is the chunk holding the raw properties
+     * @param offset is the index of their length byte
+     * @return the decoded properties, unknown for the missing ones
+     */
+    static EarthquakeDetails decode(byte[] raw, int offset) {
+        int felt = -1;
+        int tsunami = -1;
+        String alert = null;
+        int significance = -1;
+        String status = null;
+
+        int end = offset + 1 + (raw[offset] & 0xFF);
+        for (int i = offset + 1; i < end; ) {
+            int tag = raw[i];
+            int length = raw[i + 1] & 0xFF;
+            int start = i + 2;
+            switch (tag) {
+                case FELT:
+                    felt = parseInt(raw, start, length);
+                    break;
+                case TSUNAMI:
+                    tsunami = parseInt(raw, start, length);
+                    break;
+                case ALERT:
+                    alert = new String(raw, start, length, UTF_8);
+                    break;
+                case SIGNIFICANCE:
+                    significance = parseInt(raw, start, length);
+                    break;
+                case STATUS:
+                    status = new String(raw, start, length, UTF_8);
+                    break;
+            }
+            i = start + length;
+        }
+        return new EarthquakeDetails(felt, tsunami, alert, significance, status);
+    }
+
+    /**
+     * @return the ASCII number, truncated if it has a fraction, or -1 if it is not a number
+     */
+    private static int parseInt(byte[] raw, int start, int length) {
+        boolean negative = length > 0 && raw[start] == '-';
+        int value = 0;
+        int i = negative ? start + 1 : start;
+        for (; i < start + length && raw[i] != '.'; i++) {
+            int digit = raw[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * {@link Recorder} copies the raw properties of the earthquakes of a response into shared
+     * chunks, so each {@link Earthquake} only keeps a reference to its chunk and an offset.
+     * A chunk is never written twice, so a recorder can be kept with its parser and reused
+     * between responses. This class is not thread safe.
+     */
+    public static final class Recorder {
+
+        private static final int CHUNK_SIZE = 16 * 1024;
+
+        /**
+         * a longer value is not recorded, so the properties of an earthquake fit the length byte
+         */
+        private static final int MAX_VALUE_LENGTH = 48;
+
+        /**
+         * most bytes the properties of one earthquake take
+         */
+        private static final int MAX_LENGTH = 1 + 5 * (2 + MAX_VALUE_LENGTH);
+
+        private byte[] mChunk;
+        private int mChunkLength;
+
+        /**
+         * index of the length byte of the earthquake being recorded, of its value being recorded
+         */
+        private int mStart;
+        private int mValueStart = -1;
+
+        /**
+         * bits of the tags recorded for the earthquake, a repeated property is recorded once
+         */
+        private int mTags;
+
+        /**
+         * Start the properties of the next earthquake.
+         */
+        public void begin() {
+            if (mChunk == null || mChunkLength + MAX_LENGTH > mChunk.length) {
+                mChunk = new byte[CHUNK_SIZE];
+                mChunkLength = 0;
+            }
+            mStart = mChunkLength;
+            mChunk[mChunkLength++] = 0;
+            mValueStart = -1;
+            mTags = 0;
+        }
+
+        /**
+         * Start the value of a property, followed by {@link #append(int)} for each of its bytes
+         * and by {@link #endValue()}.
+         *
+         * @param tag is the tag of the property, i.e. {@link #FELT}
+         */
+        public void beginValue(int tag) {
+            if ((mTags & 1 << tag) != 0) {
+                return;
+            }
+            mTags |= 1 << tag;
+            mChunk[mChunkLength++] = (byte) tag;
+            mChunk[mChunkLength++] = 0;
+            mValueStart = mChunkLength;
+        }
+
+        /**
+         * @param b is the next byte of the value
+         */
+        public void append(int b) {
+            if (mValueStart < 0) {
+                return;
+            }
+            if (mChunkLength - mValueStart == MAX_VALUE_LENGTH) {
+                cancelValue();
+                return;
+            }
+            mChunk[mChunkLength++] = (byte) b;
+        }
+
+        /**
+         * @param bytes holds the whole value
+         */
+        public void append(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                append(bytes[i]);
+            }
+        }
+
+        /**
+         * Keep the value of the property, unless it was too long.
+         */
+        public void endValue() {
+            if (mValueStart >= 0) {
+                mChunk[mValueStart - 1] = (byte) (mChunkLength - mValueStart);
+                mValueStart = -1;
+            }
+        }
+
+        /**
+         * Drop the value of the property, i.e. it is null.
+         */
+        public void cancelValue() {
+            if (mValueStart >= 0) {
+                mChunkLength = mValueStart - 2;
+                mValueStart = -1;
+            }
+        }
+
+        /**
+         * Give the recorded properties to their earthquake.
+         */
+        public void attach(Earthquake earthquake) {
+            cancelValue();
+            mChunk[mStart] = (byte) (mChunkLength - mStart - 1);
+            earthquake.setRawDetails(mChunk, mStart);
+        }
+
+        /**
+         * Drop the recorded properties, i.e. the earthquake can not be displayed.
+         */
+        public void discard() {
+            mChunkLength = mStart;
+            mValueStart = -1;
+        }
+    }
+}
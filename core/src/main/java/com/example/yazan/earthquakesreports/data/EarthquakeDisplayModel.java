@@ -0,0 +1,59 @@
+package com.example.yazan.earthquakesreports.data;
+
+/**
+ * {@link EarthquakeDisplayModel} holds the texts and color of one list row, computed once
+ * off the main thread so binding the row only assigns them.
+ */
+public final class EarthquakeDisplayModel {
+
+    private final String mMagnitude;
+    private final int mMagnitudeColor;
+    private final String mLocationOffset;
+    private final String mPrimaryLocation;
+    private final String mDate;
+    private final String mTime;
+
+    /**
+     * Construct a new {@link EarthquakeDisplayModel} object.
+     *
+     * @param magnitude       is the magnitude text (i.e. "6.2")
+     * @param magnitudeColor  is the color of the magnitude circle
+     * @param locationOffset  is the offset part of the location (i.e. "47km SSW of")
+     * @param primaryLocation is the primary part of the location (i.e. "Khalatse, India")
+     * @param date            is the formatted date (i.e. "2017.03.08")
+     * @param time            is the formatted time (i.e. "8:24 AM")
+     */
+    public EarthquakeDisplayModel(String magnitude, int magnitudeColor, String locationOffset,
+                                  String primaryLocation, String date, String time) {
+        this.mMagnitude = magnitude;
+        this.mMagnitudeColor = magnitudeColor;
+        this.mLocationOffset = locationOffset;
+        this.mPrimaryLocation = primaryLocation;
+        this.mDate = date;
+        this.mTime = time;
+    }
+
+    public String getMagnitude() {
+        return mMagnitude;
+    }
+
+    public int getMagnitudeColor() {
+        return mMagnitudeColor;
+    }
+
+    public String getLocationOffset() {
+        return mLocationOffset;
+    }
+
+    public String getPrimaryLocation() {
+        return mPrimaryLocation;
+    }
+
+    public String getDate() {
+        return mDate;
+    }
+
+    public String getTime() {
+        return mTime;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.yazan.earthquakesreports.data;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * {@link EarthquakeQueryEngine} answers the magnitude range and order of the user settings
+ * from the rows of an {@link EarthquakeCatalog}, without a network request.
+ * <p>
+ * The rows are sorted once by time and by magnitude. A query in magnitude order is a
+ * binary search and a slice of the magnitude index, a query in time order walks the time
+ * index and skips the rows out of the range, so both only read the rows they return.
+ * <p>
+ * The catalog holds the results of one USGS query, the "covered" query. A query is
+ * answered exactly if its magnitude range is within the covered range, and either the
+ * catalog holds all the results of the covered query, or both are in the same order:
+ * the loaded pages are then the first results of the narrower query too.
+ * This class is not thread safe.
+ */
+public final class EarthquakeQueryEngine {
+
+    /**
+     * values of the USGS "orderby" parameter
+     */
+    public static final String ORDER_BY_TIME = "time";
+    public static final String ORDER_BY_TIME_ASC = "time-asc";
+    public static final String ORDER_BY_MAGNITUDE = "magnitude";
+    public static final String ORDER_BY_MAGNITUDE_ASC = "magnitude-asc";
+
+    private final EarthquakeCatalog mCatalog;
+
+    /**
+     * rows sorted by time, most recent first
+     */
+    private final int[] mByTime;
+
+    /**
+     * rows sorted by magnitude, largest first, then most recent first
+     */
+    private final int[] mByMagnitude;
+
+    /**
+     * magnitudes of mByMagnitude[i], in the same order
+     */
+    private final double[] mSortedMagnitudes;
+
+    private final double mCoveredMinMagnitude;
+    private final double mCoveredMaxMagnitude;
+    private final String mCoveredOrderBy;
+    private final boolean mComplete;
+
+    /**
+     * Build the time and magnitude indexes of the catalog.
+     *
+     * @param catalog      holds the results of the covered query
+     * @param minMagnitude is the "minmagnitude" of the covered query
+     * @param maxMagnitude is the "maxmagnitude" of the covered query
+     * @param orderBy      is the "orderby" of the covered query, null for the default order
+     * @param complete     is true if the catalog holds all the results of the covered query,
+     *                     false if it only holds the first pages of them
+     */
+    public EarthquakeQueryEngine(final EarthquakeCatalog catalog, double minMagnitude, double maxMagnitude,
+                                 String orderBy, boolean complete) {
+        mCatalog = catalog;
+        mCoveredMinMagnitude = minMagnitude;
+        mCoveredMaxMagnitude = maxMagnitude;
+        mCoveredOrderBy = normalizeOrderBy(orderBy);
+        mComplete = complete;
+
+        final Comparator<Integer> byTime = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                long firstTime = catalog.getTimeInMilliseconds(first);
+                long secondTime = catalog.getTimeInMilliseconds(second);
+                return firstTime > secondTime ? -1 : (firstTime == secondTime ? 0 : 1);
+            }
+        };
+        mByTime = sortRows(catalog.size(), byTime);
+        mByMagnitude = sortRows(catalog.size(), new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                int result = Double.compare(catalog.getMagnitude(second), catalog.getMagnitude(first));
+                return result != 0 ? result : byTime.compare(first, second);
+            }
+        });
+
+        mSortedMagnitudes = new double[mByMagnitude.length];
+        for (int i = 0; i < mByMagnitude.length; i++) {
+            mSortedMagnitudes[i] = catalog.getMagnitude(mByMagnitude[i]);
+        }
+    }
+
+    /**
+     * @return the indexed catalog
+     */
+    public EarthquakeCatalog getCatalog() {
+        return mCatalog;
+    }
+
+    /**
+     * @return true if the catalog holds all the results of the covered query
+     */
+    public boolean isComplete() {
+        return mComplete;
+    }
+
+    /**
+     * @param minMagnitude is the smallest magnitude of the query
+     * @param maxMagnitude is the largest magnitude of the query
+     * @param orderBy      is the USGS "orderby" value of the query, null for the default order
+     * @return true if {@link #select(double, double, String, int)} returns the first results
+     * the same query would return from USGS
+     */
+    public boolean answers(double minMagnitude, double maxMagnitude, String orderBy) {
+        return minMagnitude >= mCoveredMinMagnitude && maxMagnitude <= mCoveredMaxMagnitude
+                && (mComplete || mCoveredOrderBy.equals(normalizeOrderBy(orderBy)));
+    }
+
+    /**
+     * @param minMagnitude is the smallest magnitude to return
+     * @param maxMagnitude is the largest magnitude to return
+     * @param orderBy      is the USGS "orderby" value, null for the default order
+     * @param limit        is the maximum number of rows to return
+     * @return catalog rows of the earthquakes within the range, in the given order
+     */
+    public int[] select(double minMagnitude, double maxMagnitude, String orderBy, int limit) {
+        orderBy = normalizeOrderBy(orderBy);
+        if (minMagnitude > maxMagnitude || limit <= 0) {
+            return new int[0];
+        }
+
+        if (ORDER_BY_MAGNITUDE.equals(orderBy) || ORDER_BY_MAGNITUDE_ASC.equals(orderBy)) {
+            // the range is a slice of the magnitude index
+            int first = countGreaterThan(maxMagnitude);
+            // the rows not smaller than the min are the rows greater than the double right below it
+            int end = countGreaterThan(Math.nextAfter(minMagnitude, Double.NEGATIVE_INFINITY));
+            int[] rows = new int[Math.min(limit, end - first)];
+            boolean ascending = ORDER_BY_MAGNITUDE_ASC.equals(orderBy);
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = mByMagnitude[ascending ? end - 1 - i : first + i];
+            }
+            return rows;
+        }
+
+        boolean ascending = ORDER_BY_TIME_ASC.equals(orderBy);
+        int[] rows = new int[Math.min(limit, mByTime.length)];
+        int count = 0;
+        for (int i = 0; i < mByTime.length && count < rows.length; i++) {
+            int row = mByTime[ascending ? mByTime.length - 1 - i : i];
+            double magnitude = mCatalog.getMagnitude(row);
+            if (magnitude >= minMagnitude && magnitude <= maxMagnitude) {
+                rows[count++] = row;
+            }
+        }
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Helper method for {@link #select(double, double, String, int)}
+     * <p>
+     * binary search of the magnitude index, sorted largest first
+     *
+     * @return number of rows whose magnitude is greater than the given one
+     */
+    private int countGreaterThan(double magnitude) {
+        int low = 0;
+        int high = mSortedMagnitudes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mSortedMagnitudes[middle] > magnitude) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int[] sortRows(int size, Comparator<Integer> order) {
+        Integer[] sorted = new Integer[size];
+        for (int row = 0; row < size; row++) {
+            sorted[row] = row;
+        }
+        Arrays.sort(sorted, order);
+
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = sorted[i];
+        }
+        return rows;
+    }
+
+    /**
+     * @return the given "orderby" value, or "time" (the USGS default) if there is none
+     */
+    private static String normalizeOrderBy(String orderBy) {
+        return orderBy != null ? orderBy : ORDER_BY_TIME;
+    }
+}
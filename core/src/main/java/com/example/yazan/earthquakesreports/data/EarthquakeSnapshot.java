@@ -0,0 +1,288 @@
+package com.example.yazan.earthquakesreports.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * {@link EarthquakeSnapshot} keeps the last delivered list of a query in a compact binary
+ * file, so the next launch shows it without a database query or a JSON parse.
+ * <p>
+ * The file is a header, one fixed-width record per earthquake, and a table of the UTF-8
+ * bytes of the strings, each string stored once and referenced by offset and length:
+ * <pre>
+ * header  magic, version, record count, string table size, query offset and length, CRC32
+ * record  magnitude, time, updated time, latitude, longitude, depth,
+ *         id, location and url offsets and lengths (72 bytes)
+ * strings UTF-8 bytes
+ * </pre>
+ * It is read through a memory map, so the records are decoded straight from the page cache.
+ * A file of another version, of the wrong size or failing its checksum is ignored and
+ * deleted. A new snapshot is written to a temporary file renamed over the old one, so a
+ * crash while writing leaves the previous snapshot intact.
+ * <p>
+ * Methods of this class do disk I/O and must not be called on the main thread.
+ */
+public final class EarthquakeSnapshot {
+
+    /**
+     * name of the snapshot file in the app files directory
+     */
+    public static final String FILE_NAME = "earthquakes.snapshot";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * "EQSN", first bytes of every snapshot
+     */
+    private static final int MAGIC = 0x4551534E;
+
+    /**
+     * version of the format, a snapshot of any other version is ignored
+     */
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * offset of the checksum in the header, it covers the rest of the file
+     */
+    private static final int CHECKSUM_OFFSET = 24;
+
+    private static final int RECORD_SIZE = 6 * 8 + 3 * 2 * 4;
+
+    /**
+     * length of a null string
+     */
+    private static final int NULL_LENGTH = -1;
+
+    private final File mFile;
+
+    /**
+     * Construct a new {@link EarthquakeSnapshot} object.
+     *
+     * @param file is the snapshot file, it does not have to exist yet
+     */
+    public EarthquakeSnapshot(File file) {
+        mFile = file;
+    }
+
+    /**
+     * Replace the snapshot with the given earthquakes.
+     *
+     * @param queryUrl   is the query URL of the earthquakes, without the paging parameters
+     * @param earthquakes are the earthquakes in the order they are shown
+     */
+    public void write(String queryUrl, List<Earthquake> earthquakes) throws IOException {
+        // the string table, each distinct string once
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        Map<String, Integer> stringOffsets = new HashMap<>();
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + earthquakes.size() * RECORD_SIZE);
+        buffer.position(HEADER_SIZE);
+        for (Earthquake earthquake : earthquakes) {
+            buffer.putDouble(earthquake.getMagnitude());
+            buffer.putLong(earthquake.getTimeInMilliseconds());
+            buffer.putLong(earthquake.getUpdatedTimeInMilliseconds());
+            buffer.putDouble(earthquake.getLatitude());
+            buffer.putDouble(earthquake.getLongitude());
+            buffer.putDouble(earthquake.getDepth());
+            putString(buffer, earthquake.getId(), strings, stringOffsets);
+            putString(buffer, earthquake.getLocation(), strings, stringOffsets);
+            putString(buffer, earthquake.getUrl(), strings, stringOffsets);
+        }
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, earthquakes.size());
+        buffer.position(16);
+        putString(buffer, queryUrl, strings, stringOffsets);
+        buffer.putInt(12, strings.size());
+
+        byte[] stringBytes = strings.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, CHECKSUM_OFFSET);
+        checksum.update(buffer.array(), HEADER_SIZE, buffer.capacity() - HEADER_SIZE);
+        checksum.update(stringBytes);
+        buffer.putLong(CHECKSUM_OFFSET, checksum.getValue());
+
+        File temporaryFile = new File(mFile.getPath() + ".tmp");
+        FileOutputStream outputStream = new FileOutputStream(temporaryFile);
+        try {
+            outputStream.write(buffer.array());
+            outputStream.write(stringBytes);
+            // on disk before the rename, or a crash could leave a renamed empty file
+            outputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+        if (!temporaryFile.renameTo(mFile)) {
+            temporaryFile.delete();
+            throw new IOException("Cannot rename " + temporaryFile + " to " + mFile);
+        }
+    }
+
+    /**
+     * Read the earthquakes of the snapshot, if it holds the given query.
+     *
+     * @param queryUrl is the query URL to show, without the paging parameters
+     * @return earthquakes of the snapshot in their order, or null if there is no valid
+     * snapshot of the query
+     */
+    public List<Earthquake> read(String queryUrl) {
+        if (!mFile.isFile()) {
+            return null;
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = map();
+        } catch (IOException e) {
+            return null;
+        }
+
+        if (!isValid(buffer)) {
+            // a corrupt snapshot would be ignored at every launch
+            mFile.delete();
+            return null;
+        }
+
+        int recordCount = buffer.getInt(8);
+        int stringsStart = HEADER_SIZE + recordCount * RECORD_SIZE;
+        if (!queryUrl.equals(getString(buffer, stringsStart, 16))) {
+            return null;
+        }
+
+        List<Earthquake> earthquakes = new ArrayList<>(recordCount);
+        for (int record = HEADER_SIZE; record < stringsStart; record += RECORD_SIZE) {
+            earthquakes.add(new Earthquake(
+                    getString(buffer, stringsStart, record + 48),
+                    buffer.getDouble(record),
+                    getString(buffer, stringsStart, record + 56),
+                    buffer.getLong(record + 8),
+                    buffer.getLong(record + 16),
+                    getString(buffer, stringsStart, record + 64),
+                    buffer.getDouble(record + 24),
+                    buffer.getDouble(record + 32),
+                    buffer.getDouble(record + 40)));
+        }
+        return earthquakes;
+    }
+
+    /**
+     * Helper method for {@link #read(String)}
+     * <p>
+     * map the whole file, the mapping stays valid once the channel is closed
+     */
+    private MappedByteBuffer map() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(mFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Helper method for {@link #read(String)}
+     * <p>
+     * check the version, the sizes and the checksum of the snapshot
+     */
+    private static boolean isValid(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return false;
+        }
+        long recordCount = buffer.getInt(8);
+        long stringsSize = buffer.getInt(12);
+        if (recordCount < 0 || stringsSize < 0
+                || HEADER_SIZE + recordCount * RECORD_SIZE + stringsSize != buffer.capacity()) {
+            return false;
+        }
+
+        CRC32 checksum = new CRC32();
+        byte[] chunk = new byte[8192];
+        ByteBuffer header = buffer.duplicate();
+        header.get(chunk, 0, CHECKSUM_OFFSET);
+        checksum.update(chunk, 0, CHECKSUM_OFFSET);
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        while (body.hasRemaining()) {
+            int count = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, count);
+            checksum.update(chunk, 0, count);
+        }
+        if (checksum.getValue() != buffer.getLong(CHECKSUM_OFFSET)) {
+            return false;
+        }
+
+        // every string reference within the string table
+        int stringsStart = (int) (HEADER_SIZE + recordCount * RECORD_SIZE);
+        if (!isValidString(buffer, stringsSize, 16)) {
+            return false;
+        }
+        for (int record = HEADER_SIZE; record < stringsStart; record += RECORD_SIZE) {
+            if (!isValidString(buffer, stringsSize, record + 48) || !isValidString(buffer, stringsSize, record + 56)
+                    || !isValidString(buffer, stringsSize, record + 64)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isValidString(ByteBuffer buffer, long stringsSize, int reference) {
+        long offset = buffer.getInt(reference);
+        long length = buffer.getInt(reference + 4);
+        return length == NULL_LENGTH || (offset >= 0 && length >= 0 && offset + length <= stringsSize);
+    }
+
+    /**
+     * Helper method for {@link #write(String, List)}
+     * <p>
+     * add the string to the table, unless it is already there, and put its reference
+     */
+    private static void putString(ByteBuffer buffer, String string, ByteArrayOutputStream strings,
+                                  Map<String, Integer> stringOffsets) {
+        if (string == null) {
+            buffer.putInt(0);
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = string.getBytes(UTF_8);
+        Integer offset = stringOffsets.get(string);
+        if (offset == null) {
+            offset = strings.size();
+            strings.write(bytes, 0, bytes.length);
+            stringOffsets.put(string, offset);
+        }
+        buffer.putInt(offset);
+        buffer.putInt(bytes.length);
+    }
+
+    /**
+     * Helper method for {@link #read(String)}
+     *
+     * @param reference is the position of the offset and length of the string
+     */
+    private static String getString(ByteBuffer buffer, int stringsStart, int reference) {
+        int length = buffer.getInt(reference + 4);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer string = buffer.duplicate();
+        string.position(stringsStart + buffer.getInt(reference));
+        string.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.yazan.earthquakesreports.data;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * {@link EarthquakeSpatialIndex} answers radius, bounding-box and nearest-N queries over
+ * the rows of an {@link EarthquakeCatalog} without a network request.
+ * <p>
+ * The globe is split into a grid of 1 x 1 degree cells. The rows are sorted by cell once,
+ * with their coordinates copied next to them, so a query only reads the cells its area
+ * overlaps and checks the exact distance or bounds of the rows in them.
+ * Rows without coordinates are not indexed. The index is a snapshot: rows added to the
+ * catalog after it was built are not indexed. This class is not thread safe.
+ */
+public final class EarthquakeSpatialIndex {
+
+    /**
+     * mean radius of the Earth in kilometers
+     */
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * half of the circumference of the Earth, no two points are further apart
+     */
+    private static final double MAX_DISTANCE_KM = Math.PI * EARTH_RADIUS_KM;
+
+    /**
+     * first radius tried by {@link #nearest(double, double, int)}, doubled until enough rows are found
+     */
+    private static final double NEAREST_START_RADIUS_KM = 50;
+
+    private static final int LATITUDE_CELLS = 180;
+    private static final int LONGITUDE_CELLS = 360;
+
+    private final EarthquakeCatalog mCatalog;
+
+    /**
+     * rows of cell c are mRows[mCellStarts[c] .. mCellStarts[c + 1]], cell c = latitude cell * 360 + longitude cell
+     */
+    private final int[] mCellStarts;
+    private final int[] mRows;
+
+    /**
+     * coordinates of mRows[i], in the same order
+     */
+    private final double[] mLatitudes;
+    private final double[] mLongitudes;
+
+    /**
+     * scratch buffers of the current query, reused between queries
+     */
+    private int[] mFoundRows = new int[64];
+    private double[] mFoundDistances = new double[64];
+    private int mFoundCount;
+
+    /**
+     * Build the index of all the rows of the catalog that have coordinates.
+     *
+     * @param catalog is the catalog to index
+     */
+    public EarthquakeSpatialIndex(EarthquakeCatalog catalog) {
+        mCatalog = catalog;
+        int size = catalog.size();
+
+        // counting sort of the rows by cell
+        int[] rowCells = new int[size];
+        int[] cellStarts = new int[LATITUDE_CELLS * LONGITUDE_CELLS + 1];
+        int indexedCount = 0;
+        for (int row = 0; row < size; row++) {
+            double latitude = catalog.getLatitude(row);
+            double longitude = catalog.getLongitude(row);
+            if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+                rowCells[row] = -1;
+                continue;
+            }
+            int cell = latitudeCell(latitude) * LONGITUDE_CELLS + longitudeCell(longitude);
+            rowCells[row] = cell;
+            cellStarts[cell + 1]++;
+            indexedCount++;
+        }
+        for (int cell = 0; cell < LATITUDE_CELLS * LONGITUDE_CELLS; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        mRows = new int[indexedCount];
+        mLatitudes = new double[indexedCount];
+        mLongitudes = new double[indexedCount];
+        int[] nextPositions = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+        for (int row = 0; row < size; row++) {
+            int cell = rowCells[row];
+            if (cell < 0) {
+                continue;
+            }
+            int position = nextPositions[cell]++;
+            mRows[position] = row;
+            mLatitudes[position] = catalog.getLatitude(row);
+            mLongitudes[position] = normalizeLongitude(catalog.getLongitude(row));
+        }
+        mCellStarts = cellStarts;
+    }
+
+    /**
+     * @return the catalog whose rows are indexed
+     */
+    public EarthquakeCatalog getCatalog() {
+        return mCatalog;
+    }
+
+    /**
+     * @return number of indexed rows, the rows of the catalog that have coordinates
+     */
+    public int size() {
+        return mRows.length;
+    }
+
+    /**
+     * @param latitude  of the center in degrees
+     * @param longitude of the center in degrees
+     * @param radiusKm  is the radius in kilometers
+     * @return catalog rows of the earthquakes within the radius, in catalog order
+     */
+    public int[] withinRadius(double latitude, double longitude, double radiusKm) {
+        collectWithinRadius(latitude, longitude, radiusKm);
+        int[] rows = Arrays.copyOf(mFoundRows, mFoundCount);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * A box whose west edge is east of its east edge crosses the 180th meridian.
+     *
+     * @return catalog rows of the earthquakes within the box, edges included, in catalog order
+     */
+    public int[] withinBoundingBox(double south, double west, double north, double east) {
+        mFoundCount = 0;
+        if (south > north) {
+            return new int[0];
+        }
+        if (east - west >= 360) {
+            west = -180;
+            east = 180;
+        } else {
+            west = normalizeLongitude(west);
+            east = normalizeLongitude(east);
+        }
+
+        int firstLatitudeCell = latitudeCell(south);
+        int lastLatitudeCell = latitudeCell(north);
+        int westCell = longitudeCell(west);
+        int eastCell = longitudeCell(east);
+        // number of longitude cells from west to east, going east
+        int longitudeCellCount = west <= east
+                ? eastCell - westCell + 1
+                : LONGITUDE_CELLS - westCell + eastCell + 1;
+
+        for (int latitudeCell = firstLatitudeCell; latitudeCell <= lastLatitudeCell; latitudeCell++) {
+            for (int i = 0; i < Math.min(longitudeCellCount, LONGITUDE_CELLS); i++) {
+                int cell = latitudeCell * LONGITUDE_CELLS + (westCell + i) % LONGITUDE_CELLS;
+                for (int position = mCellStarts[cell]; position < mCellStarts[cell + 1]; position++) {
+                    double latitude = mLatitudes[position];
+                    double longitude = mLongitudes[position];
+                    boolean withinLongitudes = west <= east
+                            ? longitude >= west && longitude <= east
+                            : longitude >= west || longitude <= east;
+                    if (latitude >= south && latitude <= north && withinLongitudes) {
+                        found(mRows[position], 0);
+                    }
+                }
+            }
+        }
+
+        int[] rows = Arrays.copyOf(mFoundRows, mFoundCount);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * @param latitude  of the point in degrees
+     * @param longitude of the point in degrees
+     * @param count     is the maximum number of earthquakes to return
+     * @return catalog rows of the earthquakes closest to the point, closest first
+     */
+    public int[] nearest(double latitude, double longitude, int count) {
+        if (count <= 0 || mRows.length == 0) {
+            return new int[0];
+        }
+
+        // grow the radius until it holds enough earthquakes, or the whole globe
+        double radiusKm = NEAREST_START_RADIUS_KM;
+        collectWithinRadius(latitude, longitude, radiusKm);
+        while (mFoundCount < count && radiusKm < MAX_DISTANCE_KM) {
+            radiusKm *= 2;
+            collectWithinRadius(latitude, longitude, radiusKm);
+        }
+
+        // sort the found rows by distance, through their positions in the scratch buffers
+        Integer[] order = new Integer[mFoundCount];
+        for (int i = 0; i < mFoundCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return Double.compare(mFoundDistances[first], mFoundDistances[second]);
+            }
+        });
+
+        int[] rows = new int[Math.min(count, mFoundCount)];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = mFoundRows[order[i]];
+        }
+        return rows;
+    }
+
+    /**
+     * Great-circle distance between two points, with the haversine formula.
+     *
+     * @return distance in kilometers
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeDelta = Math.toRadians(latitude2 - latitude1);
+        double longitudeDelta = Math.toRadians(longitude2 - longitude1);
+        double sinLatitude = Math.sin(latitudeDelta / 2);
+        double sinLongitude = Math.sin(longitudeDelta / 2);
+        double a = sinLatitude * sinLatitude + Math.cos(Math.toRadians(latitude1))
+                * Math.cos(Math.toRadians(latitude2)) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Helper method for {@link #withinRadius(double, double, double)} and {@link #nearest(double, double, int)}
+     * <p>
+     * collect the rows within the radius, with their distances, in the scratch buffers
+     */
+    private void collectWithinRadius(double latitude, double longitude, double radiusKm) {
+        mFoundCount = 0;
+        longitude = normalizeLongitude(longitude);
+        double angularRadius = radiusKm / EARTH_RADIUS_KM;
+        double south = latitude - Math.toDegrees(angularRadius);
+        double north = latitude + Math.toDegrees(angularRadius);
+
+        // the circle covers every longitude if it contains a pole, otherwise only a band of them
+        int firstLongitudeCell = 0;
+        int longitudeCellCount = LONGITUDE_CELLS;
+        if (south > -90 && north < 90) {
+            double sinRatio = Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude));
+            if (sinRatio < 1) {
+                double longitudeRadius = Math.toDegrees(Math.asin(sinRatio));
+                firstLongitudeCell = longitudeCell(normalizeLongitude(longitude - longitudeRadius));
+                int lastLongitudeCell = longitudeCell(normalizeLongitude(longitude + longitudeRadius));
+                longitudeCellCount = (lastLongitudeCell - firstLongitudeCell + LONGITUDE_CELLS) % LONGITUDE_CELLS + 1;
+            }
+        }
+
+        int firstLatitudeCell = latitudeCell(Math.max(south, -90));
+        int lastLatitudeCell = latitudeCell(Math.min(north, 90));
+        for (int latitudeCell = firstLatitudeCell; latitudeCell <= lastLatitudeCell; latitudeCell++) {
+            for (int i = 0; i < longitudeCellCount; i++) {
+                int cell = latitudeCell * LONGITUDE_CELLS + (firstLongitudeCell + i) % LONGITUDE_CELLS;
+                for (int position = mCellStarts[cell]; position < mCellStarts[cell + 1]; position++) {
+                    double distance = distanceKm(latitude, longitude, mLatitudes[position], mLongitudes[position]);
+                    if (distance <= radiusKm) {
+                        found(mRows[position], distance);
+                    }
+                }
+            }
+        }
+    }
+
+    private void found(int row, double distance) {
+        if (mFoundCount == mFoundRows.length) {
+            mFoundRows = Arrays.copyOf(mFoundRows, mFoundCount * 2);
+            mFoundDistances = Arrays.copyOf(mFoundDistances, mFoundCount * 2);
+        }
+        mFoundRows[mFoundCount] = row;
+        mFoundDistances[mFoundCount] = distance;
+        mFoundCount++;
+    }
+
+    private static int latitudeCell(double latitude) {
+        return Math.max(0, Math.min(LATITUDE_CELLS - 1, (int) Math.floor(latitude + 90)));
+    }
+
+    private static int longitudeCell(double longitude) {
+        return Math.min(LONGITUDE_CELLS - 1, (int) Math.floor(longitude + 180));
+    }
+
+    /**
+     * @return the same longitude within [-180, 180)
+     */
+    private static double normalizeLongitude(double longitude) {
+        if (longitude >= -180 && longitude < 180) {
+            return longitude;
+        }
+        double normalized = (longitude + 180) % 360;
+        return (normalized < 0 ? normalized + 360 : normalized) - 180;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeDetails;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link EarthquakeChanges} class contains static helper methods that apply the events
+ * changed since a sync to the list of a query, without reading the list again.
+ */
+public final class EarthquakeChanges {
+
+    /**
+     * USGS "status" of the events deleted from the catalog, returned with "includedeleted=true"
+     */
+    public static final String STATUS_DELETED = "deleted";
+
+    /**
+     * private constructor no need to construct new {@link EarthquakeChanges} object
+     */
+    private EarthquakeChanges() {
+    }
+
+    /**
+     * @param earthquake is a new or revised earthquake
+     * @return true if USGS deleted the event, it has to be removed wherever it is kept
+     */
+    public static boolean isDeleted(Earthquake earthquake) {
+        EarthquakeDetails details = earthquake.getDetails();
+        return details != null && STATUS_DELETED.equals(details.getStatus());
+    }
+
+    /**
+     * @param earthquake   is a new or revised earthquake
+     * @param minMagnitude is the smallest magnitude of the query
+     * @param maxMagnitude is the largest magnitude of the query
+     * @param windowStart  is the unix time in milliseconds the window of the query starts at
+     * @return true if the earthquake is a result of the query
+     */
+    public static boolean matches(Earthquake earthquake, double minMagnitude, double maxMagnitude,
+                                  long windowStart) {
+        return !isDeleted(earthquake)
+                && earthquake.getMagnitude() >= minMagnitude && earthquake.getMagnitude() <= maxMagnitude
+                && earthquake.getTimeInMilliseconds() >= windowStart;
+    }
+
+    /**
+     * Merge the changes into the sorted list of a query by event id. Revised events move to
+     * their new position, or leave the list when they no longer match the query or have been
+     * deleted, and the events that have left the window of the query are dropped.
+     *
+     * @param earthquakes  is the list to update, sorted by the given order
+     * @param changes      are the new and revised earthquakes, matching the query or not
+     * @param minMagnitude is the smallest magnitude of the query
+     * @param maxMagnitude is the largest magnitude of the query
+     * @param windowStart  is the unix time in milliseconds the window of the query starts at
+     * @param order        is the order of the list
+     * @param complete     is false if the list is only the first pages of the query
+     * @return earthquakes removed from the list, without the revised ones put back
+     */
+    public static List<Earthquake> mergeInto(List<Earthquake> earthquakes, List<Earthquake> changes,
+                                             double minMagnitude, double maxMagnitude, long windowStart,
+                                             Comparator<Earthquake> order, boolean complete) {
+        List<Earthquake> matchingChanges = new ArrayList<>(changes.size());
+        Set<String> leavingIds = new HashSet<>();
+        for (Earthquake change : changes) {
+            if (matches(change, minMagnitude, maxMagnitude, windowStart)) {
+                matchingChanges.add(change);
+            } else {
+                leavingIds.add(change.getId());
+            }
+        }
+
+        List<Earthquake> removed = new ArrayList<>();
+        for (int i = earthquakes.size() - 1; i >= 0; i--) {
+            Earthquake earthquake = earthquakes.get(i);
+            if (leavingIds.contains(earthquake.getId()) || earthquake.getTimeInMilliseconds() < windowStart) {
+                removed.add(earthquakes.remove(i));
+            }
+        }
+        LiveFeedPoller.mergeInto(earthquakes, matchingChanges, order, complete);
+        return removed;
+    }
+}
@@ -0,0 +1,473 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeDetails;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link EarthquakeCsvParser} reads a USGS CSV response ("format=csv") straight from the byte
+ * stream, the compact alternative to {@link EarthquakeJsonParser} for large result sets.
+ * <p>
+ * The columns are found by name in the header line. Only the columns an {@link Earthquake}
+ * needs are decoded, the others are skipped without being copied, and each
+ * {@link Earthquake} is created as soon as its line has been read. The CSV has no event
+ * page URL, it is made from the event id the way USGS makes it. Of the extended properties
+ * it only has the status, copied as raw bytes, see {@link EarthquakeDetails}.
+ * The read buffer and the scratch buffers are reused between calls, so one parser
+ * instance should be kept per thread.
+ */
+public final class EarthquakeCsvParser {
+
+    /**
+     * event page of an earthquake is this URL followed by its id
+     */
+    static final String EVENT_PAGE_URL = "https://earthquake.usgs.gov/earthquakes/eventpage/";
+
+    /**
+     * default size of the read buffer in bytes
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * end of the stream, returned by {@link #readField(boolean)} instead of a delimiter
+     */
+    private static final int END = -1;
+
+    /**
+     * powers of ten that are exactly representable as double, used by the number fast path
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * the columns we are interested in, in the order of {@link #COLUMN_NAMES}
+     */
+    private static final int SKIPPED = 0;
+    private static final int TIME = 1;
+    private static final int LATITUDE = 2;
+    private static final int LONGITUDE = 3;
+    private static final int DEPTH = 4;
+    private static final int MAG = 5;
+    private static final int ID = 6;
+    private static final int UPDATED = 7;
+    private static final int PLACE = 8;
+    private static final int STATUS = 9;
+
+    private static final String[] COLUMN_NAMES = {
+            null, "time", "latitude", "longitude", "depth", "mag", "id", "updated", "place", "status"
+    };
+
+    private final byte[] mBuffer;
+    private int mPosition;
+    private int mLimit;
+    private long mBufferOffset;
+    private InputStream mInput;
+
+    /**
+     * column of each field of a line, from the header line
+     */
+    private int[] mColumns = new int[32];
+    private int mColumnCount;
+
+    /**
+     * scratch buffer of the field being read, unquoted
+     */
+    private byte[] mField = new byte[128];
+    private int mFieldLength;
+
+    /**
+     * fields of the line currently being read
+     */
+    private String mId;
+    private double mMagnitude;
+    private String mPlace;
+    private long mTime;
+    private boolean mHasTime;
+    private long mUpdatedTime;
+    private double mLongitude;
+    private double mLatitude;
+    private double mDepth;
+
+    /**
+     * keeps the raw status of the lines
+     */
+    private final EarthquakeDetails.Recorder mRecorder = new EarthquakeDetails.Recorder();
+
+    /**
+     * Construct a new {@link EarthquakeCsvParser} with the default buffer size.
+     */
+    public EarthquakeCsvParser() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Construct a new {@link EarthquakeCsvParser}.
+     *
+     * @param bufferSize is the size in bytes of the read buffer
+     */
+    public EarthquakeCsvParser(int bufferSize) {
+        mBuffer = new byte[bufferSize];
+    }
+
+    /**
+     * Parse the given CSV stream into a list of {@link Earthquake} objects.
+     *
+     * @param inputStream is the CSV response stream, it is not closed by this method
+     * @return list of {@link Earthquake} objects in document order
+     */
+    public List<Earthquake> parse(InputStream inputStream) throws IOException {
+        final List<Earthquake> earthquakeList = new ArrayList<>();
+        parse(inputStream, new EarthquakeJsonParser.Callback() {
+            @Override
+            public void onEarthquake(Earthquake earthquake) {
+                earthquakeList.add(earthquake);
+            }
+        });
+        return earthquakeList;
+    }
+
+    /**
+     * Parse the given CSV stream and hand every {@link Earthquake} to the callback as soon
+     * as its line has been read.
+     *
+     * @param inputStream is the CSV response stream, it is not closed by this method
+     * @param callback    receives the parsed earthquakes, the same callback as for GeoJSON
+     * @return number of earthquakes delivered to the callback
+     * @throws IOException if the header has no "id", "time" or "mag" column, or a line is malformed
+     */
+    public int parse(InputStream inputStream, EarthquakeJsonParser.Callback callback) throws IOException {
+        mInput = inputStream;
+        mPosition = 0;
+        mLimit = 0;
+        mBufferOffset = 0;
+        try {
+            if (!readHeader()) {
+                // no result, not even the header
+                return 0;
+            }
+            int count = 0;
+            int delimiter;
+            do {
+                delimiter = readLine();
+                if (deliver(callback)) {
+                    count++;
+                }
+            } while (delimiter != END);
+            return count;
+        } finally {
+            mInput = null;
+        }
+    }
+
+    /**
+     * map the fields of the header line to the columns we are interested in
+     *
+     * @return false if the stream is empty
+     */
+    private boolean readHeader() throws IOException {
+        if (mLimit == 0 && !fill()) {
+            return false;
+        }
+        mColumnCount = 0;
+        boolean[] found = new boolean[COLUMN_NAMES.length];
+        int delimiter;
+        do {
+            delimiter = readField(true);
+            String name = new String(mField, 0, mFieldLength, UTF_8).trim();
+            int column = SKIPPED;
+            for (int i = 1; i < COLUMN_NAMES.length; i++) {
+                if (!found[i] && COLUMN_NAMES[i].equals(name)) {
+                    column = i;
+                    found[i] = true;
+                    break;
+                }
+            }
+            if (mColumnCount == mColumns.length) {
+                int[] columns = new int[mColumnCount * 2];
+                System.arraycopy(mColumns, 0, columns, 0, mColumnCount);
+                mColumns = columns;
+            }
+            mColumns[mColumnCount++] = column;
+        } while (delimiter == ',');
+
+        // a line without id, magnitude or time can not be displayed
+        if (!found[ID] || !found[TIME] || !found[MAG]) {
+            throw syntaxError("Expected the id, time and mag columns");
+        }
+        return true;
+    }
+
+    /**
+     * read the fields of one line into the fields of the current earthquake
+     *
+     * @return the delimiter ending the line, '\n' or {@link #END}
+     */
+    private int readLine() throws IOException {
+        mId = null;
+        mMagnitude = Double.NaN;
+        mPlace = null;
+        mHasTime = false;
+        mUpdatedTime = 0;
+        mLongitude = Double.NaN;
+        mLatitude = Double.NaN;
+        mDepth = Double.NaN;
+        mRecorder.begin();
+
+        int index = 0;
+        int delimiter;
+        do {
+            int column = index < mColumnCount ? mColumns[index] : SKIPPED;
+            delimiter = readField(column != SKIPPED);
+            if (column != SKIPPED && mFieldLength > 0) {
+                readColumn(column);
+            }
+            index++;
+        } while (delimiter == ',');
+        return delimiter;
+    }
+
+    /**
+     * decode the field just read as the given column
+     */
+    private void readColumn(int column) throws IOException {
+        switch (column) {
+            case TIME:
+                mTime = parseTime();
+                mHasTime = true;
+                break;
+            case UPDATED:
+                mUpdatedTime = parseTime();
+                break;
+            case LATITUDE:
+                mLatitude = parseDouble();
+                break;
+            case LONGITUDE:
+                mLongitude = parseDouble();
+                break;
+            case DEPTH:
+                mDepth = parseDouble();
+                break;
+            case MAG:
+                mMagnitude = parseDouble();
+                break;
+            case ID:
+                mId = new String(mField, 0, mFieldLength, UTF_8);
+                break;
+            case PLACE:
+                mPlace = new String(mField, 0, mFieldLength, UTF_8);
+                break;
+            case STATUS:
+                mRecorder.beginValue(EarthquakeDetails.STATUS);
+                mRecorder.append(mField, 0, mFieldLength);
+                mRecorder.endValue();
+                break;
+        }
+    }
+
+    /**
+     * deliver the earthquake of the line just read
+     *
+     * @return true if an {@link Earthquake} was delivered for this line
+     */
+    private boolean deliver(EarthquakeJsonParser.Callback callback) {
+        // a line without id, magnitude or time can not be displayed, nor can an empty line
+        if (mId == null || Double.isNaN(mMagnitude) || !mHasTime) {
+            mRecorder.discard();
+            return false;
+        }
+
+        Earthquake earthquake = new Earthquake(mId, mMagnitude, mPlace == null ? "" : mPlace,
+                mTime, mUpdatedTime, EVENT_PAGE_URL + mId, mLatitude, mLongitude, mDepth);
+        mRecorder.attach(earthquake);
+        callback.onEarthquake(earthquake);
+        return true;
+    }
+
+    /**
+     * Read one field, unquoted, into {@link #mField} when it is kept. A carriage return
+     * outside of quotes is ignored, so CRLF line breaks end a line too.
+     *
+     * @param keep is false to skip the field without copying it, only its length is known
+     * @return the delimiter ending the field: ',', '\n' or {@link #END}
+     */
+    private int readField(boolean keep) throws IOException {
+        int length = 0;
+        boolean quoted = false;
+        while (true) {
+            if (mPosition == mLimit && !fill()) {
+                if (quoted) {
+                    throw syntaxError("Unterminated quoted field");
+                }
+                mFieldLength = length;
+                return END;
+            }
+            int c = mBuffer[mPosition++];
+            if (quoted) {
+                if (c == '"') {
+                    if (mPosition == mLimit && !fill()) {
+                        quoted = false;
+                        continue;
+                    }
+                    if (mBuffer[mPosition] != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                    // an escaped quote
+                    mPosition++;
+                }
+            } else if (c == ',' || c == '\n') {
+                mFieldLength = length;
+                return c;
+            } else if (c == '\r') {
+                continue;
+            } else if (c == '"' && length == 0) {
+                quoted = true;
+                continue;
+            }
+            if (keep) {
+                if (length == mField.length) {
+                    byte[] field = new byte[length * 2];
+                    System.arraycopy(mField, 0, field, 0, length);
+                    mField = field;
+                }
+                mField[length] = (byte) c;
+            }
+            length++;
+        }
+    }
+
+    /**
+     * @return the field as a double, or NaN if it is not a number
+     */
+    private double parseDouble() {
+        byte[] field = mField;
+        int length = mFieldLength;
+        int i = 0;
+        boolean negative = field[0] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; i < length; i++) {
+            int c = field[i];
+            if (c >= '0' && c <= '9' && digits < 15) {
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                // exponents and long mantissas take the slow path
+                break;
+            }
+        }
+
+        if (i == length && i > (negative ? 1 : 0) && -exponent < POWERS_OF_TEN.length) {
+            // both operands are exact, so the quotient is correctly rounded
+            double value = mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(field, 0, length, UTF_8));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Decode a UTC time of USGS, "2017-03-08T08:24:30.440Z", without a date format.
+     * The fraction of seconds may have any number of digits, and the zone may be missing.
+     *
+     * @return the field as unix time in milliseconds
+     */
+    private long parseTime() throws IOException {
+        byte[] field = mField;
+        if (mFieldLength < 19 || field[4] != '-' || field[7] != '-' || field[10] != 'T'
+                || field[13] != ':' || field[16] != ':') {
+            throw syntaxError("Malformed time");
+        }
+        int year = parseDigits(0, 4);
+        int month = parseDigits(5, 2);
+        int day = parseDigits(8, 2);
+        int hour = parseDigits(11, 2);
+        int minute = parseDigits(14, 2);
+        int second = parseDigits(17, 2);
+
+        int millis = 0;
+        int i = 19;
+        if (i < mFieldLength && field[i] == '.') {
+            int scale = 100;
+            for (i++; i < mFieldLength && field[i] >= '0' && field[i] <= '9'; i++) {
+                millis += (field[i] - '0') * scale;
+                scale /= 10;
+            }
+        }
+        if (i < mFieldLength && !(i == mFieldLength - 1 && field[i] == 'Z')) {
+            throw syntaxError("Expected a UTC time");
+        }
+
+        long days = daysFromCivil(year, month, day);
+        return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L + millis;
+    }
+
+    private int parseDigits(int start, int count) throws IOException {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = mField[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw syntaxError("Malformed time");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @return number of days from 1970-01-01 to the given day of the proleptic Gregorian calendar
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        // years start in March, so the leap day is the last day of the year
+        year -= month <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * refill the read buffer
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        int read = mInput.read(mBuffer, 0, mBuffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        mBufferOffset += mLimit;
+        mPosition = 0;
+        mLimit = read;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at byte " + (mBufferOffset + mPosition));
+    }
+}
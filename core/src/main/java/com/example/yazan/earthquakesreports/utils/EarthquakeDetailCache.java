@@ -0,0 +1,175 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link EarthquakeDetailCache} keeps the detailed earthquakes of the detail screen, with
+ * their {@link com.example.yazan.earthquakesreports.data.EarthquakeDetails}, so most taps
+ * on a row open without a request.
+ * <p>
+ * An earthquake of a GeoJSON page already has its details and is cached as is. The others,
+ * i.e. read from the store or fetched as CSV, are fetched with the "eventid" query of
+ * their event. {@link #prefetch(List)} fetches the details of the visible rows one at a time
+ * on a low priority thread, and forgets the rows scrolled away before their turn. A tap on
+ * a row being prefetched shares its request, see {@link QueryUtils#fetchEarthquakeData(String)}.
+ * <p>
+ * The least recently used earthquake is evicted once the cache is full. Earthquakes of the
+ * same response share the chunk of their raw details, so a full cache holds a few chunks.
+ */
+public final class EarthquakeDetailCache {
+
+    /**
+     * number of earthquakes kept by default, a few screens of rows
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    /**
+     * fetches the prefetched details one at a time, below the priority of the list
+     */
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "earthquake-detail-prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private final String mQueryUrl;
+
+    private final Map<String, Earthquake> mEntries;
+
+    /**
+     * ids of the visible rows still to prefetch, guarded by this
+     */
+    private Set<String> mWanted = new HashSet<>();
+
+    /**
+     * ids with a prefetch waiting in the executor, guarded by this
+     */
+    private final Set<String> mQueued = new HashSet<>();
+
+    /**
+     * Construct a new {@link EarthquakeDetailCache} object.
+     *
+     * @param queryUrl   is the USGS query URL without parameters
+     * @param maxEntries is the number of earthquakes to keep
+     */
+    public EarthquakeDetailCache(String queryUrl, final int maxEntries) {
+        mQueryUrl = queryUrl;
+        mEntries = new LinkedHashMap<String, Earthquake>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Earthquake> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param id is the USGS event id
+     * @return the cached earthquake with its details, or null
+     */
+    public synchronized Earthquake get(String id) {
+        return mEntries.get(id);
+    }
+
+    /**
+     * @param earthquake is an earthquake with its details
+     */
+    public synchronized void put(Earthquake earthquake) {
+        mEntries.put(earthquake.getId(), earthquake);
+    }
+
+    /**
+     * Return the earthquake with its details, from the cache or from the network. This must
+     * not be called on the main thread.
+     *
+     * @param id           is the USGS event id
+     * @param cancellation stops the request when cancelled, or null
+     * @return the earthquake with its details, or null if the request failed or was cancelled
+     */
+    public Earthquake fetch(String id, FetchCancellation cancellation) {
+        Earthquake earthquake = get(id);
+        if (earthquake != null) {
+            return earthquake;
+        }
+
+        List<Earthquake> earthquakes = QueryUtils.fetchEarthquakeData(buildEventUrl(id), cancellation);
+        if (earthquakes == null) {
+            return null;
+        }
+        for (Earthquake fetched : earthquakes) {
+            // a deleted event has no feature
+            if (fetched.getId().equals(id) && fetched.getDetails() != null) {
+                put(fetched);
+                return fetched;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fetch the details of the visible rows in the background, the rows of an earlier call
+     * that are not visible anymore are not fetched.
+     *
+     * @param visibleEarthquakes are the earthquakes of the visible rows
+     */
+    public synchronized void prefetch(List<Earthquake> visibleEarthquakes) {
+        mWanted = new HashSet<>();
+        for (Earthquake earthquake : visibleEarthquakes) {
+            final String id = earthquake.getId();
+            if (mEntries.containsKey(id)) {
+                continue;
+            }
+            // a row of a GeoJSON page needs no request
+            if (earthquake.getDetails() != null) {
+                mEntries.put(id, earthquake);
+                continue;
+            }
+            mWanted.add(id);
+            if (mQueued.add(id)) {
+                PREFETCH_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (takeWanted(id)) {
+                            fetch(id, null);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Drop every cached earthquake and the pending prefetches.
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mWanted = new HashSet<>();
+    }
+
+    /**
+     * @return URL of the single event query of the id, GeoJSON for its details
+     */
+    String buildEventUrl(String id) {
+        return mQueryUrl + "?format=geojson&eventid=" + id;
+    }
+
+    /**
+     * @return true if the prefetch of the id is still wanted
+     */
+    private synchronized boolean takeWanted(String id) {
+        mQueued.remove(id);
+        return mWanted.remove(id) && !mEntries.containsKey(id);
+    }
+}
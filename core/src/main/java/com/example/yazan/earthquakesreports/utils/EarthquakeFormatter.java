@@ -0,0 +1,148 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeDisplayModel;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link EarthquakeFormatter} builds the {@link EarthquakeDisplayModel} of earthquakes.
+ * <p>
+ * The date formatters and the magnitude color table are created once per formatter.
+ * A formatter is not thread safe, each thread must use its own. The colors of the app
+ * are resolved by {@link MagnitudeColors}.
+ */
+public final class EarthquakeFormatter {
+
+    private static final String LOCATION_SEPARATOR = "of";
+
+    /**
+     * offset shown when the location has no "of" part
+     */
+    private static final String DEFAULT_LOCATION_OFFSET = "near the";
+
+    /**
+     * number of magnitude circle colors, one per magnitude from 0 to 9 and one for 10+
+     */
+    public static final int MAGNITUDE_COLOR_COUNT = 11;
+
+    private final SimpleDateFormat mDateFormat = new SimpleDateFormat("yyyy.MM.dd");
+    private final SimpleDateFormat mTimeFormat = new SimpleDateFormat("h:mm a");
+    private final Date mDate = new Date();
+
+    /**
+     * magnitude circle colors, indexed by {@link #getMagnitudeColorIndex(double)}
+     */
+    private final int[] mMagnitudeColors;
+
+    /**
+     * Construct a new {@link EarthquakeFormatter} with the given magnitude colors.
+     *
+     * @param magnitudeColors are the {@link #MAGNITUDE_COLOR_COUNT} colors indexed by
+     *                        {@link #getMagnitudeColorIndex(double)}
+     */
+    public EarthquakeFormatter(int[] magnitudeColors) {
+        if (magnitudeColors.length != MAGNITUDE_COLOR_COUNT) {
+            throw new IllegalArgumentException("Expected " + MAGNITUDE_COLOR_COUNT + " magnitude colors");
+        }
+        mMagnitudeColors = magnitudeColors.clone();
+    }
+
+    /**
+     * Attach a display model to every earthquake of the list that has none yet.
+     *
+     * @param earthquakeList is the list of earthquakes about to be shown, may be null
+     * @return the given list
+     */
+    public List<Earthquake> prepare(List<Earthquake> earthquakeList) {
+        if (earthquakeList != null) {
+            for (Earthquake earthquake : earthquakeList) {
+                if (earthquake.getDisplayModel() == null) {
+                    earthquake.setDisplayModel(format(earthquake));
+                }
+            }
+        }
+        return earthquakeList;
+    }
+
+    /**
+     * @param earthquake is the earthquake to display
+     * @return the texts and color of the earthquake row
+     */
+    public EarthquakeDisplayModel format(Earthquake earthquake) {
+        String originalLocation = earthquake.getLocation();
+        String locationOffset;
+        String primaryLocation;
+
+        //check if the originalLocation contains "of"
+        int primaryStart = getPrimaryLocationStart(originalLocation);
+        if (primaryStart > 0) {
+            locationOffset = originalLocation.substring(0, primaryStart);
+            primaryLocation = originalLocation.substring(primaryStart);
+        } else {
+            locationOffset = DEFAULT_LOCATION_OFFSET;
+            primaryLocation = originalLocation;
+        }
+
+        long time = earthquake.getTimeInMilliseconds();
+
+        return new EarthquakeDisplayModel(
+                String.valueOf(earthquake.getMagnitude()),
+                getMagnitudeColor(earthquake.getMagnitude()),
+                locationOffset,
+                primaryLocation,
+                formatDate(time),
+                formatTime(time));
+    }
+
+    /**
+     * @param timeInMilliseconds is the unix time of the earthquake
+     * @return formatted date (i.e. "2016.07.04")
+     */
+    public String formatDate(long timeInMilliseconds) {
+        mDate.setTime(timeInMilliseconds);
+        return mDateFormat.format(mDate);
+    }
+
+    /**
+     * @param timeInMilliseconds is the unix time of the earthquake
+     * @return formatted time (i.e. "4:30 PM")
+     */
+    public String formatTime(long timeInMilliseconds) {
+        mDate.setTime(timeInMilliseconds);
+        return mTimeFormat.format(mDate);
+    }
+
+    /**
+     * @param magnitude is the earthquake magnitude
+     * @return background color of the magnitude circle
+     */
+    public int getMagnitudeColor(double magnitude) {
+        return mMagnitudeColors[getMagnitudeColorIndex(magnitude)];
+    }
+
+    /**
+     * @param location is the USGS place of the earthquake (i.e. "47km SSW of Khalatse, India")
+     * @return index where the primary location starts, right after the first "of",
+     * or 0 if the location has no offset part
+     */
+    public static int getPrimaryLocationStart(String location) {
+        int separatorIndex = location.indexOf(LOCATION_SEPARATOR);
+        return separatorIndex >= 0 ? separatorIndex + LOCATION_SEPARATOR.length() : 0;
+    }
+
+    /**
+     * @param magnitude is the earthquake magnitude
+     * @return index of the magnitude circle color, the floor of the magnitude
+     * clamped to 0..10
+     */
+    public static int getMagnitudeColorIndex(double magnitude) {
+        int magnitudeFloor = (int) Math.floor(magnitude);
+        if (magnitudeFloor < 0) {
+            return 0;
+        }
+        return Math.min(magnitudeFloor, MAGNITUDE_COLOR_COUNT - 1);
+    }
+}
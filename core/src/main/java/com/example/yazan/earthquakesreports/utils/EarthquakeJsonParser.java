@@ -0,0 +1,720 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeDetails;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link EarthquakeJsonParser} reads a USGS GeoJSON response straight from the byte stream,
+ * a FeatureCollection or the single Feature of an "eventid" query.
+ * <p>
+ * Only the event id, the point geometry and the fields an {@link Earthquake} needs are decoded, everything else is skipped
+ * without being materialized, and each {@link Earthquake} is created as soon as its
+ * feature has been read. The extended properties of the details are only copied as raw
+ * bytes, see {@link EarthquakeDetails}. The read buffer and the scratch buffers are reused between
+ * calls, so one parser instance should be kept per thread.
+ */
+public final class EarthquakeJsonParser {
+
+    /**
+     * Receives every {@link Earthquake} as soon as its feature has been read.
+     */
+    public interface Callback {
+        void onEarthquake(Earthquake earthquake);
+    }
+
+    /**
+     * default size of the read buffer in bytes
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * powers of ten that are exactly representable as double, used by the number fast path
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * keys of the GeoJSON members we are interested in
+     */
+    private static final byte[] KEY_FEATURES = ascii("features");
+    private static final byte[] KEY_ID = ascii("id");
+    private static final byte[] KEY_PROPERTIES = ascii("properties");
+    private static final byte[] KEY_MAG = ascii("mag");
+    private static final byte[] KEY_PLACE = ascii("place");
+    private static final byte[] KEY_TIME = ascii("time");
+    private static final byte[] KEY_UPDATED = ascii("updated");
+    private static final byte[] KEY_URL = ascii("url");
+    private static final byte[] KEY_FELT = ascii("felt");
+    private static final byte[] KEY_TSUNAMI = ascii("tsunami");
+    private static final byte[] KEY_ALERT = ascii("alert");
+    private static final byte[] KEY_SIG = ascii("sig");
+    private static final byte[] KEY_STATUS = ascii("status");
+    private static final byte[] KEY_GEOMETRY = ascii("geometry");
+    private static final byte[] KEY_COORDINATES = ascii("coordinates");
+
+    private final byte[] mBuffer;
+    private int mPosition;
+    private int mLimit;
+    private long mBufferOffset;
+    private InputStream mInput;
+
+    /**
+     * scratch buffers reused for keys, strings and numbers
+     */
+    private byte[] mKey = new byte[32];
+    private int mKeyLength;
+    private char[] mChars = new char[128];
+    private final char[] mNumber = new char[64];
+
+    /**
+     * result of the last {@link #readNumber()} call
+     */
+    private long mLongValue;
+    private boolean mIsLong;
+
+    /**
+     * fields of the feature currently being read
+     */
+    private String mId;
+    private double mMagnitude;
+    private String mPlace;
+    private long mTime;
+    private boolean mHasTime;
+    private long mUpdatedTime;
+    private String mUrl;
+    private double mLongitude;
+    private double mLatitude;
+    private double mDepth;
+
+    /**
+     * keeps the raw extended properties of the features
+     */
+    private final EarthquakeDetails.Recorder mRecorder = new EarthquakeDetails.Recorder();
+
+    /**
+     * Construct a new {@link EarthquakeJsonParser} with the default buffer size.
+     */
+    public EarthquakeJsonParser() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Construct a new {@link EarthquakeJsonParser}.
+     *
+     * @param bufferSize is the size in bytes of the read buffer
+     */
+    public EarthquakeJsonParser(int bufferSize) {
+        mBuffer = new byte[bufferSize];
+    }
+
+    /**
+     * Parse the given GeoJSON stream into a list of {@link Earthquake} objects.
+     *
+     * @param inputStream is the GeoJSON response stream, it is not closed by this method
+     * @return list of {@link Earthquake} objects in document order
+     */
+    public List<Earthquake> parse(InputStream inputStream) throws IOException {
+        final List<Earthquake> earthquakeList = new ArrayList<>();
+        parse(inputStream, new Callback() {
+            @Override
+            public void onEarthquake(Earthquake earthquake) {
+                earthquakeList.add(earthquake);
+            }
+        });
+        return earthquakeList;
+    }
+
+    /**
+     * Parse the given GeoJSON stream and hand every {@link Earthquake} to the callback
+     * as soon as its feature has been read.
+     *
+     * @param inputStream is the GeoJSON response stream, it is not closed by this method
+     * @param callback    receives the parsed earthquakes
+     * @return number of earthquakes delivered to the callback
+     */
+    public int parse(InputStream inputStream, Callback callback) throws IOException {
+        mInput = inputStream;
+        mPosition = 0;
+        mLimit = 0;
+        mBufferOffset = 0;
+        try {
+            if (nextNonWhitespace() != '{') {
+                throw syntaxError("Expected a GeoJSON object");
+            }
+            // a FeatureCollection, or the single Feature of an "eventid" query
+            int count = 0;
+            boolean collection = false;
+            beginFeature();
+            while (nextKey()) {
+                if (keyEquals(KEY_FEATURES) && peekNonWhitespace() == '[') {
+                    if (!collection) {
+                        collection = true;
+                        mRecorder.discard();
+                    }
+                    count += readFeatures(callback);
+                } else if (collection || !readFeatureMember()) {
+                    skipValue();
+                }
+            }
+            if (!collection && endFeature(callback)) {
+                count++;
+            }
+            return count;
+        } finally {
+            mInput = null;
+        }
+    }
+
+    /**
+     * read every element of the "features" array
+     */
+    private int readFeatures(Callback callback) throws IOException {
+        nextNonWhitespace();
+        int count = 0;
+        while (nextElement()) {
+            if (peekNonWhitespace() != '{') {
+                skipValue();
+                continue;
+            }
+            if (readFeature(callback)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * read a single feature object and deliver it
+     *
+     * @return true if an {@link Earthquake} was delivered for this feature
+     */
+    private boolean readFeature(Callback callback) throws IOException {
+        beginFeature();
+        nextNonWhitespace();
+        while (nextKey()) {
+            if (!readFeatureMember()) {
+                skipValue();
+            }
+        }
+        return endFeature(callback);
+    }
+
+    /**
+     * reset the fields of the feature about to be read
+     */
+    private void beginFeature() {
+        mId = null;
+        mMagnitude = Double.NaN;
+        mPlace = null;
+        mHasTime = false;
+        mUpdatedTime = 0;
+        mUrl = null;
+        mLongitude = Double.NaN;
+        mLatitude = Double.NaN;
+        mDepth = Double.NaN;
+        mRecorder.begin();
+    }
+
+    /**
+     * read the value of the current member of a feature, if it is one we are interested in
+     *
+     * @return false if the value has not been read
+     */
+    private boolean readFeatureMember() throws IOException {
+        if (keyEquals(KEY_PROPERTIES) && peekNonWhitespace() == '{') {
+            readProperties();
+        } else if (keyEquals(KEY_GEOMETRY) && peekNonWhitespace() == '{') {
+            readGeometry();
+        } else if (keyEquals(KEY_ID)) {
+            mId = readStringOrNull();
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * deliver the feature that has been read
+     *
+     * @return true if an {@link Earthquake} was delivered for this feature
+     */
+    private boolean endFeature(Callback callback) {
+        // a feature without id, magnitude or time can not be displayed
+        if (mId == null || Double.isNaN(mMagnitude) || !mHasTime) {
+            mRecorder.discard();
+            return false;
+        }
+
+        Earthquake earthquake = new Earthquake(mId, mMagnitude,
+                mPlace == null ? "" : mPlace, mTime, mUpdatedTime, mUrl == null ? "" : mUrl,
+                mLatitude, mLongitude, mDepth);
+        mRecorder.attach(earthquake);
+        callback.onEarthquake(earthquake);
+        return true;
+    }
+
+    /**
+     * read the "properties" object of a feature
+     */
+    private void readProperties() throws IOException {
+        nextNonWhitespace();
+        while (nextKey()) {
+            if (keyEquals(KEY_MAG)) {
+                mMagnitude = readDouble();
+            } else if (keyEquals(KEY_PLACE)) {
+                mPlace = readStringOrNull();
+            } else if (keyEquals(KEY_TIME)) {
+                if (readNumberOrNull()) {
+                    mTime = mIsLong ? mLongValue : (long) Double.longBitsToDouble(mLongValue);
+                    mHasTime = true;
+                }
+            } else if (keyEquals(KEY_UPDATED)) {
+                if (readNumberOrNull()) {
+                    mUpdatedTime = mIsLong ? mLongValue : (long) Double.longBitsToDouble(mLongValue);
+                }
+            } else if (keyEquals(KEY_URL)) {
+                mUrl = readStringOrNull();
+            } else if (keyEquals(KEY_FELT)) {
+                recordValue(EarthquakeDetails.FELT);
+            } else if (keyEquals(KEY_TSUNAMI)) {
+                recordValue(EarthquakeDetails.TSUNAMI);
+            } else if (keyEquals(KEY_ALERT)) {
+                recordValue(EarthquakeDetails.ALERT);
+            } else if (keyEquals(KEY_SIG)) {
+                recordValue(EarthquakeDetails.SIGNIFICANCE);
+            } else if (keyEquals(KEY_STATUS)) {
+                recordValue(EarthquakeDetails.STATUS);
+            } else {
+                skipValue();
+            }
+        }
+    }
+
+    /**
+     * copy the raw bytes of a number or a string value of an extended property, without
+     * decoding it, null and other values are skipped
+     */
+    private void recordValue(int tag) throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '"') {
+            mRecorder.beginValue(tag);
+            while ((c = readByte()) != '"') {
+                if (c == '\\') {
+                    // the extended properties have no escapes, drop a value that has some
+                    mRecorder.cancelValue();
+                    readByte();
+                } else {
+                    mRecorder.append(c);
+                }
+            }
+            mRecorder.endValue();
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            mRecorder.beginValue(tag);
+            mRecorder.append(c);
+            while (mPosition < mLimit || fill()) {
+                c = mBuffer[mPosition];
+                if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                    break;
+                }
+                mRecorder.append(c);
+                mPosition++;
+            }
+            mRecorder.endValue();
+        } else {
+            mPosition--;
+            skipValue();
+        }
+    }
+
+    /**
+     * read the "geometry" object of a feature, a GeoJSON point [longitude, latitude, depth]
+     */
+    private void readGeometry() throws IOException {
+        nextNonWhitespace();
+        while (nextKey()) {
+            if (keyEquals(KEY_COORDINATES) && peekNonWhitespace() == '[') {
+                nextNonWhitespace();
+                int index = 0;
+                while (nextElement()) {
+                    if (index == 0) {
+                        mLongitude = readDouble();
+                    } else if (index == 1) {
+                        mLatitude = readDouble();
+                    } else if (index == 2) {
+                        mDepth = readDouble();
+                    } else {
+                        skipValue();
+                    }
+                    index++;
+                }
+            } else {
+                skipValue();
+            }
+        }
+    }
+
+    /**
+     * Move to the next member of the current object and read its key.
+     *
+     * @return false if the object has been closed
+     */
+    private boolean nextKey() throws IOException {
+        int c = nextNonWhitespace();
+        if (c == ',') {
+            c = nextNonWhitespace();
+        }
+        if (c == '}') {
+            return false;
+        }
+        if (c != '"') {
+            throw syntaxError("Expected a member name");
+        }
+        readKey();
+        if (nextNonWhitespace() != ':') {
+            throw syntaxError("Expected ':'");
+        }
+        return true;
+    }
+
+    /**
+     * Move to the next element of the current array.
+     *
+     * @return false if the array has been closed
+     */
+    private boolean nextElement() throws IOException {
+        int c = nextNonWhitespace();
+        if (c == ',') {
+            c = nextNonWhitespace();
+        }
+        if (c == ']') {
+            return false;
+        }
+        mPosition--;
+        return true;
+    }
+
+    /**
+     * read the raw bytes of a member name, the opening quote is already consumed
+     */
+    private void readKey() throws IOException {
+        int length = 0;
+        while (true) {
+            int c = readByte();
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\') {
+                c = readByte();
+            }
+            if (length == mKey.length) {
+                byte[] key = new byte[length * 2];
+                System.arraycopy(mKey, 0, key, 0, length);
+                mKey = key;
+            }
+            mKey[length++] = (byte) c;
+        }
+        mKeyLength = length;
+    }
+
+    private boolean keyEquals(byte[] key) {
+        if (mKeyLength != key.length) {
+            return false;
+        }
+        for (int i = 0; i < mKeyLength; i++) {
+            if (mKey[i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the next value as a double, or NaN if it is null or not a number
+     */
+    private double readDouble() throws IOException {
+        if (!readNumberOrNull()) {
+            return Double.NaN;
+        }
+        return mIsLong ? (double) mLongValue : Double.longBitsToDouble(mLongValue);
+    }
+
+    /**
+     * Read the next value as a number into {@link #mLongValue}.
+     *
+     * @return false if the value is null or not a number
+     */
+    private boolean readNumberOrNull() throws IOException {
+        int c = peekNonWhitespace();
+        if (c != '-' && (c < '0' || c > '9')) {
+            skipValue();
+            return false;
+        }
+        readNumber();
+        return true;
+    }
+
+    /**
+     * Read a JSON number. Integers that fit in a long are stored in {@link #mLongValue} with
+     * {@link #mIsLong} set, every other number is stored as the bits of a double.
+     */
+    private void readNumber() throws IOException {
+        int length = 0;
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean integral = true;
+        boolean fastPath = true;
+
+        while (true) {
+            if (mPosition == mLimit && !fill()) {
+                break;
+            }
+            int c = mBuffer[mPosition];
+            if (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    if (mantissa != 0 || c != '0') {
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (!integral) {
+                        exponent--;
+                    }
+                } else {
+                    fastPath = false;
+                }
+            } else if (c == '-' && length == 0) {
+                negative = true;
+            } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                integral = false;
+                if (c != '.') {
+                    fastPath = false;
+                }
+            } else {
+                break;
+            }
+            if (length == mNumber.length) {
+                throw syntaxError("Number too long");
+            }
+            mNumber[length++] = (char) c;
+            mPosition++;
+        }
+
+        if (integral && fastPath) {
+            mIsLong = true;
+            mLongValue = negative ? -mantissa : mantissa;
+            return;
+        }
+
+        double value;
+        if (fastPath && digits <= 15 && -exponent < POWERS_OF_TEN.length) {
+            // both operands are exact, so the quotient is correctly rounded
+            value = mantissa / POWERS_OF_TEN[-exponent];
+            if (negative) {
+                value = -value;
+            }
+        } else {
+            try {
+                value = Double.parseDouble(new String(mNumber, 0, length));
+            } catch (NumberFormatException e) {
+                throw syntaxError("Malformed number");
+            }
+        }
+        mIsLong = false;
+        mLongValue = Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * @return the next value as a String, or null if it is null or not a string
+     */
+    private String readStringOrNull() throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '"') {
+            return readString();
+        }
+        mPosition--;
+        skipValue();
+        return null;
+    }
+
+    /**
+     * decode a UTF-8 string value, the opening quote is already consumed
+     */
+    private String readString() throws IOException {
+        char[] chars = mChars;
+        int count = 0;
+        while (true) {
+            int c = readByte();
+            if (c == '"') {
+                break;
+            }
+            if (count + 2 > chars.length) {
+                char[] grown = new char[chars.length * 2];
+                System.arraycopy(chars, 0, grown, 0, count);
+                chars = mChars = grown;
+            }
+            if (c < 0x80) {
+                chars[count++] = c == '\\' ? readEscape() : (char) c;
+            } else if ((c & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((c & 0x1F) << 6) | (readByte() & 0x3F));
+            } else if ((c & 0xF0) == 0xE0) {
+                int codePoint = ((c & 0x0F) << 12) | ((readByte() & 0x3F) << 6);
+                chars[count++] = (char) (codePoint | (readByte() & 0x3F));
+            } else if ((c & 0xF8) == 0xF0) {
+                int codePoint = ((c & 0x07) << 18) | ((readByte() & 0x3F) << 12);
+                codePoint |= (readByte() & 0x3F) << 6;
+                codePoint = (codePoint | (readByte() & 0x3F)) - 0x10000;
+                chars[count++] = (char) ((codePoint >>> 10) + 0xD800);
+                chars[count++] = (char) ((codePoint & 0x3FF) + 0xDC00);
+            } else {
+                chars[count++] = '\uFFFD';
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * decode an escape sequence, the backslash is already consumed
+     */
+    private char readEscape() throws IOException {
+        int c = readByte();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(readByte(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    /**
+     * skip the next value, whatever its type
+     */
+    private void skipValue() throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 1;
+            while (depth > 0) {
+                c = readByte();
+                if (c == '"') {
+                    skipString();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            }
+        } else {
+            // number or literal, stop in front of the next delimiter
+            while (mPosition < mLimit || fill()) {
+                c = mBuffer[mPosition];
+                if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                    break;
+                }
+                mPosition++;
+            }
+        }
+    }
+
+    /**
+     * skip the rest of a string, the opening quote is already consumed
+     */
+    private void skipString() throws IOException {
+        while (true) {
+            int c = readByte();
+            if (c == '\\') {
+                readByte();
+            } else if (c == '"') {
+                return;
+            }
+        }
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        int c = nextNonWhitespace();
+        mPosition--;
+        return c;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = readByte();
+        } while (isWhitespace(c));
+        return c;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private int readByte() throws IOException {
+        if (mPosition == mLimit && !fill()) {
+            throw new EOFException("Unexpected end of GeoJSON at byte " + (mBufferOffset + mPosition));
+        }
+        return mBuffer[mPosition++] & 0xFF;
+    }
+
+    /**
+     * refill the read buffer, the last consumed byte is kept so it can be pushed back
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        int keep = mLimit > 0 ? 1 : 0;
+        if (keep > 0) {
+            mBuffer[0] = mBuffer[mLimit - 1];
+        }
+        int read = mInput.read(mBuffer, keep, mBuffer.length - keep);
+        if (read <= 0) {
+            return false;
+        }
+        mBufferOffset += mLimit - keep;
+        mPosition = keep;
+        mLimit = keep + read;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at byte " + (mBufferOffset + mPosition));
+    }
+
+    private static byte[] ascii(String value) {
+        byte[] bytes = new byte[value.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) value.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FetchCancellation} stops the requests of a load from another thread: it
+ * disconnects their connections, which aborts a blocked read, and makes the response
+ * streams throw, which stops a parse running on data that already arrived.
+ * <p>
+ * One cancellation can be shared by several requests, i.e. the shards of a query.
+ * Once cancelled, it stays cancelled and new requests fail right away.
+ */
+public final class FetchCancellation {
+
+    /**
+     * disconnects the connections, a disconnect may block or write to the socket, so it
+     * must not run on the thread that cancels, often the main thread
+     */
+    private static final Executor DISCONNECT_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "earthquake-disconnect");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private boolean mCancelled;
+
+    /** connections of the requests in flight */
+    private final List<HttpURLConnection> mConnections = new ArrayList<>();
+
+    /** called once on cancellation, i.e. to stop waiting for a shared request */
+    private final List<Runnable> mListeners = new ArrayList<>();
+
+    /**
+     * Cancel the requests in flight and the ones made afterwards, this may be called
+     * from any thread and does not block.
+     */
+    public void cancel() {
+        final List<HttpURLConnection> connections;
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelled = true;
+            connections = new ArrayList<>(mConnections);
+            mConnections.clear();
+            listeners = new ArrayList<>(mListeners);
+            mListeners.clear();
+            // wake up the threads waiting in sleep()
+            notifyAll();
+        }
+        if (!connections.isEmpty()) {
+            DISCONNECT_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (HttpURLConnection connection : connections) {
+                        connection.disconnect();
+                    }
+                }
+            });
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @param connection is the connection of a request about to be made
+     * @return false if the request must not be made, because of a cancellation
+     */
+    synchronized boolean attach(HttpURLConnection connection) {
+        if (mCancelled) {
+            return false;
+        }
+        mConnections.add(connection);
+        return true;
+    }
+
+    /**
+     * @param connection is the connection of a request that is done
+     */
+    synchronized void detach(HttpURLConnection connection) {
+        mConnections.remove(connection);
+    }
+
+    /**
+     * @param listener is run on the thread that cancels
+     * @return false if already cancelled, the listener is then not run
+     */
+    synchronized boolean addListener(Runnable listener) {
+        if (mCancelled) {
+            return false;
+        }
+        mListeners.add(listener);
+        return true;
+    }
+
+    synchronized void removeListener(Runnable listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Wait before the next attempt of a request, unless cancelled or interrupted first.
+     *
+     * @param millis is the time to wait, in milliseconds
+     * @return false if the wait ended early, the request must then not be made again
+     */
+    synchronized boolean sleep(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining = millis;
+        while (!mCancelled && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+        return !mCancelled;
+    }
+
+    /**
+     * @param inputStream is the response stream of a request
+     * @return the same stream, throwing {@link InterruptedIOException} once cancelled
+     */
+    InputStream wrap(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                checkCancelled();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                checkCancelled();
+                return super.read(buffer, offset, count);
+            }
+        };
+    }
+
+    private void checkCancelled() throws InterruptedIOException {
+        if (isCancelled()) {
+            throw new InterruptedIOException("Request cancelled");
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * {@link FetchPolicy} decides how {@link QueryUtils} recovers from slow and failed requests:
+ * <ul>
+ * <li>a failed request is made again, up to a bounded number of attempts, after a
+ * random wait of up to an exponentially growing backoff ("full jitter"), so that
+ * clients failing together do not retry together</li>
+ * <li>the timeouts follow the latency of the recent requests, so a dead connection is
+ * given up in a few times the usual latency instead of after 15 seconds</li>
+ * <li>a request still waiting for its response after the 95th percentile of the recent
+ * latencies is "hedged": the same request is made a second time and the first response wins</li>
+ * </ul>
+ * The latency is the time to the response headers, which does not grow with the number
+ * of earthquakes asked for, so a page and a whole catalog share the same statistics.
+ * Until enough requests were measured, the fixed timeouts are used and nothing is hedged.
+ * This class is thread safe.
+ */
+final class FetchPolicy {
+
+    /**
+     * timeouts used before enough latencies are known, and upper bounds of the adaptive ones
+     */
+    static final int DEFAULT_CONNECT_TIMEOUT = 15000;
+    static final int DEFAULT_READ_TIMEOUT = 10000;
+
+    /**
+     * lower bounds of the adaptive timeouts, mobile networks have slow moments
+     */
+    private static final int MIN_CONNECT_TIMEOUT = 3000;
+    private static final int MIN_READ_TIMEOUT = 3000;
+
+    /**
+     * adaptive timeouts are this many times the 95th percentile latency
+     */
+    private static final int TIMEOUT_FACTOR = 4;
+
+    /**
+     * requests faster than this are never hedged, a duplicate would cost more than it saves
+     */
+    private static final long MIN_HEDGE_DELAY = 200;
+
+    /**
+     * latencies kept, and latencies needed before adapting to them
+     */
+    private static final int LATENCY_SAMPLES = 64;
+    private static final int MIN_LATENCY_SAMPLES = 8;
+
+    private final int mMaxAttempts;
+    private final long mBaseBackoffMillis;
+    private final long mMaxBackoffMillis;
+    private final boolean mHedging;
+    private final Random mRandom;
+
+    /** latencies of the last successful requests in milliseconds, a ring guarded by this */
+    private final long[] mLatencies = new long[LATENCY_SAMPLES];
+    private int mLatencyCount;
+    private int mNextLatency;
+
+    /**
+     * 3 attempts, backoffs of up to 0.5s then 1s, with hedging
+     */
+    FetchPolicy() {
+        this(3, 500, 4000, true, new Random());
+    }
+
+    /**
+     * @param maxAttempts       is the number of times a request is made before giving up
+     * @param baseBackoffMillis is the longest wait after the first failure, doubled after each one
+     * @param maxBackoffMillis  is the longest wait after any failure
+     * @param hedging           is false to never make a second request while the first is running
+     * @param random            draws the waits
+     */
+    FetchPolicy(int maxAttempts, long baseBackoffMillis, long maxBackoffMillis, boolean hedging, Random random) {
+        mMaxAttempts = maxAttempts;
+        mBaseBackoffMillis = baseBackoffMillis;
+        mMaxBackoffMillis = maxBackoffMillis;
+        mHedging = hedging;
+        mRandom = random;
+    }
+
+    int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * @param responseCode is the HTTP status of a failed request
+     * @return true if the same request may succeed later: server errors and rate limiting
+     */
+    boolean isRetriable(int responseCode) {
+        return responseCode >= 500 || responseCode == 429;
+    }
+
+    /**
+     * @param failedAttempts is the number of attempts that failed so far, from 1
+     * @return time to wait before the next attempt, in milliseconds
+     */
+    long getBackoffMillis(int failedAttempts) {
+        long backoff = Math.min(mMaxBackoffMillis, mBaseBackoffMillis << Math.min(failedAttempts - 1, 20));
+        synchronized (mRandom) {
+            return (long) (mRandom.nextDouble() * backoff);
+        }
+    }
+
+    /**
+     * @param millis is the time a successful request waited for its response headers
+     */
+    synchronized void recordLatency(long millis) {
+        mLatencies[mNextLatency] = millis;
+        mNextLatency = (mNextLatency + 1) % LATENCY_SAMPLES;
+        mLatencyCount = Math.min(mLatencyCount + 1, LATENCY_SAMPLES);
+    }
+
+    synchronized int getConnectTimeoutMillis() {
+        return adaptTimeout(MIN_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    synchronized int getReadTimeoutMillis() {
+        return adaptTimeout(MIN_READ_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * @return time after which a running request is hedged, in milliseconds, or -1 if it
+     * must not be hedged
+     */
+    synchronized long getHedgeDelayMillis() {
+        if (!mHedging || mLatencyCount < MIN_LATENCY_SAMPLES) {
+            return -1;
+        }
+        return Math.max(MIN_HEDGE_DELAY, getLatencyPercentile95());
+    }
+
+    /**
+     * Helper method for {@link #getConnectTimeoutMillis()} and {@link #getReadTimeoutMillis()}
+     * <p>
+     * a multiple of the recent latencies within the bounds, the upper bound until they are known
+     */
+    private int adaptTimeout(int min, int max) {
+        if (mLatencyCount < MIN_LATENCY_SAMPLES) {
+            return max;
+        }
+        return (int) Math.max(min, Math.min(max, TIMEOUT_FACTOR * getLatencyPercentile95()));
+    }
+
+    /**
+     * must be called holding the lock of this policy
+     */
+    private long getLatencyPercentile95() {
+        long[] latencies = Arrays.copyOf(mLatencies, mLatencyCount);
+        Arrays.sort(latencies);
+        return latencies[(int) Math.ceil(latencies.length * 0.95) - 1];
+    }
+}
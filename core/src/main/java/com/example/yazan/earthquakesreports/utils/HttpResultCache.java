@@ -0,0 +1,86 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link HttpResultCache} keeps the parsed result of recent requests together with the
+ * HTTP validators of the response, so a "304 Not Modified" answer can reuse the result
+ * without downloading or parsing anything.
+ * <p>
+ * The least recently used URL is evicted once the cache is full.
+ */
+final class HttpResultCache {
+
+    /**
+     * Parsed result of one URL and the validators to revalidate it with.
+     */
+    static final class CachedResult {
+
+        /** value of the "ETag" response header, or null */
+        final String mETag;
+
+        /** value of the "Last-Modified" response header, or null */
+        final String mLastModified;
+
+        /** unmodifiable list of earthquakes parsed from the response */
+        final List<Earthquake> mEarthquakes;
+
+        CachedResult(String eTag, String lastModified, List<Earthquake> earthquakes) {
+            mETag = eTag;
+            mLastModified = lastModified;
+            mEarthquakes = earthquakes;
+        }
+    }
+
+    private final Map<String, CachedResult> mEntries;
+
+    /**
+     * Construct a new {@link HttpResultCache} object.
+     *
+     * @param maxEntries is the number of URLs to keep
+     */
+    HttpResultCache(final int maxEntries) {
+        mEntries = new LinkedHashMap<String, CachedResult>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param url is the request URL
+     * @return the cached result of the URL, or null
+     */
+    synchronized CachedResult get(String url) {
+        return mEntries.get(url);
+    }
+
+    /**
+     * Cache the parsed result of a response, if the response can be revalidated.
+     *
+     * @param url          is the request URL
+     * @param eTag         is the "ETag" response header, or null
+     * @param lastModified is the "Last-Modified" response header, or null
+     * @param earthquakes  is the parsed result
+     * @return the cached, unmodifiable result
+     */
+    synchronized List<Earthquake> put(String url, String eTag, String lastModified, List<Earthquake> earthquakes) {
+        List<Earthquake> result = Collections.unmodifiableList(earthquakes);
+        if (eTag == null && lastModified == null) {
+            mEntries.remove(url);
+        } else {
+            mEntries.put(url, new CachedResult(eTag, lastModified, result));
+        }
+        return result;
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LiveFeedPoller} detects new and revised earthquakes by polling one of the small
+ * USGS summary feeds, instead of running the full query again.
+ * <p>
+ * Every poll is a conditional request through {@link QueryUtils}, so an unchanged feed
+ * costs a "304 Not Modified" and no parsing. The events of the last feed are remembered
+ * by id and "updated" time; the set only holds the events of the feed window, so it does
+ * not grow while polling. The interval shrinks when something changed and grows while the
+ * feed stays the same.
+ * This class is not thread safe, poll from a single thread.
+ */
+public final class LiveFeedPoller {
+
+    /**
+     * USGS summary feed of all the earthquakes of the past hour
+     */
+    public static final String PAST_HOUR_FEED_URL =
+            "https://earthquake.usgs.gov/earthquakes/feed/v1.0/summary/all_hour.geojson";
+
+    /**
+     * USGS updates the summary feeds every minute
+     */
+    static final long MIN_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    static final long MAX_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    private final String mFeedUrl;
+
+    /**
+     * last parsed feed, the result of a 304 is the same list
+     */
+    private List<Earthquake> mLastFeed;
+
+    /**
+     * "updated" time of every event of the last feed, by event id
+     */
+    private Map<String, Long> mSeenEvents = new HashMap<>();
+
+    private long mInterval = MIN_INTERVAL;
+
+    /**
+     * Construct a new {@link LiveFeedPoller} object.
+     *
+     * @param feedUrl is the URL of a USGS GeoJSON summary feed
+     */
+    public LiveFeedPoller(String feedUrl) {
+        mFeedUrl = feedUrl;
+    }
+
+    /**
+     * Request the feed and compare it with the last one, this must not be called on the
+     * main thread. The first poll reports every event of the feed.
+     *
+     * @return the new or revised earthquakes, empty if nothing changed,
+     * or null if the request failed
+     */
+    public List<Earthquake> poll() {
+        List<Earthquake> feed = QueryUtils.fetchEarthquakeData(mFeedUrl);
+        if (feed == null) {
+            mInterval = Math.min(mInterval * 2, MAX_INTERVAL);
+            return null;
+        }
+
+        // not modified, nothing to compare
+        if (feed == mLastFeed) {
+            mInterval = Math.min(mInterval * 3 / 2, MAX_INTERVAL);
+            return Collections.emptyList();
+        }
+
+        List<Earthquake> changes = new ArrayList<>();
+        Map<String, Long> seenEvents = new HashMap<>(feed.size() * 2);
+        for (Earthquake earthquake : feed) {
+            Long seenUpdatedTime = mSeenEvents.get(earthquake.getId());
+            if (seenUpdatedTime == null || seenUpdatedTime < earthquake.getUpdatedTimeInMilliseconds()) {
+                changes.add(earthquake);
+            }
+            seenEvents.put(earthquake.getId(), earthquake.getUpdatedTimeInMilliseconds());
+        }
+        mLastFeed = feed;
+        mSeenEvents = seenEvents;
+
+        mInterval = changes.isEmpty() ? Math.min(mInterval * 3 / 2, MAX_INTERVAL) : MIN_INTERVAL;
+        return changes;
+    }
+
+    /**
+     * @return delay before the next poll, in milliseconds
+     */
+    public long getIntervalMillis() {
+        return mInterval;
+    }
+
+    /**
+     * Merge new and revised earthquakes into a sorted list: revised events move to their
+     * new position, new events are inserted where they belong.
+     *
+     * @param earthquakes is the list to update, sorted by the given order
+     * @param changes     are the new and revised earthquakes
+     * @param order       is the order of the list
+     * @param complete    is false if the list is only the first pages of the query, then the
+     *                    events sorting after its last one are left out for a later page
+     * @return number of earthquakes added to the list, minus the revised ones moved out of it
+     */
+    public static int mergeInto(List<Earthquake> earthquakes, List<Earthquake> changes,
+                                Comparator<Earthquake> order, boolean complete) {
+        Set<String> changedIds = new HashSet<>(changes.size() * 2);
+        for (Earthquake change : changes) {
+            changedIds.add(change.getId());
+        }
+
+        int sizeBefore = earthquakes.size();
+        for (int i = earthquakes.size() - 1; i >= 0; i--) {
+            if (changedIds.contains(earthquakes.get(i).getId())) {
+                earthquakes.remove(i);
+            }
+        }
+        Earthquake last = complete || earthquakes.isEmpty() ? null : earthquakes.get(earthquakes.size() - 1);
+
+        for (Earthquake change : changes) {
+            if (last != null && order.compare(change, last) > 0) {
+                continue;
+            }
+            int position = Collections.binarySearch(earthquakes, change, order);
+            earthquakes.add(position < 0 ? -position - 1 : position, change);
+        }
+        return earthquakes.size() - sizeBefore;
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link PipelineMetrics} records how long each phase of showing the earthquakes takes,
+ * from the request to the bound rows, into one histogram per metric, and marks the
+ * phases as sections of a trace through the installed {@link Tracer}, i.e. the Android
+ * system trace.
+ * <p>
+ * Recording is off by default. While off, {@link #start()} returns 0 without reading the
+ * clock and every other method returns right away, so the instrumented code costs a
+ * volatile read per call. Histograms can be read from any thread at any time.
+ */
+public final class PipelineMetrics {
+
+    /**
+     * durations, in microseconds
+     */
+    public static final int CONNECT = 0;
+    public static final int FIRST_BYTE = 1;
+    public static final int DOWNLOAD = 2;
+    public static final int PARSE = 3;
+    public static final int DIFF = 4;
+    public static final int BIND = 5;
+
+    /**
+     * compressed response body size, in bytes
+     */
+    public static final int PAYLOAD_BYTES = 6;
+
+    /**
+     * number of earthquakes of a parsed response
+     */
+    public static final int EVENT_COUNT = 7;
+
+    private static final String[] NAMES = {
+            "connect_us", "first_byte_us", "download_us", "parse_us", "diff_us", "bind_us",
+            "payload_bytes", "event_count"};
+
+    private static final Histogram[] sHistograms = new Histogram[NAMES.length];
+
+    static {
+        for (int metric = 0; metric < NAMES.length; metric++) {
+            sHistograms[metric] = new Histogram();
+        }
+    }
+
+    private static volatile boolean sEnabled;
+
+    private static volatile Tracer sTracer;
+
+    /**
+     * Receives the sections of the trace, the platform has its own tracing.
+     */
+    public interface Tracer {
+
+        void beginSection(String name);
+
+        void endSection();
+    }
+
+    /**
+     * private constructor no need to construct new {@link PipelineMetrics} object
+     */
+    private PipelineMetrics() {
+    }
+
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @param tracer receives the sections while recording, or null to trace nothing
+     */
+    public static void setTracer(Tracer tracer) {
+        sTracer = tracer;
+    }
+
+    /**
+     * @return start time of a phase to pass to {@link #recordSince(int, long)}, 0 while disabled
+     */
+    public static long start() {
+        return sEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the duration of a phase started with {@link #start()}.
+     *
+     * @param metric     is one of the duration metrics, i.e. {@link #PARSE}
+     * @param startNanos is the value returned by {@link #start()}
+     */
+    public static void recordSince(int metric, long startNanos) {
+        if (sEnabled && startNanos != 0) {
+            record(metric, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * @param metric is the metric the value is a sample of
+     * @param value  is the sample, in the unit of the metric
+     */
+    public static void record(int metric, long value) {
+        if (sEnabled) {
+            sHistograms[metric].add(value);
+        }
+    }
+
+    /**
+     * @param metric is one of the metrics of this class
+     * @return histogram of all the samples of the metric since the last {@link #reset()}
+     */
+    public static Histogram getHistogram(int metric) {
+        return sHistograms[metric];
+    }
+
+    /**
+     * @return name of the metric and of its unit, i.e. "parse_us"
+     */
+    public static String getName(int metric) {
+        return NAMES[metric];
+    }
+
+    /**
+     * @return number of metrics, metrics are numbered from 0
+     */
+    public static int getMetricCount() {
+        return NAMES.length;
+    }
+
+    /**
+     * Drop the samples of all the metrics.
+     */
+    public static void reset() {
+        for (Histogram histogram : sHistograms) {
+            histogram.clear();
+        }
+    }
+
+    /**
+     * Begin a section of the trace on the calling thread.
+     * Every section must be ended by {@link #endSection()} on the same thread.
+     *
+     * @param name is the name of the section, shown in the trace
+     */
+    public static void beginSection(String name) {
+        Tracer tracer = sTracer;
+        if (sEnabled && tracer != null) {
+            tracer.beginSection(name);
+        }
+    }
+
+    /**
+     * End the last section begun on the calling thread.
+     */
+    public static void endSection() {
+        Tracer tracer = sTracer;
+        if (sEnabled && tracer != null) {
+            tracer.endSection();
+        }
+    }
+
+    /**
+     * Samples of a metric, counted in buckets of powers of two: bucket i holds the values
+     * from 2^(i-1) to 2^i - 1, bucket 0 holds 0 and the negative values.
+     */
+    public static final class Histogram {
+
+        private static final int BUCKET_COUNT = 64;
+
+        private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mSum = new AtomicLong();
+        private final AtomicLong mMax = new AtomicLong();
+
+        void add(long value) {
+            value = Math.max(value, 0);
+            mBuckets.incrementAndGet(BUCKET_COUNT - Long.numberOfLeadingZeros(value));
+            mCount.incrementAndGet();
+            mSum.addAndGet(value);
+            long max = mMax.get();
+            while (value > max && !mMax.compareAndSet(max, value)) {
+                max = mMax.get();
+            }
+        }
+
+        void clear() {
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                mBuckets.set(bucket, 0);
+            }
+            mCount.set(0);
+            mSum.set(0);
+            mMax.set(0);
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+        public long getSum() {
+            return mSum.get();
+        }
+
+        public long getMax() {
+            return mMax.get();
+        }
+
+        public double getMean() {
+            long count = mCount.get();
+            return count == 0 ? 0 : (double) mSum.get() / count;
+        }
+
+        /**
+         * @param percentile is between 0 and 100, i.e. 95 for the 95th percentile
+         * @return upper bound of the bucket holding the percentile, at most twice the
+         * actual value, 0 if there are no samples
+         */
+        public long getPercentile(double percentile) {
+            long count = mCount.get();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                seen += mBuckets.get(bucket);
+                if (seen >= rank) {
+                    return Math.min(bucket == 0 ? 0 : (1L << bucket) - 1, mMax.get());
+                }
+            }
+            return mMax.get();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + " mean=" + Math.round(getMean())
+                    + " p50=" + getPercentile(50) + " p95=" + getPercentile(95) + " max=" + getMax();
+        }
+    }
+
+    /**
+     * Counts the bytes read from a stream and the time spent waiting for them.
+     */
+    public static final class MeteredInputStream extends FilterInputStream {
+
+        private long mByteCount;
+        private long mReadNanos;
+
+        public MeteredInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int result = super.read();
+            mReadNanos += System.nanoTime() - start;
+            if (result != -1) {
+                mByteCount++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(buffer, offset, count);
+            mReadNanos += System.nanoTime() - start;
+            if (read > 0) {
+                mByteCount += read;
+            }
+            return read;
+        }
+
+        public long getByteCount() {
+            return mByteCount;
+        }
+
+        public long getReadNanos() {
+            return mReadNanos;
+        }
+    }
+}
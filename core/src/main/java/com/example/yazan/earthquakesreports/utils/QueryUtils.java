@@ -0,0 +1,584 @@
+package com.example.yazan.earthquakesreports.utils;
+
+/**
+ * Created by yazan on 2/5/17.
+ */
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link QueryUtils} class contains static helper methods related to requesting and receiving earthquake data from USGS website
+ */
+public final class QueryUtils {
+
+    /**
+     * Logger for log messages, java.util.logging goes to logcat on Android
+     */
+    private static final Logger LOG = Logger.getLogger(QueryUtils.class.getName());
+
+    /**
+     * one streaming parser per thread, so its buffers are reused between requests
+     */
+    private static final ThreadLocal<EarthquakeJsonParser> sParser = new ThreadLocal<EarthquakeJsonParser>() {
+        @Override
+        protected EarthquakeJsonParser initialValue() {
+            return new EarthquakeJsonParser();
+        }
+    };
+
+    /**
+     * one CSV parser per thread, for the queries fetched as CSV
+     */
+    private static final ThreadLocal<EarthquakeCsvParser> sCsvParser = new ThreadLocal<EarthquakeCsvParser>() {
+        @Override
+        protected EarthquakeCsvParser initialValue() {
+            return new EarthquakeCsvParser();
+        }
+    };
+
+    /**
+     * a GeoJSON query that may return this many earthquakes or more is fetched as CSV,
+     * which is about a quarter of the size and cheaper to parse
+     */
+    static final int CSV_MIN_EVENTS = 200;
+
+    /**
+     * parsed results of recent requests, revalidated with conditional GETs
+     */
+    private static final HttpResultCache sResultCache = new HttpResultCache(32);
+
+    /**
+     * false while the results are not kept for revalidation
+     */
+    private static volatile boolean sResultCacheEnabled = true;
+
+    /**
+     * concurrent requests of the same query share one connection and one parse
+     */
+    private static final SingleFlight<List<Earthquake>> sInFlight = new SingleFlight<>();
+
+    /**
+     * retries, timeouts and hedging of the requests
+     */
+    private static volatile FetchPolicy sFetchPolicy = new FetchPolicy();
+
+    /**
+     * runs the attempts of hedged requests, its threads only wait for the network
+     */
+    private static final ExecutorService HEDGE_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "earthquake-hedge");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * private constructor no need to construct new {@link QueryUtils} object
+     */
+    private QueryUtils() {
+    }
+
+
+    /**
+     * Query the USGS dataset and return a list of {@link Earthquake} objects.
+     *
+     * @param requestUrl is a USGS URL for requesting Earthquakes
+     * @return a list of Earthquakes for given URL
+     */
+    public static List<Earthquake> fetchEarthquakeData(String requestUrl) {
+        return fetchEarthquakeData(requestUrl, null);
+    }
+
+    /**
+     * Query the USGS dataset and return a list of {@link Earthquake} objects, unless the
+     * request is cancelled first.
+     * <p>
+     * Callers asking for the same query at the same time, even with the parameters in
+     * another order, share the result of a single request.
+     * <p>
+     * A GeoJSON query of many earthquakes is fetched as CSV, see {@link #negotiateFormat(String)}.
+     *
+     * @param requestUrl   is a USGS URL for requesting Earthquakes
+     * @param cancellation stops the request and its parsing when cancelled, or null
+     * @return a list of Earthquakes for given URL, or null if the request failed or was cancelled
+     */
+    public static List<Earthquake> fetchEarthquakeData(String requestUrl, FetchCancellation cancellation) {
+        //create URL object
+        final URL url = createUrl(negotiateFormat(requestUrl));
+        if (url == null) {
+            return null;
+        }
+
+        //Perform HTTP request to the given URL and parse the response as it arrives
+        return sInFlight.execute(normalizeUrl(url), cancellation, new SingleFlight.Call<List<Earthquake>>() {
+            @Override
+            public List<Earthquake> call(FetchCancellation sharedCancellation) {
+                return makeHttpRequest(url, sharedCancellation);
+            }
+        });
+    }
+
+    /**
+     * Two URLs of the same query have the same normalized form: the scheme and host are
+     * lower case, the default port is dropped, and the query parameters are sorted by name.
+     * Values of a repeated parameter keep their order.
+     *
+     * @param url is a request URL
+     * @return key of the query of the URL
+     */
+    static String normalizeUrl(URL url) {
+        String protocol = url.getProtocol().toLowerCase(Locale.US);
+        StringBuilder builder = new StringBuilder(protocol).append("://")
+                .append(url.getHost().toLowerCase(Locale.US));
+        if (url.getPort() != -1 && url.getPort() != url.getDefaultPort()) {
+            builder.append(':').append(url.getPort());
+        }
+        builder.append(url.getPath().isEmpty() ? "/" : url.getPath());
+
+        String query = url.getQuery();
+        if (query == null || query.isEmpty()) {
+            return builder.toString();
+        }
+        List<String> parameters = new ArrayList<>();
+        for (String parameter : query.split("&")) {
+            if (!parameter.isEmpty()) {
+                parameters.add(parameter);
+            }
+        }
+        // a stable sort on the names only
+        Collections.sort(parameters, new Comparator<String>() {
+            @Override
+            public int compare(String first, String second) {
+                return getName(first).compareTo(getName(second));
+            }
+        });
+
+        char separator = '?';
+        for (String parameter : parameters) {
+            builder.append(separator).append(parameter);
+            separator = '&';
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Ask for CSV instead of GeoJSON when the query may return {@link #CSV_MIN_EVENTS}
+     * earthquakes or more: its "limit" is that high, or it has none and USGS may return
+     * up to 20000. Small queries, i.e. the pages of the list, and the queries of a single
+     * event keep GeoJSON, which has more properties than the CSV.
+     * <p>
+     * In the app, the shards of the query of the settings have no limit and are fetched as
+     * CSV: it has the 30-day window USGS applies by default, which the loader fetches whole
+     * with a {@link ShardedQuery}. The sync changes (limit 100) keep GeoJSON. The ingest
+     * windows have no limit either.
+     * <p>
+     * The response is parsed by its content type, so a server answering GeoJSON anyway is fine.
+     *
+     * @param requestUrl is a USGS URL for requesting Earthquakes
+     * @return the same URL with "format=csv" instead of "format=geojson", or the URL unchanged
+     */
+    static String negotiateFormat(String requestUrl) {
+        int queryStart = requestUrl.indexOf('?');
+        if (queryStart < 0) {
+            return requestUrl;
+        }
+        String[] parameters = requestUrl.substring(queryStart + 1).split("&");
+        int formatIndex = -1;
+        for (int i = 0; i < parameters.length; i++) {
+            String parameter = parameters[i];
+            if (parameter.equals("format=geojson")) {
+                formatIndex = i;
+            } else if (parameter.startsWith("eventid=")) {
+                return requestUrl;
+            } else if (parameter.startsWith("limit=")) {
+                try {
+                    if (Integer.parseInt(parameter.substring("limit=".length())) < CSV_MIN_EVENTS) {
+                        return requestUrl;
+                    }
+                } catch (NumberFormatException e) {
+                    return requestUrl;
+                }
+            }
+        }
+        if (formatIndex < 0) {
+            return requestUrl;
+        }
+
+        parameters[formatIndex] = "format=csv";
+        StringBuilder builder = new StringBuilder(requestUrl.length()).append(requestUrl, 0, queryStart);
+        char separator = '?';
+        for (String parameter : parameters) {
+            builder.append(separator).append(parameter);
+            separator = '&';
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Keep the results of the recent requests to revalidate them, or not, i.e. for a bulk
+     * download that never requests the same query twice and would only hold them in memory.
+     *
+     * @param enabled is false to drop the kept results and not keep new ones
+     */
+    public static void setResultCacheEnabled(boolean enabled) {
+        sResultCacheEnabled = enabled;
+        if (!enabled) {
+            sResultCache.clear();
+        }
+    }
+
+    /**
+     * @param policy replaces the fetch policy, i.e. with shorter backoffs in tests
+     */
+    static void setFetchPolicy(FetchPolicy policy) {
+        sFetchPolicy = policy;
+    }
+
+    private static String getName(String parameter) {
+        int equalsIndex = parameter.indexOf('=');
+        return equalsIndex >= 0 ? parameter.substring(0, equalsIndex) : parameter;
+    }
+
+    /**
+     * @return number of callers sharing the request in progress for the URL, 0 if there is none
+     */
+    static int getWaitingCallers(String requestUrl) {
+        URL url = createUrl(requestUrl);
+        return url != null ? sInFlight.getCallerCount(normalizeUrl(url)) : 0;
+    }
+
+
+    /**
+     * Helper method for {@link #fetchEarthquakeData(String, FetchCancellation)}
+     * <p>
+     * return new URL object from the given String URL
+     *
+     * @param stringUrl is the given url string
+     * @return new URL object from the given string URL
+     */
+    private static URL createUrl(String stringUrl) {
+        URL url = null;
+        try {
+            url = new URL(stringUrl);
+        } catch (MalformedURLException e) {
+            LOG.log(Level.FINE, "Problem with building the URL object", e);
+        }
+        return url;
+    }
+
+    /**
+     * Helper method for  {@link #fetchEarthquakeData(String, FetchCancellation)}
+     * <p>
+     * Make an HTTP request to the given URL following the {@link FetchPolicy}: a failed
+     * attempt is made again after a jittered backoff, and a slow attempt is hedged once
+     * enough latencies are known.
+     *
+     * @param url          is the given URL object
+     * @param cancellation stops the attempts and the backoffs when cancelled
+     * @return list of {@link Earthquake} objects, or null if all the attempts failed
+     */
+    private static List<Earthquake> makeHttpRequest(URL url, FetchCancellation cancellation) {
+        FetchPolicy policy = sFetchPolicy;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long hedgeDelay = policy.getHedgeDelayMillis();
+                return hedgeDelay >= 0
+                        ? makeHedgedRequest(url, cancellation, policy, hedgeDelay)
+                        : makeSingleRequest(url, cancellation, policy, null);
+            } catch (IOException e) {
+                if (cancellation.isCancelled()) {
+                    LOG.fine("Request cancelled: " + url);
+                    return null;
+                }
+                if (attempt >= policy.getMaxAttempts()) {
+                    LOG.log(Level.SEVERE, "Problem in retrieving the earthquake JSON results ...", e);
+                    return null;
+                }
+                long backoff = policy.getBackoffMillis(attempt);
+                LOG.log(Level.WARNING, "Attempt " + attempt + " failed, retrying in " + backoff + "ms", e);
+                if (!cancellation.sleep(backoff)) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method for {@link #makeHttpRequest(URL, FetchCancellation)}
+     * <p>
+     * Make the same request a second time if the first one still has no response after the
+     * hedge delay, and return the first response. A response streaming its body is never
+     * hedged, however large, since a second request would download it all again. Each
+     * attempt has its own cancellation, so the slower one is disconnected as soon as the
+     * other succeeds.
+     *
+     * @return the result of the first attempt to succeed
+     * @throws IOException of the last attempt to fail, if both failed
+     */
+    private static List<Earthquake> makeHedgedRequest(URL url, FetchCancellation cancellation,
+                                                      FetchPolicy policy, long hedgeDelay) throws IOException {
+        final FetchCancellation primary = new FetchCancellation();
+        final FetchCancellation hedge = new FetchCancellation();
+        Runnable cancelAttempts = new Runnable() {
+            @Override
+            public void run() {
+                primary.cancel();
+                hedge.cancel();
+            }
+        };
+        if (!cancellation.addListener(cancelAttempts)) {
+            throw new InterruptedIOException("Request cancelled");
+        }
+
+        CompletionService<List<Earthquake>> attempts = new ExecutorCompletionService<>(HEDGE_EXECUTOR);
+        CountDownLatch responded = new CountDownLatch(1);
+        try {
+            attempts.submit(newAttempt(url, primary, policy, responded));
+            int running = 1;
+            if (!responded.await(hedgeDelay, TimeUnit.MILLISECONDS)) {
+                LOG.fine("Hedging request without a response after " + hedgeDelay + "ms: " + url);
+                attempts.submit(newAttempt(url, hedge, policy, null));
+                running++;
+            }
+
+            Future<List<Earthquake>> done = null;
+
+            IOException failure = null;
+            while (running > 0) {
+                if (done == null) {
+                    done = attempts.take();
+                }
+                running--;
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof IOException)) {
+                        throw new RuntimeException(e.getCause());
+                    }
+                    // wait for the other attempt, if any
+                    failure = (IOException) e.getCause();
+                }
+                done = null;
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request interrupted");
+        } finally {
+            cancellation.removeListener(cancelAttempts);
+            cancelAttempts.run();
+        }
+    }
+
+    /**
+     * Helper method for {@link #makeHedgedRequest(URL, FetchCancellation, FetchPolicy, long)}
+     *
+     * @param responded is counted down once the attempt has its response or failed, or null
+     */
+    private static Callable<List<Earthquake>> newAttempt(final URL url, final FetchCancellation cancellation,
+                                                         final FetchPolicy policy, final CountDownLatch responded) {
+        return new Callable<List<Earthquake>>() {
+            @Override
+            public List<Earthquake> call() throws IOException {
+                try {
+                    return makeSingleRequest(url, cancellation, policy, responded);
+                } finally {
+                    // a failure before the response needs no hedge either
+                    if (responded != null) {
+                        responded.countDown();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Helper method for {@link #makeHttpRequest(URL, FetchCancellation)}
+     * <p>
+     * Make one HTTP request to the given URL and parse the response stream into
+     * a list of {@link Earthquake} objects.
+     * <p>
+     * The response is requested gzip compressed, and revalidated with the validators of
+     * the previous response for the same URL: on "304 Not Modified" the previous result
+     * is returned without parsing.
+     *
+     * @param url          is the given URL object
+     * @param cancellation disconnects the request when cancelled
+     * @param policy       gives the timeouts, and records the latency of a success
+     * @param responded    is counted down once the response headers arrived, or null
+     * @return list of {@link Earthquake} objects, or null if the request failed for good
+     * @throws IOException if the request failed and may succeed if made again
+     */
+    private static List<Earthquake> makeSingleRequest(URL url, FetchCancellation cancellation,
+                                                      FetchPolicy policy, CountDownLatch responded)
+            throws IOException {
+
+        List<Earthquake> earthquakes = null;
+
+        //if the URL is null , then exit
+        if (url == null) {
+            return earthquakes;
+        }
+
+        HttpURLConnection urlConnection = null;
+        InputStream inputStream = null;
+
+        //validators of the last response for this query, if any
+        String cacheKey = normalizeUrl(url);
+        boolean cacheEnabled = sResultCacheEnabled;
+        HttpResultCache.CachedResult cached = cacheEnabled ? sResultCache.get(cacheKey) : null;
+
+        PipelineMetrics.beginSection("QueryUtils.request");
+        long requestStart = PipelineMetrics.start();
+        long latencyStart = System.nanoTime();
+        try {
+            //setup HTTP request
+            urlConnection = (HttpURLConnection) url.openConnection(); //throw IOException
+            if (!cancellation.attach(urlConnection)) {
+                throw new InterruptedIOException("Request cancelled");
+            }
+            urlConnection.setConnectTimeout(policy.getConnectTimeoutMillis());
+            urlConnection.setReadTimeout(policy.getReadTimeoutMillis());
+            urlConnection.setRequestMethod("GET");
+            urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+            if (cached != null) {
+                if (cached.mETag != null) {
+                    urlConnection.setRequestProperty("If-None-Match", cached.mETag);
+                }
+                if (cached.mLastModified != null) {
+                    urlConnection.setRequestProperty("If-Modified-Since", cached.mLastModified);
+                }
+            }
+            urlConnection.connect();
+            PipelineMetrics.recordSince(PipelineMetrics.CONNECT, requestStart);
+
+            int responseCode = urlConnection.getResponseCode();
+            PipelineMetrics.recordSince(PipelineMetrics.FIRST_BYTE, requestStart);
+            // the time to the response does not depend on the size of the query, unlike the download
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - latencyStart);
+            if (responded != null) {
+                responded.countDown();
+            }
+
+            //check if request was successful , then parse the input stream
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                inputStream = urlConnection.getInputStream();
+                //count the bytes received and the time spent waiting for them
+                PipelineMetrics.MeteredInputStream meteredStream = null;
+                if (PipelineMetrics.isEnabled()) {
+                    meteredStream = new PipelineMetrics.MeteredInputStream(inputStream);
+                    inputStream = meteredStream;
+                }
+                if ("gzip".equalsIgnoreCase(urlConnection.getContentEncoding())) {
+                    inputStream = new GZIPInputStream(inputStream);
+                }
+                inputStream = cancellation.wrap(inputStream);
+                long parseStart = PipelineMetrics.start();
+                earthquakes = extractFeaturesFromStream(inputStream, isCsv(urlConnection.getContentType()));
+                if (cacheEnabled) {
+                    earthquakes = sResultCache.put(cacheKey, urlConnection.getHeaderField("ETag"),
+                            urlConnection.getHeaderField("Last-Modified"), earthquakes);
+                }
+                if (meteredStream != null && parseStart != 0) {
+                    recordBody(meteredStream, parseStart, earthquakes.size());
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                //nothing changed since the last response, reuse its result
+                earthquakes = cached.mEarthquakes;
+            } else if (policy.isRetriable(responseCode)) {
+                throw new IOException("Error response code: " + responseCode);
+            } else {
+                LOG.severe("Error response code: " + responseCode);
+                return null;
+            }
+            policy.recordLatency(latencyMillis);
+
+        } catch (RuntimeException e) {
+            // a connection disconnected from another thread may fail in unchecked ways
+            if (!cancellation.isCancelled()) {
+                throw e;
+            }
+            throw new InterruptedIOException("Request cancelled");
+        } finally {
+            PipelineMetrics.endSection();
+            if (urlConnection != null) {
+                cancellation.detach(urlConnection);
+                urlConnection.disconnect();
+            }
+            if (inputStream != null) {
+                inputStream.close(); //throws IOException
+            }
+        }
+
+        return earthquakes;
+
+    }
+
+    /**
+     * Helper method for {@link #makeSingleRequest(URL, FetchCancellation, FetchPolicy, CountDownLatch)}
+     * <p>
+     * record the download and parse metrics of a response body: the parse is streamed,
+     * so its time is the time spent consuming the body minus the time waiting for bytes
+     */
+    private static void recordBody(PipelineMetrics.MeteredInputStream meteredStream, long parseStart,
+                                   int eventCount) {
+        long readNanos = meteredStream.getReadNanos();
+        PipelineMetrics.record(PipelineMetrics.DOWNLOAD, TimeUnit.NANOSECONDS.toMicros(readNanos));
+        PipelineMetrics.record(PipelineMetrics.PARSE,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - parseStart - readNanos));
+        PipelineMetrics.record(PipelineMetrics.PAYLOAD_BYTES, meteredStream.getByteCount());
+        PipelineMetrics.record(PipelineMetrics.EVENT_COUNT, eventCount);
+    }
+
+    /**
+     * Helper method for {@link #makeSingleRequest(URL, FetchCancellation, FetchPolicy, CountDownLatch)}
+     * <p>
+     * Parse the GeoJSON or CSV {@link InputStream} with the calling thread's
+     * {@link EarthquakeJsonParser} or {@link EarthquakeCsvParser}, without buffering the whole response.
+     *
+     * @param inputStream is the response stream
+     * @param csv         is true for a CSV response
+     * @return list of {@link Earthquake} objects
+     */
+    private static List<Earthquake> extractFeaturesFromStream(InputStream inputStream, boolean csv)
+            throws IOException {
+        return csv ? sCsvParser.get().parse(inputStream) : sParser.get().parse(inputStream);
+    }
+
+    /**
+     * @param contentType is the content type of a response, i.e. "text/csv;charset=UTF-8", or null
+     * @return true if the response is CSV
+     */
+    private static boolean isCsv(String contentType) {
+        return contentType != null && contentType.regionMatches(true, 0, "text/csv", 0, "text/csv".length());
+    }
+
+
+}
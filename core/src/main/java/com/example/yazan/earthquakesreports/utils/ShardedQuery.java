@@ -0,0 +1,304 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ShardedQuery} fetches a USGS query over a large time window as several smaller
+ * windows ("shards") in parallel, then merges them back in the order of the query.
+ * <p>
+ * Each shard is one request, parsed on its own thread, so the whole window takes about
+ * as long as the slowest shard instead of the sum of all of them. The shards run on a
+ * bounded executor shared by all the queries of the app.
+ * A {@link ShardedQuery} fetches once, {@link #cancel()} stops all of its shards.
+ */
+public final class ShardedQuery {
+
+    /**
+     * windows shorter than two shards of this length are not worth splitting
+     */
+    private static final long MIN_SHARD_WINDOW = TimeUnit.DAYS.toMillis(2);
+
+    /**
+     * maximum number of shards of one query
+     */
+    private static final int MAX_SHARDS = 8;
+
+    /**
+     * maximum number of shard requests in flight, for all queries
+     */
+    private static final int SHARD_THREADS = 4;
+
+    private static final ExecutorService SHARD_EXECUTOR = Executors.newFixedThreadPool(SHARD_THREADS,
+            new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "earthquake-shard-" + mCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * USGS time parameter formats, from the most to the least precise
+     */
+    private static final String[] TIME_PATTERNS = {
+            "yyyy-MM-dd'T'HH:mm:ss.SSS", "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd'T'HH:mm", "yyyy-MM-dd"};
+
+    private final List<String> mShardUrls;
+    private final Comparator<Earthquake> mOrder;
+
+    private List<Future<List<Earthquake>>> mFutures;
+    private boolean mCancelled;
+
+    /** disconnects the requests of all the shards */
+    private final FetchCancellation mCancellation = new FetchCancellation();
+
+    /**
+     * Construct a new {@link ShardedQuery} object.
+     *
+     * @param queryUrl  is the USGS query URL without time window and paging parameters
+     * @param startTime is the start of the window, unix time in milliseconds
+     * @param endTime   is the end of the window, unix time in milliseconds
+     * @param orderBy   is the USGS "orderby" value of the query, null for the default order
+     */
+    public ShardedQuery(String queryUrl, long startTime, long endTime, String orderBy) {
+        mShardUrls = buildShardUrls(queryUrl, startTime, endTime);
+        mOrder = getOrder(orderBy);
+    }
+
+    /**
+     * @return true if the window is large enough to be fetched in parallel shards
+     */
+    public static boolean isLarge(long startTime, long endTime) {
+        return endTime - startTime >= 2 * MIN_SHARD_WINDOW;
+    }
+
+    /**
+     * @return URLs of the shard requests, from the oldest to the newest window
+     */
+    public List<String> getShardUrls() {
+        return mShardUrls;
+    }
+
+    /**
+     * Fetch all the shards in parallel and wait for them, this must not be called on
+     * the main thread.
+     *
+     * @return merged earthquakes of the whole window in the order of the query,
+     * or null if a shard failed or the query was cancelled
+     */
+    public List<Earthquake> fetch() {
+        List<Future<List<Earthquake>>> futures = new ArrayList<>(mShardUrls.size());
+        synchronized (this) {
+            if (mCancelled || mFutures != null) {
+                return null;
+            }
+            for (final String shardUrl : mShardUrls) {
+                futures.add(SHARD_EXECUTOR.submit(new Callable<List<Earthquake>>() {
+                    @Override
+                    public List<Earthquake> call() {
+                        return QueryUtils.fetchEarthquakeData(shardUrl, mCancellation);
+                    }
+                }));
+            }
+            mFutures = futures;
+        }
+
+        List<List<Earthquake>> shards = new ArrayList<>(futures.size());
+        try {
+            for (Future<List<Earthquake>> future : futures) {
+                List<Earthquake> shard = future.get();
+                if (shard == null) {
+                    // the window would have a hole, drop the other shards too
+                    cancel();
+                    return null;
+                }
+                shards.add(shard);
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            cancel();
+            return null;
+        } catch (CancellationException e) {
+            return null;
+        }
+
+        return merge(shards, mOrder);
+    }
+
+    /**
+     * Cancel all the shards of the query, the running requests are disconnected and
+     * {@link #fetch()} returns null.
+     */
+    public void cancel() {
+        mCancellation.cancel();
+        List<Future<List<Earthquake>>> futures;
+        synchronized (this) {
+            mCancelled = true;
+            futures = mFutures;
+        }
+        if (futures != null) {
+            for (Future<List<Earthquake>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Parse a USGS time parameter (i.e. "2017-02-08" or "2017-02-08T10:24:30"), in UTC.
+     *
+     * @param time is the value of a "starttime" or "endtime" parameter
+     * @return unix time in milliseconds, or -1 if it is missing or not a supported format
+     */
+    public static long parseTime(String time) {
+        if (time == null) {
+            return -1;
+        }
+        for (String pattern : TIME_PATTERNS) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            format.setLenient(false);
+            try {
+                return format.parse(time).getTime();
+            } catch (ParseException e) {
+                // try the next, less precise, pattern
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Helper method for {@link #ShardedQuery(String, long, long, String)}
+     * <p>
+     * split the window into equal shards, each one becomes its own query URL
+     */
+    private static List<String> buildShardUrls(String queryUrl, long startTime, long endTime) {
+        long window = Math.max(endTime - startTime, 1);
+        int shardCount = (int) Math.max(1, Math.min(MAX_SHARDS, window / MIN_SHARD_WINDOW));
+        String separator = queryUrl.indexOf('?') >= 0 ? "&" : "?";
+
+        List<String> shardUrls = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            long shardStart = startTime + window * i / shardCount;
+            long shardEnd = startTime + window * (i + 1) / shardCount;
+            shardUrls.add(queryUrl + separator
+                    + "starttime=" + formatTime(shardStart)
+                    + "&endtime=" + formatTime(shardEnd));
+        }
+        return shardUrls;
+    }
+
+    /**
+     * Helper method for {@link #fetch()}
+     * <p>
+     * merge the shards, each already sorted by USGS in the order of the query, and drop
+     * the events returned twice by two shards sharing a boundary
+     *
+     * @param shards are the earthquakes of every shard
+     * @param order  is the order of the query
+     * @return one list in the order of the query
+     */
+    static List<Earthquake> merge(List<List<Earthquake>> shards, Comparator<Earthquake> order) {
+        int total = 0;
+        for (List<Earthquake> shard : shards) {
+            total += shard.size();
+        }
+
+        List<Earthquake> merged = new ArrayList<>(total);
+        Set<String> mergedIds = new HashSet<>(total * 2);
+        int[] positions = new int[shards.size()];
+        while (true) {
+            // take the first remaining earthquake of all the shards
+            int next = -1;
+            for (int i = 0; i < shards.size(); i++) {
+                if (positions[i] < shards.get(i).size() && (next < 0 || order.compare(
+                        shards.get(i).get(positions[i]), shards.get(next).get(positions[next])) < 0)) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                return merged;
+            }
+            Earthquake earthquake = shards.get(next).get(positions[next]++);
+            if (mergedIds.add(earthquake.getId())) {
+                merged.add(earthquake);
+            }
+        }
+    }
+
+    /**
+     * @param orderBy is the USGS "orderby" value, null for the default order
+     * @return comparator of the earthquakes in the order USGS returns them
+     */
+    public static Comparator<Earthquake> getOrder(String orderBy) {
+        if ("time-asc".equals(orderBy)) {
+            return new Comparator<Earthquake>() {
+                @Override
+                public int compare(Earthquake first, Earthquake second) {
+                    return compareLongs(first.getTimeInMilliseconds(), second.getTimeInMilliseconds());
+                }
+            };
+        } else if ("magnitude".equals(orderBy)) {
+            return new Comparator<Earthquake>() {
+                @Override
+                public int compare(Earthquake first, Earthquake second) {
+                    return Double.compare(second.getMagnitude(), first.getMagnitude());
+                }
+            };
+        } else if ("magnitude-asc".equals(orderBy)) {
+            return new Comparator<Earthquake>() {
+                @Override
+                public int compare(Earthquake first, Earthquake second) {
+                    return Double.compare(first.getMagnitude(), second.getMagnitude());
+                }
+            };
+        }
+        // "time", the USGS default: most recent first
+        return new Comparator<Earthquake>() {
+            @Override
+            public int compare(Earthquake first, Earthquake second) {
+                return compareLongs(second.getTimeInMilliseconds(), first.getTimeInMilliseconds());
+            }
+        };
+    }
+
+    private static int compareLongs(long first, long second) {
+        return first < second ? -1 : (first == second ? 0 : 1);
+    }
+
+    /**
+     * Format a USGS time parameter, the reverse of {@link #parseTime(String)}.
+     *
+     * @return ISO 8601 UTC time (i.e. "2017-03-08T10:24:30.440")
+     */
+    public static String formatTime(long timeInMilliseconds) {
+        SimpleDateFormat format = new SimpleDateFormat(TIME_PATTERNS[0], Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(timeInMilliseconds));
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link SingleFlight} makes concurrent calls with the same key share one execution:
+ * the first caller runs it, the callers arriving while it runs wait for its result
+ * instead of running it again.
+ * <p>
+ * Every caller can leave with its own {@link FetchCancellation}. The shared execution
+ * is only cancelled once all of its callers have left, so a cancelled caller does not
+ * fail the others. A waiting caller returns as soon as it is cancelled, the caller
+ * running the execution finishes it for the others first.
+ *
+ * @param <T> is the type of the result
+ */
+final class SingleFlight<T> {
+
+    /**
+     * The work shared by the callers of one key.
+     */
+    interface Call<T> {
+
+        /**
+         * @param cancellation is cancelled once no caller waits for the result anymore
+         * @return the result handed to every caller
+         */
+        T call(FetchCancellation cancellation);
+    }
+
+    /**
+     * One execution in progress and the callers waiting for it, guarded by itself.
+     */
+    private static final class Flight<T> {
+
+        final FetchCancellation mCancellation = new FetchCancellation();
+        int mCallerCount;
+        boolean mDone;
+        T mResult;
+    }
+
+    /** executions in progress by key, guarded by itself */
+    private final Map<String, Flight<T>> mFlights = new HashMap<>();
+
+    /**
+     * Run the call, or wait for the call already running with the same key.
+     *
+     * @param key          identifies equivalent calls
+     * @param cancellation makes this caller stop waiting and return null, or null
+     * @param call         is run if no call with the same key is running
+     * @return the shared result, or null if this caller was cancelled
+     */
+    T execute(final String key, final FetchCancellation cancellation, Call<T> call) {
+        final Flight<T> flight;
+        boolean leader = false;
+        synchronized (mFlights) {
+            Flight<T> running = mFlights.get(key);
+            if (running == null) {
+                running = new Flight<>();
+                mFlights.put(key, running);
+                leader = true;
+            }
+            flight = running;
+            synchronized (flight) {
+                flight.mCallerCount++;
+            }
+        }
+
+        Runnable leave = new Runnable() {
+            @Override
+            public void run() {
+                leave(key, flight);
+            }
+        };
+        if (cancellation != null && !cancellation.addListener(leave)) {
+            leave(key, flight);
+            if (!leader) {
+                return null;
+            }
+        }
+
+        try {
+            if (leader) {
+                T result = null;
+                try {
+                    result = call.call(flight.mCancellation);
+                } finally {
+                    // the callers waiting get null if the call failed
+                    finish(key, flight, result);
+                }
+            }
+            return await(flight, cancellation);
+        } finally {
+            if (cancellation != null) {
+                cancellation.removeListener(leave);
+            }
+        }
+    }
+
+    /**
+     * @return number of callers of the execution in progress with the key, 0 if there is none
+     */
+    int getCallerCount(String key) {
+        Flight<T> flight;
+        synchronized (mFlights) {
+            flight = mFlights.get(key);
+        }
+        if (flight == null) {
+            return 0;
+        }
+        synchronized (flight) {
+            return flight.mCallerCount;
+        }
+    }
+
+    /**
+     * Helper method for {@link #execute(String, FetchCancellation, Call)}
+     * <p>
+     * wait for the result of the flight, or for the cancellation of the caller
+     */
+    private T await(Flight<T> flight, FetchCancellation cancellation) {
+        boolean interrupted = false;
+        try {
+            synchronized (flight) {
+                while (!flight.mDone && (cancellation == null || !cancellation.isCancelled())) {
+                    try {
+                        flight.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                return cancellation != null && cancellation.isCancelled() ? null : flight.mResult;
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Helper method for {@link #execute(String, FetchCancellation, Call)}
+     * <p>
+     * hand the result to the waiting callers, new callers of the key start a new flight
+     */
+    private void finish(String key, Flight<T> flight, T result) {
+        synchronized (mFlights) {
+            if (mFlights.get(key) == flight) {
+                mFlights.remove(key);
+            }
+        }
+        synchronized (flight) {
+            flight.mResult = result;
+            flight.mDone = true;
+            flight.notifyAll();
+        }
+    }
+
+    /**
+     * Helper method for {@link #execute(String, FetchCancellation, Call)}
+     * <p>
+     * a caller was cancelled: wake it up, and cancel the flight if nobody waits for it anymore
+     */
+    private void leave(String key, Flight<T> flight) {
+        boolean abandoned;
+        synchronized (mFlights) {
+            synchronized (flight) {
+                flight.mCallerCount--;
+                abandoned = flight.mCallerCount == 0 && !flight.mDone;
+                flight.notifyAll();
+            }
+            // new callers must not join a cancelled flight
+            if (abandoned && mFlights.get(key) == flight) {
+                mFlights.remove(key);
+            }
+        }
+        if (abandoned) {
+            flight.mCancellation.cancel();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.yazan.earthquakesreports.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeAggregator}, checked against a scan of every event.
+ */
+public class EarthquakeAggregatorTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static final String[] REGIONS = {"Alaska", "CA", "Japan", "Indonesia", "Chile"};
+
+    @Test
+    public void countsEventsPerBucketAndBand() {
+        EarthquakeAggregator aggregator = new EarthquakeAggregator();
+        aggregator.add(earthquake("a", 4.5, "10km N of Anchorage, Alaska", 10 * HOUR + 1, 1));
+        aggregator.add(earthquake("b", 4.9, "Fiji region", 11 * HOUR - 1, 1));
+        aggregator.add(earthquake("c", 0.3, "5km S of Ridgecrest, CA", 11 * HOUR, 1));
+        aggregator.add(earthquake("d", Double.NaN, "Nowhere", 11 * HOUR, 1));
+
+        assertEquals(3, aggregator.size());
+        assertEquals(2, aggregator.getCount(10 * HOUR + 30, 4));
+        assertEquals(1, aggregator.getCount(11 * HOUR, 0));
+        assertEquals(0, aggregator.getCount(12 * HOUR, 0));
+        assertEquals(10 * HOUR, aggregator.getBucketStart(11 * HOUR - 1));
+        assertEquals(EarthquakeAggregator.BAND_COUNT, aggregator.getBandCounts(12 * HOUR).length);
+        assertEquals(-HOUR, aggregator.getBucketStart(-1));
+        assertEquals(0, EarthquakeAggregator.getBand(-0.5));
+        assertEquals(EarthquakeAggregator.BAND_COUNT - 1, EarthquakeAggregator.getBand(9.5));
+
+        assertEquals("Alaska", EarthquakeAggregator.getRegion("10km N of Anchorage, Alaska"));
+        assertEquals("Fiji region", EarthquakeAggregator.getRegion("Fiji region"));
+        assertEquals(3, aggregator.getRegions().size());
+        assertEquals(4.9, aggregator.getMaxMagnitude("Fiji region"), 0);
+        assertTrue(Double.isNaN(aggregator.getMaxMagnitude("Nowhere")));
+    }
+
+    @Test
+    public void revisionsMoveTheirContribution() {
+        EarthquakeAggregator aggregator = new EarthquakeAggregator();
+        aggregator.add(earthquake("a", 4.5, "Alaska", HOUR, 1));
+        aggregator.add(earthquake("b", 3.0, "Alaska", HOUR, 1));
+
+        // the revised magnitude and time replace the first ones
+        assertTrue(aggregator.add(earthquake("a", 5.2, "10km N of Tokyo, Japan", 3 * HOUR, 2)));
+        assertEquals(0, aggregator.getCount(HOUR, 4));
+        assertEquals(1, aggregator.getCount(3 * HOUR, 5));
+        assertEquals(1, aggregator.getEventCount("Alaska"));
+        assertEquals(1, aggregator.getEventCount("Japan"));
+        assertEquals(2, aggregator.size());
+        assertEquals(4.1, aggregator.getMeanMagnitude(null), 1e-9);
+
+        // an older or the same version changes nothing
+        assertFalse(aggregator.add(earthquake("a", 1.0, "Alaska", HOUR, 1)));
+        assertFalse(aggregator.add(earthquake("a", 1.0, "Alaska", HOUR, 2)));
+        assertEquals(5.2, aggregator.getMaxMagnitude(null), 0);
+
+        assertTrue(aggregator.remove("a"));
+        assertFalse(aggregator.remove("a"));
+        assertEquals(Collections.singletonList("Alaska"), aggregator.getRegions());
+        assertEquals(3.0, aggregator.getMaxMagnitude(null), 0);
+
+        // a removed event comes back with any version
+        assertTrue(aggregator.add(earthquake("a", 6.0, "Alaska", HOUR, 1)));
+        assertEquals(6.0, aggregator.getMaxMagnitude("Alaska"), 0);
+
+        aggregator.clear();
+        assertEquals(0, aggregator.size());
+        assertTrue(aggregator.getRegions().isEmpty());
+        assertTrue(Double.isNaN(aggregator.getMeanMagnitude(null)));
+        assertTrue(aggregator.add(earthquake("a", 4.0, "Alaska", HOUR, 1)));
+    }
+
+    @Test
+    public void summariesMatchScanAfterRevisions() {
+        Random random = new Random(7);
+        EarthquakeAggregator aggregator = new EarthquakeAggregator();
+        List<Earthquake> current = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Earthquake earthquake = randomEarthquake(random, "us" + i, 1);
+            aggregator.add(earthquake);
+            current.add(earthquake);
+        }
+        // revise a fifth of the events, often the largest ones
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(current.size());
+            Earthquake revision = randomEarthquake(random, current.get(index).getId(), 2 + i);
+            aggregator.add(revision);
+            current.set(index, revision);
+        }
+
+        for (String region : REGIONS) {
+            List<Double> magnitudes = new ArrayList<>();
+            double sum = 0;
+            for (Earthquake earthquake : current) {
+                if (EarthquakeAggregator.getRegion(earthquake.getLocation()).equals(region)) {
+                    magnitudes.add(earthquake.getMagnitude());
+                    sum += earthquake.getMagnitude();
+                }
+            }
+            Collections.sort(magnitudes);
+
+            assertEquals(region, magnitudes.size(), aggregator.getEventCount(region));
+            assertEquals(region, magnitudes.get(0), aggregator.getMinMagnitude(region), 0.05);
+            assertEquals(region, magnitudes.get(magnitudes.size() - 1), aggregator.getMaxMagnitude(region), 0.05);
+            assertEquals(region, sum / magnitudes.size(), aggregator.getMeanMagnitude(region), 1e-6);
+            for (int percentile : new int[]{1, 50, 90, 99, 100}) {
+                int rank = (int) Math.ceil(magnitudes.size() * percentile / 100.0);
+                assertEquals(region + " p" + percentile, magnitudes.get(rank - 1),
+                        aggregator.getMagnitudePercentile(region, percentile), 0.05);
+            }
+        }
+    }
+
+    private static Earthquake randomEarthquake(Random random, String id, long updatedTime) {
+        // magnitudes rounded to a tenth like USGS
+        double magnitude = -0.5 + random.nextInt(90) / 10.0;
+        String location = random.nextInt(100) + "km N of Somewhere, " + REGIONS[random.nextInt(REGIONS.length)];
+        return earthquake(id, magnitude, location, random.nextInt(1000) * HOUR, updatedTime);
+    }
+
+    private static Earthquake earthquake(String id, double magnitude, String location, long time, long updatedTime) {
+        return new Earthquake(id, magnitude, location, time, updatedTime, "");
+    }
+}
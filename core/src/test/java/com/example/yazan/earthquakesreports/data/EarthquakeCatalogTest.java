@@ -0,0 +1,101 @@
+package com.example.yazan.earthquakesreports.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeCatalog}.
+ */
+public class EarthquakeCatalogTest {
+
+    private static final String[] REGIONS = {
+            " Khalatse, India", " Carmen de Patagones, Argentina", " Hualañé, Chile",
+            " Ōfunato, Japan", " Abepura, Papua New Guinea", " the Kermadec Islands"
+    };
+
+    private static final String[] DIRECTIONS = {"N", "NNE", "NE", "E", "SE", "S", "SW", "W", "WSW", "NW"};
+
+    @Test
+    public void rowsReadBackAsAdded() {
+        List<Earthquake> earthquakes = createList(500);
+        earthquakes.add(new Earthquake("ci38457511", 7.1, "Ridgecrest Earthquake Sequence",
+                1562383193040L, 1562383293040L, "https://example.org/ci38457511"));
+        EarthquakeCatalog catalog = EarthquakeCatalog.of(earthquakes);
+
+        assertEquals(earthquakes.size(), catalog.size());
+        for (int row = 0; row < catalog.size(); row++) {
+            Earthquake expected = earthquakes.get(row);
+            Earthquake actual = catalog.get(row);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getMagnitude(), actual.getMagnitude(), 0);
+            assertEquals(expected.getLocation(), actual.getLocation());
+            assertEquals(expected.getTimeInMilliseconds(), actual.getTimeInMilliseconds());
+            assertEquals(expected.getUpdatedTimeInMilliseconds(), actual.getUpdatedTimeInMilliseconds());
+            assertEquals(expected.getUrl(), actual.getUrl());
+        }
+    }
+
+    @Test
+    public void locationsAreDictionaryEncoded() {
+        EarthquakeCatalog catalog = EarthquakeCatalog.of(createList(1000));
+
+        assertEquals(REGIONS.length, catalog.getRegionCount());
+        assertEquals(catalog.getRegionCode(0), catalog.getRegionCode(REGIONS.length));
+        assertSame(catalog.getRegion(0), catalog.getRegion(REGIONS.length));
+        assertEquals("0km N of", catalog.getLocationOffset(0));
+    }
+
+    @Test
+    public void locationWithoutOffset() {
+        EarthquakeCatalog catalog = new EarthquakeCatalog();
+        catalog.add("us1", 5.0, "Fiji region", 1L, 1L, "https://earthquake.usgs.gov/earthquakes/eventpage/us1");
+
+        assertEquals("", catalog.getLocationOffset(0));
+        assertEquals("Fiji region", catalog.getRegion(0));
+        assertEquals("Fiji region", catalog.getLocation(0));
+    }
+
+    @Test
+    public void selectsByMagnitudeWithoutViews() {
+        EarthquakeCatalog catalog = EarthquakeCatalog.of(createList(300));
+
+        int[] rows = catalog.selectByMagnitude(5.0, 5.5);
+
+        assertTrue(rows.length > 0);
+        int expectedCount = 0;
+        for (int row = 0; row < catalog.size(); row++) {
+            double magnitude = catalog.getMagnitude(row);
+            if (magnitude >= 5.0 && magnitude <= 5.5) {
+                assertEquals(row, rows[expectedCount++]);
+            }
+        }
+        assertEquals(expectedCount, rows.length);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rowOutOfRange() {
+        EarthquakeCatalog.of(createList(3)).getMagnitude(3);
+    }
+
+    private static List<Earthquake> createList(int size) {
+        List<Earthquake> earthquakes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            earthquakes.add(createEarthquake(i));
+        }
+        return earthquakes;
+    }
+
+    /**
+     * @return an earthquake with fresh String instances, as the parser would create them
+     */
+    private static Earthquake createEarthquake(int i) {
+        String id = "us2000" + Integer.toString(i, 36);
+        String location = (i % 50) + "km " + DIRECTIONS[i % DIRECTIONS.length] + " of " + REGIONS[i % REGIONS.length].substring(1);
+        return new Earthquake(id, 2.5 + (i % 60) / 10.0, location, 1488961470440L - i * 1000L,
+                1488961470440L - i * 500L, "https://earthquake.usgs.gov/earthquakes/eventpage/" + id);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.yazan.earthquakesreports.data;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeQueryEngine}, checked against a sort of every row.
+ */
+public class EarthquakeQueryEngineTest {
+
+    private static final int EVENT_COUNT = 20000;
+
+    private static final String[] ORDERS = {
+            EarthquakeQueryEngine.ORDER_BY_TIME, EarthquakeQueryEngine.ORDER_BY_TIME_ASC,
+            EarthquakeQueryEngine.ORDER_BY_MAGNITUDE, EarthquakeQueryEngine.ORDER_BY_MAGNITUDE_ASC};
+
+    private static EarthquakeCatalog sCatalog;
+    private static EarthquakeQueryEngine sEngine;
+
+    @BeforeClass
+    public static void buildEngine() {
+        Random random = new Random(7);
+        sCatalog = new EarthquakeCatalog(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            // magnitudes rounded to a tenth like USGS, so many rows share one
+            double magnitude = 2 + random.nextInt(60) / 10.0;
+            long time = random.nextInt(Integer.MAX_VALUE);
+            sCatalog.add("us" + i, magnitude, "Somewhere", time, time, "");
+        }
+        sEngine = new EarthquakeQueryEngine(sCatalog, 2, 8, EarthquakeQueryEngine.ORDER_BY_TIME, true);
+    }
+
+    @Test
+    public void selectMatchesSortedScan() {
+        double[][] ranges = {{2, 8}, {4.5, 4.5}, {3.1, 5.7}, {7.9, 9}, {6, 5}};
+        for (String orderBy : ORDERS) {
+            for (double[] range : ranges) {
+                String message = orderBy + " " + range[0] + ".." + range[1];
+                assertRows(message, scan(range[0], range[1], orderBy),
+                        sEngine.select(range[0], range[1], orderBy, Integer.MAX_VALUE));
+            }
+        }
+    }
+
+    @Test
+    public void selectStopsAtTheLimit() {
+        int[] expected = scan(4, 5, EarthquakeQueryEngine.ORDER_BY_MAGNITUDE);
+        int[] rows = sEngine.select(4, 5, EarthquakeQueryEngine.ORDER_BY_MAGNITUDE, 20);
+
+        assertEquals(20, rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(sCatalog.getMagnitude(expected[i]), sCatalog.getMagnitude(rows[i]), 0);
+        }
+        assertEquals(20, sEngine.select(4, 5, null, 20).length);
+    }
+
+    @Test
+    public void completeCatalogAnswersAnyOrderWithinItsRange() {
+        assertTrue(sEngine.answers(4, 6, EarthquakeQueryEngine.ORDER_BY_MAGNITUDE));
+        assertTrue(sEngine.answers(2, 8, EarthquakeQueryEngine.ORDER_BY_TIME_ASC));
+        assertFalse(sEngine.answers(1.5, 8, EarthquakeQueryEngine.ORDER_BY_TIME));
+        assertFalse(sEngine.answers(4, 9, EarthquakeQueryEngine.ORDER_BY_TIME));
+    }
+
+    @Test
+    public void loadedPagesOnlyAnswerTheSameOrder() {
+        EarthquakeQueryEngine engine = new EarthquakeQueryEngine(sCatalog, 4, 8, null, false);
+
+        assertTrue(engine.answers(5, 8, EarthquakeQueryEngine.ORDER_BY_TIME));
+        assertTrue(engine.answers(5, 8, null));
+        assertFalse(engine.answers(5, 8, EarthquakeQueryEngine.ORDER_BY_MAGNITUDE));
+        assertFalse(engine.answers(3, 8, EarthquakeQueryEngine.ORDER_BY_TIME));
+    }
+
+    /**
+     * the rows within the range, sorted like USGS with ties broken by most recent first
+     */
+    private static int[] scan(double minMagnitude, double maxMagnitude, final String orderBy) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < sCatalog.size(); row++) {
+            double magnitude = sCatalog.getMagnitude(row);
+            if (magnitude >= minMagnitude && magnitude <= maxMagnitude) {
+                rows.add(row);
+            }
+        }
+        Collections.sort(rows, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                int byMagnitude = Double.compare(sCatalog.getMagnitude(second), sCatalog.getMagnitude(first));
+                int byTime = Long.compare(sCatalog.getTimeInMilliseconds(second),
+                        sCatalog.getTimeInMilliseconds(first));
+                if (orderBy.startsWith("magnitude")) {
+                    return byMagnitude != 0 ? byMagnitude : byTime;
+                }
+                return byTime;
+            }
+        });
+        if (orderBy.endsWith("-asc")) {
+            Collections.reverse(rows);
+        }
+
+        int[] array = new int[rows.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = rows.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * rows with equal sort keys may come in any order, so compare the keys
+     */
+    private static void assertRows(String message, int[] expected, int[] rows) {
+        assertEquals(message, expected.length, rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(message, sCatalog.getMagnitude(expected[i]), sCatalog.getMagnitude(rows[i]), 0);
+            assertEquals(message, sCatalog.getTimeInMilliseconds(expected[i]),
+                    sCatalog.getTimeInMilliseconds(rows[i]));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.yazan.earthquakesreports.data;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeSnapshot}.
+ */
+public class EarthquakeSnapshotTest {
+
+    private static final String QUERY_URL =
+            "https://earthquake.usgs.gov/fdsnws/event/1/query?format=geojson&orderby=time&minmagnitude=4";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private EarthquakeSnapshot mSnapshot;
+
+    @Before
+    public void createSnapshot() {
+        mFile = new File(mFolder.getRoot(), EarthquakeSnapshot.FILE_NAME);
+        mSnapshot = new EarthquakeSnapshot(mFile);
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        List<Earthquake> earthquakes = Arrays.asList(
+                new Earthquake("us20008vhl", 6.5, "47km SSW of Khalatse, India", 1488965042000L,
+                        1488966000000L, "https://earthquake.usgs.gov/earthquakes/eventpage/us20008vhl",
+                        33.9, 76.7, 10),
+                // unknown coordinates, a repeated location and a non ASCII one
+                new Earthquake("us20008vhm", 4.1, "47km SSW of Khalatse, India", 1488965000000L,
+                        1488965000000L, "https://example.com/ü", Double.NaN, Double.NaN, Double.NaN),
+                new Earthquake("us20008vhn", 2.2, "Ōfunato, Japan", 1488964000000L,
+                        1488964000000L, null));
+        mSnapshot.write(QUERY_URL, earthquakes);
+
+        List<Earthquake> read = mSnapshot.read(QUERY_URL);
+
+        assertEquals(earthquakes.size(), read.size());
+        for (int i = 0; i < earthquakes.size(); i++) {
+            Earthquake expected = earthquakes.get(i);
+            Earthquake actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getMagnitude(), actual.getMagnitude(), 0);
+            assertEquals(expected.getLocation(), actual.getLocation());
+            assertEquals(expected.getTimeInMilliseconds(), actual.getTimeInMilliseconds());
+            assertEquals(expected.getUpdatedTimeInMilliseconds(), actual.getUpdatedTimeInMilliseconds());
+            assertEquals(expected.getUrl(), actual.getUrl());
+            assertEquals(expected.getLatitude(), actual.getLatitude(), 0);
+            assertEquals(expected.getLongitude(), actual.getLongitude(), 0);
+            assertEquals(expected.getDepth(), actual.getDepth(), 0);
+        }
+    }
+
+    @Test
+    public void snapshotOfAnotherQueryIsNotRead() throws IOException {
+        mSnapshot.write(QUERY_URL, earthquakes(3));
+
+        assertNull(mSnapshot.read(QUERY_URL.replace("minmagnitude=4", "minmagnitude=5")));
+        assertEquals(3, mSnapshot.read(QUERY_URL).size());
+    }
+
+    @Test
+    public void missingSnapshotIsNotRead() {
+        assertNull(mSnapshot.read(QUERY_URL));
+    }
+
+    @Test
+    public void corruptSnapshotIsDeleted() throws IOException {
+        mSnapshot.write(QUERY_URL, earthquakes(10));
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            // flip a bit of a magnitude
+            file.seek(32 + 72 * 5);
+            int value = file.read();
+            file.seek(32 + 72 * 5);
+            file.write(value ^ 1);
+        } finally {
+            file.close();
+        }
+
+        assertNull(mSnapshot.read(QUERY_URL));
+        assertFalse(mFile.exists());
+    }
+
+    @Test
+    public void truncatedSnapshotIsNotRead() throws IOException {
+        mSnapshot.write(QUERY_URL, earthquakes(10));
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(file.length() - 1);
+        } finally {
+            file.close();
+        }
+
+        assertNull(mSnapshot.read(QUERY_URL));
+    }
+
+    @Test
+    public void snapshotOfAnotherVersionIsNotRead() throws IOException {
+        mSnapshot.write(QUERY_URL, earthquakes(10));
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.seek(4);
+            file.writeInt(EarthquakeSnapshot.VERSION + 1);
+        } finally {
+            file.close();
+        }
+
+        assertNull(mSnapshot.read(QUERY_URL));
+    }
+
+    @Test
+    public void writeReplacesThePreviousSnapshot() throws IOException {
+        mSnapshot.write(QUERY_URL, earthquakes(10));
+        mSnapshot.write(QUERY_URL, earthquakes(4));
+
+        assertEquals(4, mSnapshot.read(QUERY_URL).size());
+        // no temporary file is left behind
+        assertEquals(1, mFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void readsBackThousandsOfEvents() throws IOException {
+        List<Earthquake> earthquakes = earthquakes(5000);
+        mSnapshot.write(QUERY_URL, earthquakes);
+
+        List<Earthquake> read = mSnapshot.read(QUERY_URL);
+        assertEquals(earthquakes.size(), read.size());
+        for (int i = 0; i < earthquakes.size(); i++) {
+            assertEquals(earthquakes.get(i).getId(), read.get(i).getId());
+            assertEquals(earthquakes.get(i).getLocation(), read.get(i).getLocation());
+            assertEquals(earthquakes.get(i).getTimeInMilliseconds(), read.get(i).getTimeInMilliseconds());
+        }
+    }
+
+    private static List<Earthquake> earthquakes(int count) {
+        List<Earthquake> earthquakes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = "us" + (20008000 + i);
+            earthquakes.add(new Earthquake(id, 2 + i % 60 / 10.0, (i % 90) + "km SSW of Region " + (i % 40),
+                    1488965042000L - i * 60000L, 1488965042000L, "https://earthquake.usgs.gov/earthquakes/eventpage/" + id,
+                    i % 90, i % 180, i % 30));
+        }
+        return earthquakes;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.yazan.earthquakesreports.data;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeSpatialIndex}, checked against a scan of every row.
+ */
+public class EarthquakeSpatialIndexTest {
+
+    private static final int EVENT_COUNT = 50000;
+
+    /**
+     * query centers: Tokyo, Anchorage, near the north pole, on the 180th meridian
+     */
+    private static final double[][] CENTERS = {{35.68, 139.69}, {61.22, -149.9}, {89.5, 10}, {-17.5, 180}};
+
+    private static EarthquakeCatalog sCatalog;
+    private static EarthquakeSpatialIndex sIndex;
+
+    @BeforeClass
+    public static void buildIndex() {
+        Random random = new Random(42);
+        sCatalog = new EarthquakeCatalog(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            // uniform over the sphere, plus one event without coordinates in a hundred
+            double latitude = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double longitude = random.nextDouble() * 360 - 180;
+            if (i % 100 == 0) {
+                latitude = Double.NaN;
+            }
+            sCatalog.add("us" + i, 2.5, "Somewhere", i, i, "", latitude, longitude, 10);
+        }
+        sIndex = new EarthquakeSpatialIndex(sCatalog);
+    }
+
+    @Test
+    public void skipsRowsWithoutCoordinates() {
+        assertEquals(EVENT_COUNT - EVENT_COUNT / 100, sIndex.size());
+    }
+
+    @Test
+    public void radiusQueryMatchesFullScan() {
+        for (double[] center : CENTERS) {
+            for (double radiusKm : new double[]{10, 300, 2500}) {
+                int[] expected = scanWithinRadius(center[0], center[1], radiusKm);
+                assertArrayEquals(Arrays.toString(center) + " " + radiusKm + "km",
+                        expected, sIndex.withinRadius(center[0], center[1], radiusKm));
+            }
+        }
+    }
+
+    @Test
+    public void boundingBoxQueryMatchesFullScan() {
+        // Japan, and a box across the 180th meridian
+        assertArrayEquals(scanWithinBox(30, 128, 46, 146), sIndex.withinBoundingBox(30, 128, 46, 146));
+        assertArrayEquals(scanWithinBox(-25, 170, -10, -170), sIndex.withinBoundingBox(-25, 170, -10, -170));
+        assertEquals(sIndex.size(), sIndex.withinBoundingBox(-90, -180, 90, 180).length);
+    }
+
+    @Test
+    public void nearestAreSortedByDistance() {
+        for (double[] center : CENTERS) {
+            int[] nearest = sIndex.nearest(center[0], center[1], 25);
+            assertEquals(25, nearest.length);
+
+            // the 25th nearest found by the index is as close as the 25th of a full scan
+            double[] distances = new double[sIndex.size()];
+            int count = 0;
+            for (int row = 0; row < sCatalog.size(); row++) {
+                if (!Double.isNaN(sCatalog.getLatitude(row))) {
+                    distances[count++] = distance(center, row);
+                }
+            }
+            Arrays.sort(distances, 0, count);
+            for (int i = 0; i < nearest.length; i++) {
+                assertEquals(distances[i], distance(center, nearest[i]), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void distanceBetweenKnownPoints() {
+        // Tokyo to Anchorage, about 5560km
+        assertEquals(5560, EarthquakeSpatialIndex.distanceKm(35.68, 139.69, 61.22, -149.9), 20);
+        assertEquals(0, EarthquakeSpatialIndex.distanceKm(10, 180, 10, -180), 1e-6);
+    }
+
+    private static int[] scanWithinRadius(double latitude, double longitude, double radiusKm) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < sCatalog.size(); row++) {
+            if (!Double.isNaN(sCatalog.getLatitude(row))
+                    && distance(new double[]{latitude, longitude}, row) <= radiusKm) {
+                rows.add(row);
+            }
+        }
+        return toArray(rows);
+    }
+
+    private static int[] scanWithinBox(double south, double west, double north, double east) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < sCatalog.size(); row++) {
+            double latitude = sCatalog.getLatitude(row);
+            double longitude = sCatalog.getLongitude(row);
+            boolean withinLongitudes = west <= east
+                    ? longitude >= west && longitude <= east
+                    : longitude >= west || longitude <= east;
+            if (latitude >= south && latitude <= north && withinLongitudes) {
+                rows.add(row);
+            }
+        }
+        return toArray(rows);
+    }
+
+    private static double distance(double[] center, int row) {
+        return EarthquakeSpatialIndex.distanceKm(center[0], center[1],
+                sCatalog.getLatitude(row), sCatalog.getLongitude(row));
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeChanges}, merging the changes of a sync into the
+ * first page of a "minmagnitude=4&maxmagnitude=8&orderby=magnitude" query.
+ */
+public class EarthquakeChangesTest {
+
+    private static final long NOW = 1488961470000L;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * the default USGS window, the 30 days before now
+     */
+    private static final long WINDOW_START = NOW - 30 * DAY;
+
+    @Test
+    public void changesAreMergedIntoTheListShown() {
+        List<Earthquake> earthquakes = new ArrayList<>(Arrays.asList(
+                earthquake("a", 6.1, NOW - DAY, 1), earthquake("b", 5.4, NOW - 2 * DAY, 1),
+                earthquake("c", 4.2, NOW - 3 * DAY, 1)));
+
+        List<Earthquake> removed = merge(earthquakes, Arrays.asList(
+                earthquake("c", 6.5, NOW - 3 * DAY, 2), earthquake("d", 5.0, NOW, 2)), true);
+
+        assertEquals(Arrays.asList("c", "a", "b", "d"), ids(earthquakes));
+        assertEquals(6.5, earthquakes.get(0).getMagnitude(), 0);
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    public void oldLargeEventDoesNotShowAfterSync() {
+        // revised long after it happened, i.e. an event the store kept from an older query
+        Earthquake old = earthquake("old", 7.8, NOW - 400 * DAY, 2);
+        List<Earthquake> earthquakes = new ArrayList<>(Arrays.asList(
+                earthquake("a", 6.1, NOW - DAY, 1), earthquake("b", 5.4, NOW - 2 * DAY, 1)));
+
+        merge(earthquakes, Collections.singletonList(old), false);
+
+        assertEquals(Arrays.asList("a", "b"), ids(earthquakes));
+    }
+
+    @Test
+    public void eventsLeavingTheQueryAreRemoved() {
+        Earthquake expired = earthquake("expired", 7.0, WINDOW_START - 1, 1);
+        Earthquake revisedOut = earthquake("b", 5.4, NOW - 2 * DAY, 1);
+        List<Earthquake> earthquakes = new ArrayList<>(Arrays.asList(
+                expired, earthquake("a", 6.1, NOW - DAY, 1), revisedOut));
+
+        // revised below the smallest magnitude of the query
+        List<Earthquake> removed = merge(earthquakes,
+                Collections.singletonList(earthquake("b", 3.9, NOW - 2 * DAY, 2)), false);
+
+        assertEquals(Collections.singletonList("a"), ids(earthquakes));
+        assertTrue(removed.contains(expired));
+        assertTrue(removed.contains(revisedOut));
+    }
+
+    @Test
+    public void deletedEventsAreRemoved() throws IOException {
+        List<Earthquake> changes = new EarthquakeJsonParser().parse(new ByteArrayInputStream((
+                "{\"features\":[{\"properties\":{\"mag\":5.4,\"time\":" + (NOW - 2 * DAY)
+                        + ",\"updated\":2,\"status\":\"deleted\"},\"id\":\"b\"}]}").getBytes("UTF-8")));
+        List<Earthquake> earthquakes = new ArrayList<>(Arrays.asList(
+                earthquake("a", 6.1, NOW - DAY, 1), earthquake("b", 5.4, NOW - 2 * DAY, 1)));
+
+        assertTrue(EarthquakeChanges.isDeleted(changes.get(0)));
+        assertFalse(EarthquakeChanges.isDeleted(earthquakes.get(0)));
+        merge(earthquakes, changes, true);
+
+        assertEquals(Collections.singletonList("a"), ids(earthquakes));
+    }
+
+    @Test
+    public void changesAfterTheLastPageAreLeftForTheNextPage() {
+        List<Earthquake> earthquakes = new ArrayList<>(Arrays.asList(
+                earthquake("a", 6.1, NOW - DAY, 1), earthquake("b", 5.4, NOW - 2 * DAY, 1)));
+
+        merge(earthquakes, Collections.singletonList(earthquake("c", 4.4, NOW, 1)), false);
+
+        assertEquals(Arrays.asList("a", "b"), ids(earthquakes));
+    }
+
+    private static List<Earthquake> merge(List<Earthquake> earthquakes, List<Earthquake> changes,
+                                          boolean complete) {
+        return EarthquakeChanges.mergeInto(earthquakes, changes, 4, 8, WINDOW_START,
+                ShardedQuery.getOrder("magnitude"), complete);
+    }
+
+    private static Earthquake earthquake(String id, double magnitude, long time, long updatedTime) {
+        return new Earthquake(id, magnitude, "Somewhere", time, updatedTime, "");
+    }
+
+    private static List<String> ids(List<Earthquake> earthquakes) {
+        List<String> ids = new ArrayList<>();
+        for (Earthquake earthquake : earthquakes) {
+            ids.add(earthquake.getId());
+        }
+        return ids;
+    }
+}
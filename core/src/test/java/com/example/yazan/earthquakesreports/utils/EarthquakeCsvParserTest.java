@@ -0,0 +1,121 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeCsvParser} against the CSV response of the same query
+ * as the recorded GeoJSON response.
+ */
+public class EarthquakeCsvParserTest {
+
+    private static final String FIXTURE = "usgs_query_10.csv";
+
+    private static final String GEOJSON_FIXTURE = "usgs_query_10.geojson";
+
+    @Test
+    public void parsesTheSameEarthquakesAsGeoJson() throws Exception {
+        List<Earthquake> expected = parse(GEOJSON_FIXTURE, null);
+        List<Earthquake> actual = parse(FIXTURE, new EarthquakeCsvParser());
+
+        // the line with an empty magnitude is dropped
+        assertEquals(9, actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getMagnitude(), actual.get(i).getMagnitude(), 0);
+            assertEquals(expected.get(i).getLocation(), actual.get(i).getLocation());
+            assertEquals(expected.get(i).getTimeInMilliseconds(), actual.get(i).getTimeInMilliseconds());
+            assertEquals(expected.get(i).getUpdatedTimeInMilliseconds(),
+                    actual.get(i).getUpdatedTimeInMilliseconds());
+            assertEquals(expected.get(i).getUrl(), actual.get(i).getUrl());
+            assertEquals(expected.get(i).getLatitude(), actual.get(i).getLatitude(), 0);
+            assertEquals(expected.get(i).getLongitude(), actual.get(i).getLongitude(), 0);
+            assertEquals(expected.get(i).getDepth(), actual.get(i).getDepth(), 0);
+        }
+        assertEquals("1km WSW of Kali \"Mata\", Indonesia", actual.get(6).getLocation());
+        assertEquals("151km W of Abepura, Papua New Guinea 🌋", actual.get(8).getLocation());
+        // the status is the only extended property of the CSV
+        assertEquals("reviewed", actual.get(0).getDetails().getStatus());
+        assertEquals(-1, actual.get(0).getDetails().getSignificance());
+    }
+
+    @Test
+    public void resultDoesNotDependOnBufferSize() throws Exception {
+        List<Earthquake> expected = parse(FIXTURE, new EarthquakeCsvParser());
+        List<Earthquake> actual = parse(FIXTURE, new EarthquakeCsvParser(3));
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getLocation(), actual.get(i).getLocation());
+            assertEquals(expected.get(i).getTimeInMilliseconds(), actual.get(i).getTimeInMilliseconds());
+        }
+    }
+
+    @Test
+    public void parserIsReusable() throws Exception {
+        EarthquakeCsvParser parser = new EarthquakeCsvParser();
+        assertEquals(9, parse(FIXTURE, parser).size());
+        assertEquals(9, parse(FIXTURE, parser).size());
+    }
+
+    @Test
+    public void columnsAreFoundByName() throws Exception {
+        List<Earthquake> earthquakes = new EarthquakeCsvParser().parse(stream(
+                "id,extra,mag,time,place\r\n"
+                        + "a,\"x,\"\"y\"\"\",-0.25,1970-01-01T00:00:01.5Z,\"two\nlines\"\r\n"
+                        + "\r\n"
+                        + "b,,1e1,2017-03-08T08:24:30Z,,unexpected"));
+
+        assertEquals(2, earthquakes.size());
+        assertEquals(-0.25, earthquakes.get(0).getMagnitude(), 0);
+        assertEquals(1500L, earthquakes.get(0).getTimeInMilliseconds());
+        assertEquals("two\nlines", earthquakes.get(0).getLocation());
+        assertEquals(EarthquakeCsvParser.EVENT_PAGE_URL + "a", earthquakes.get(0).getUrl());
+        assertFalse(earthquakes.get(0).hasCoordinates());
+
+        assertEquals(10.0, earthquakes.get(1).getMagnitude(), 0);
+        assertEquals(1488961470000L, earthquakes.get(1).getTimeInMilliseconds());
+        assertEquals("", earthquakes.get(1).getLocation());
+    }
+
+    @Test
+    public void emptyResponses() throws Exception {
+        assertTrue(new EarthquakeCsvParser().parse(stream("")).isEmpty());
+        assertTrue(new EarthquakeCsvParser().parse(stream("time,latitude,longitude,depth,mag,id\n")).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void headerWithoutTimeFails() throws Exception {
+        new EarthquakeCsvParser().parse(stream("id,mag\na,4.5\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedQuotedFieldFails() throws Exception {
+        new EarthquakeCsvParser().parse(stream("id,mag,time,place\na,4.5,2017-03-08T08:24:30Z,\"10km N"));
+    }
+
+    /**
+     * @param parser parses the fixture, or null for the GeoJSON parser
+     */
+    private List<Earthquake> parse(String fixture, EarthquakeCsvParser parser) throws IOException {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fixture);
+        try {
+            return parser != null ? parser.parse(inputStream) : new EarthquakeJsonParser().parse(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static InputStream stream(String csv) throws IOException {
+        return new ByteArrayInputStream(csv.getBytes("UTF-8"));
+    }
+}
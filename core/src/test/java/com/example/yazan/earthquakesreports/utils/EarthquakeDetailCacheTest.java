@@ -0,0 +1,150 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeDetailCache} against a stand-in USGS server on
+ * localhost, that answers the "eventid" queries of the events "us1" to "us9".
+ */
+public class EarthquakeDetailCacheTest {
+
+    private HttpServer mServer;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    /** holds the responses back until released */
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private volatile boolean mHoldResponses;
+    private EarthquakeDetailCache mCache;
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/fdsnws/event/1/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                if (mHoldResponses) {
+                    try {
+                        mRelease.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                String id = exchange.getRequestURI().getQuery().replaceAll(".*eventid=", "");
+                if (!id.matches("us[1-9]")) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = feature(id).getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+        mCache = new EarthquakeDetailCache("http://127.0.0.1:" + mServer.getAddress().getPort()
+                + "/fdsnws/event/1/query", 3);
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void fetchesAnEventOnce() {
+        Earthquake earthquake = mCache.fetch("us1", null);
+
+        assertEquals("us1", earthquake.getId());
+        assertEquals(41, earthquake.getDetails().getFelt());
+        assertEquals("reviewed", earthquake.getDetails().getStatus());
+        assertSame(earthquake, mCache.fetch("us1", null));
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void unknownEventIsNotCached() {
+        assertNull(mCache.fetch("nc0", null));
+        assertNull(mCache.get("nc0"));
+    }
+
+    @Test
+    public void leastRecentlyUsedEventIsEvicted() {
+        mCache.fetch("us1", null);
+        mCache.fetch("us2", null);
+        mCache.fetch("us3", null);
+        mCache.get("us1");
+        mCache.fetch("us4", null);
+
+        assertNotNull(mCache.get("us1"));
+        assertNull(mCache.get("us2"));
+        assertEquals(4, mRequests.get());
+    }
+
+    @Test
+    public void prefetchOnlyRequestsRowsWithoutDetails() throws Exception {
+        Earthquake parsed = new EarthquakeJsonParser().parse(
+                new ByteArrayInputStream(feature("us1").getBytes("UTF-8"))).get(0);
+        Earthquake stored = new Earthquake("us2", 4.5, "Somewhere", 0, 0, "");
+
+        mCache.prefetch(Arrays.asList(parsed, stored));
+        assertSame(parsed, mCache.get("us1"));
+        for (int i = 0; i < 500 && mCache.get("us2") == null; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(41, mCache.get("us2").getDetails().getFelt());
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void rowsScrolledAwayAreNotPrefetched() throws Exception {
+        // the request of the first row keeps the single prefetch thread busy while the rows change
+        mHoldResponses = true;
+        mCache.prefetch(Collections.singletonList(new Earthquake("us5", 4.5, "", 0, 0, "")));
+        List<Earthquake> visible = Arrays.asList(new Earthquake("us6", 4.5, "", 0, 0, ""),
+                new Earthquake("us7", 4.5, "", 0, 0, ""));
+        mCache.prefetch(visible);
+        mCache.prefetch(visible.subList(1, 2));
+        mRelease.countDown();
+        for (int i = 0; i < 500 && mCache.get("us7") == null; i++) {
+            Thread.sleep(10);
+        }
+
+        assertNotNull(mCache.get("us7"));
+        assertNull(mCache.get("us6"));
+    }
+
+    /**
+     * @return response of the "eventid" query of the id
+     */
+    private static String feature(String id) {
+        return "{\"type\":\"Feature\",\"properties\":{\"mag\":4.6,\"place\":\"10km N of Somewhere\","
+                + "\"time\":1488961470000,\"updated\":1488965042000,\"felt\":41,\"tsunami\":0,"
+                + "\"status\":\"reviewed\",\"products\":{\"dyfi\":[{\"id\":\"" + id + "\"}]}},"
+                + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-122.8,38.8,2.1]},\"id\":\"" + id + "\"}";
+    }
+}
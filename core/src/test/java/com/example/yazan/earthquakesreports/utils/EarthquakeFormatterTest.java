@@ -0,0 +1,96 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeDisplayModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeFormatter}.
+ */
+public class EarthquakeFormatterTest {
+
+    private static final int[] COLORS = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+
+    private TimeZone mDefaultTimeZone;
+    private Locale mDefaultLocale;
+
+    @Before
+    public void useUtc() {
+        mDefaultTimeZone = TimeZone.getDefault();
+        mDefaultLocale = Locale.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void restoreDefaults() {
+        TimeZone.setDefault(mDefaultTimeZone);
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void splitsLocationAtOf() {
+        EarthquakeDisplayModel displayModel = new EarthquakeFormatter(COLORS)
+                .format(earthquake(6.2, "47km SSW of Khalatse, India"));
+
+        assertEquals("47km SSW of", displayModel.getLocationOffset());
+        assertEquals(" Khalatse, India", displayModel.getPrimaryLocation());
+    }
+
+    @Test
+    public void locationWithoutOfIsNearThe() {
+        EarthquakeDisplayModel displayModel = new EarthquakeFormatter(COLORS)
+                .format(earthquake(5.0, "Fiji region"));
+
+        assertEquals("near the", displayModel.getLocationOffset());
+        assertEquals("Fiji region", displayModel.getPrimaryLocation());
+    }
+
+    @Test
+    public void formatsMagnitudeDateAndTime() {
+        EarthquakeDisplayModel displayModel = new EarthquakeFormatter(COLORS)
+                .format(earthquake(6.2, "47km SSW of Khalatse, India"));
+
+        assertEquals("6.2", displayModel.getMagnitude());
+        assertEquals(6, displayModel.getMagnitudeColor());
+        assertEquals("2017.03.08", displayModel.getDate());
+        assertEquals("8:24 AM", displayModel.getTime());
+    }
+
+    @Test
+    public void magnitudeColorIndexIsClamped() {
+        assertEquals(0, EarthquakeFormatter.getMagnitudeColorIndex(-0.4));
+        assertEquals(1, EarthquakeFormatter.getMagnitudeColorIndex(1.99));
+        assertEquals(9, EarthquakeFormatter.getMagnitudeColorIndex(9.5));
+        assertEquals(10, EarthquakeFormatter.getMagnitudeColorIndex(12.0));
+    }
+
+    @Test
+    public void prepareKeepsExistingDisplayModels() {
+        EarthquakeFormatter formatter = new EarthquakeFormatter(COLORS);
+        Earthquake earthquake = earthquake(4.5, "Mid-Atlantic Ridge");
+        List<Earthquake> earthquakes = Arrays.asList(earthquake);
+
+        formatter.prepare(earthquakes);
+        EarthquakeDisplayModel displayModel = earthquake.getDisplayModel();
+        formatter.prepare(earthquakes);
+
+        assertNotNull(displayModel);
+        assertSame(displayModel, earthquake.getDisplayModel());
+    }
+
+    private static Earthquake earthquake(double magnitude, String location) {
+        return new Earthquake("us20008vhl", magnitude, location, 1488961470440L, 1488961470440L,
+                "https://earthquake.usgs.gov/earthquakes/eventpage/us20008vhl");
+    }
+}
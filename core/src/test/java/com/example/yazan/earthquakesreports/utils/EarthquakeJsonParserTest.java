@@ -0,0 +1,262 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.data.EarthquakeDetails;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link EarthquakeJsonParser}, compared field by field with the
+ * org.json extraction on a recorded USGS response and on synthetic edge cases.
+ */
+public class EarthquakeJsonParserTest {
+
+    /**
+     * USGS query response, as served
+     */
+    private static final String FIXTURE = "usgs_query_recorded.geojson";
+
+    /**
+     * synthetic features for the cases a recorded response may not have: a null magnitude,
+     * place or geometry, escaped quotes, unicode escapes, characters outside the BMP
+     */
+    private static final String EDGE_CASES_FIXTURE = "usgs_query_edge_cases.geojson";
+
+    /**
+     * longest extended property value kept, see {@link EarthquakeDetails.Recorder}
+     */
+    private static final int MAX_DETAIL_LENGTH = 48;
+
+    @Test
+    public void matchesOrgJsonOnRecordedResponse() throws Exception {
+        List<EarthquakeDetails> expectedDetails = new ArrayList<>();
+        List<Earthquake> expected = parseWithOrgJson(FIXTURE, expectedDetails);
+
+        assertEquals(9, expected.size());
+        assertSameEarthquakes(expected, expectedDetails, parse(FIXTURE, new EarthquakeJsonParser()));
+        assertSameEarthquakes(expected, expectedDetails, parse(FIXTURE, new EarthquakeJsonParser(3)));
+    }
+
+    @Test
+    public void matchesOrgJsonOnEdgeCases() throws Exception {
+        List<EarthquakeDetails> expectedDetails = new ArrayList<>();
+        List<Earthquake> expected = parseWithOrgJson(EDGE_CASES_FIXTURE, expectedDetails);
+        List<Earthquake> actual = parse(EDGE_CASES_FIXTURE, new EarthquakeJsonParser(3));
+
+        // the feature with a null magnitude is dropped
+        assertEquals(4, expected.size());
+        assertSameEarthquakes(expected, expectedDetails, actual);
+        assertEquals("1km WSW of Kali \"Mata\", Indonesia", actual.get(0).getLocation());
+        assertEquals("151km W of Abepura, Papua New Guinea \uD83C\uDF0B", actual.get(1).getLocation());
+        assertEquals("", actual.get(2).getLocation());
+        assertFalse(actual.get(2).hasCoordinates());
+        assertTrue(Double.isNaN(actual.get(2).getDepth()));
+        assertEquals("5km N of Huala\u00f1\u00e9, Chile", actual.get(3).getLocation());
+        // a too long value is dropped
+        assertNull(actual.get(3).getDetails().getAlert());
+    }
+
+    @Test
+    public void extendedPropertiesAreDecodedOnDemand() throws Exception {
+        List<Earthquake> earthquakes = parse(FIXTURE, new EarthquakeJsonParser(3));
+
+        // decoded once
+        EarthquakeDetails first = earthquakes.get(0).getDetails();
+        assertSame(first, earthquakes.get(0).getDetails());
+
+        // not parsed from a response
+        assertNull(new Earthquake("a", 5, "", 0, 0, "").getDetails());
+    }
+
+    @Test
+    public void extendedPropertiesOfManyFeatures() throws Exception {
+        StringBuilder json = new StringBuilder("{\"features\":[");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i > 0 ? "," : "").append("{\"properties\":{\"mag\":5,\"time\":").append(i)
+                    .append(",\"sig\":").append(i).append(",\"status\":\"reviewed\",\"alert\":\"")
+                    .append(i % 2 == 0 ? "green" : "a very long alert level that is not worth keeping at all")
+                    .append("\",\"sig\":-1},\"id\":\"e").append(i).append("\"}");
+        }
+        List<Earthquake> earthquakes = new EarthquakeJsonParser().parse(stream(json.append("]}").toString()));
+
+        assertEquals(5000, earthquakes.size());
+        for (int i = 0; i < earthquakes.size(); i++) {
+            EarthquakeDetails details = earthquakes.get(i).getDetails();
+            // the first of a repeated property is kept, a too long value is dropped
+            assertEquals(i, details.getSignificance());
+            assertEquals(i % 2 == 0 ? "green" : null, details.getAlert());
+            assertEquals("reviewed", details.getStatus());
+        }
+    }
+
+    @Test
+    public void parserIsReusable() throws Exception {
+        EarthquakeJsonParser parser = new EarthquakeJsonParser();
+        assertEquals(9, parseFixture(parser).size());
+        assertEquals(9, parseFixture(parser).size());
+    }
+
+    @Test
+    public void emptyFeatureCollection() throws Exception {
+        List<Earthquake> earthquakes = new EarthquakeJsonParser()
+                .parse(stream("{\"type\":\"FeatureCollection\",\"features\":[]}"));
+        assertTrue(earthquakes.isEmpty());
+    }
+
+    @Test
+    public void parsesTheSingleFeatureOfAnEventQuery() throws Exception {
+        EarthquakeJsonParser parser = new EarthquakeJsonParser();
+        List<Earthquake> earthquakes = parser.parse(stream(
+                "{\"type\":\"Feature\",\"properties\":{\"mag\":6.2,\"place\":\"Fiji region\","
+                        + "\"time\":1488961470000,\"felt\":12,\"alert\":\"yellow\",\"products\":{\"dyfi\":[{}]}},"
+                        + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[178.1,-17.9,560.5]},\"id\":\"us1\"}"));
+
+        assertEquals(1, earthquakes.size());
+        assertEquals("us1", earthquakes.get(0).getId());
+        assertEquals(560.5, earthquakes.get(0).getDepth(), 0);
+        assertEquals(12, earthquakes.get(0).getDetails().getFelt());
+        assertEquals("yellow", earthquakes.get(0).getDetails().getAlert());
+
+        // the next response of the same parser is a collection again
+        assertEquals(9, parseFixture(parser).size());
+        assertEquals("yellow", earthquakes.get(0).getDetails().getAlert());
+        assertTrue(parser.parse(stream("{\"type\":\"Feature\",\"properties\":{\"mag\":null}}")).isEmpty());
+    }
+
+    @Test
+    public void parsesNumberForms() throws Exception {
+        List<Earthquake> earthquakes = new EarthquakeJsonParser().parse(stream(
+                "{\"features\":[{\"properties\":{\"mag\":5,\"time\":1.5e3},\"id\":\"a\"},"
+                        + "{\"id\":\"b\",\"properties\":{\"mag\":-0.25,\"time\":0}},"
+                        + "{\"properties\":{\"mag\":4.5E0,\"time\":12345678901234},\"id\":\"c\"}]}"));
+
+        assertEquals(3, earthquakes.size());
+        assertEquals("c", earthquakes.get(2).getId());
+        assertEquals(5.0, earthquakes.get(0).getMagnitude(), 0);
+        assertEquals(1500L, earthquakes.get(0).getTimeInMilliseconds());
+        assertEquals(-0.25, earthquakes.get(1).getMagnitude(), 0);
+        assertEquals(4.5, earthquakes.get(2).getMagnitude(), 0);
+        assertEquals(12345678901234L, earthquakes.get(2).getTimeInMilliseconds());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedResponseFails() throws Exception {
+        new EarthquakeJsonParser().parse(stream("{\"features\":[{\"properties\":{\"mag\":4.1,"));
+    }
+
+    private List<Earthquake> parseFixture(EarthquakeJsonParser parser) throws IOException {
+        return parse(FIXTURE, parser);
+    }
+
+    private List<Earthquake> parse(String fixture, EarthquakeJsonParser parser) throws IOException {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fixture);
+        try {
+            return parser.parse(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * extract the earthquakes of a response the way the app did before the streaming parser,
+     * with org.json over the whole response
+     *
+     * @param details receives the extended properties of every earthquake returned
+     */
+    private static List<Earthquake> parseWithOrgJson(String fixture, List<EarthquakeDetails> details)
+            throws IOException, JSONException {
+        JSONArray features = new JSONObject(new String(read(fixture), "UTF-8")).getJSONArray("features");
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < features.length(); i++) {
+            JSONObject feature = features.getJSONObject(i);
+            JSONObject properties = feature.getJSONObject("properties");
+            if (properties.isNull("mag")) {
+                continue;
+            }
+            double latitude = Double.NaN;
+            double longitude = Double.NaN;
+            double depth = Double.NaN;
+            if (!feature.isNull("geometry")) {
+                JSONArray coordinates = feature.getJSONObject("geometry").getJSONArray("coordinates");
+                longitude = coordinates.getDouble(0);
+                latitude = coordinates.getDouble(1);
+                depth = coordinates.getDouble(2);
+            }
+            earthquakes.add(new Earthquake(feature.getString("id"), properties.getDouble("mag"),
+                    properties.isNull("place") ? "" : properties.getString("place"), properties.getLong("time"),
+                    properties.optLong("updated", 0), properties.optString("url", ""),
+                    latitude, longitude, depth));
+            details.add(new EarthquakeDetails(properties.optInt("felt", -1),
+                    properties.optInt("tsunami", -1), optDetail(properties, "alert"),
+                    properties.optInt("sig", -1), optDetail(properties, "status")));
+        }
+        return earthquakes;
+    }
+
+    private static String optDetail(JSONObject properties, String name) throws JSONException {
+        if (properties.isNull(name)) {
+            return null;
+        }
+        String value = properties.getString(name);
+        return value.length() > MAX_DETAIL_LENGTH ? null : value;
+    }
+
+    private static void assertSameEarthquakes(List<Earthquake> expected, List<EarthquakeDetails> expectedDetails,
+                                              List<Earthquake> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Earthquake expectedEarthquake = expected.get(i);
+            Earthquake earthquake = actual.get(i);
+            String id = expectedEarthquake.getId();
+            assertEquals(id, earthquake.getId());
+            assertEquals(id, expectedEarthquake.getMagnitude(), earthquake.getMagnitude(), 0);
+            assertEquals(id, expectedEarthquake.getLocation(), earthquake.getLocation());
+            assertEquals(id, expectedEarthquake.getTimeInMilliseconds(), earthquake.getTimeInMilliseconds());
+            assertEquals(id, expectedEarthquake.getUpdatedTimeInMilliseconds(),
+                    earthquake.getUpdatedTimeInMilliseconds());
+            assertEquals(id, expectedEarthquake.getUrl(), earthquake.getUrl());
+            assertEquals(id, expectedEarthquake.getLatitude(), earthquake.getLatitude(), 0);
+            assertEquals(id, expectedEarthquake.getLongitude(), earthquake.getLongitude(), 0);
+            assertEquals(id, expectedEarthquake.getDepth(), earthquake.getDepth(), 0);
+
+            EarthquakeDetails expectedDetail = expectedDetails.get(i);
+            EarthquakeDetails details = earthquake.getDetails();
+            assertEquals(id, expectedDetail.getFelt(), details.getFelt());
+            assertEquals(id, expectedDetail.getTsunami(), details.getTsunami());
+            assertEquals(id, expectedDetail.getAlert(), details.getAlert());
+            assertEquals(id, expectedDetail.getSignificance(), details.getSignificance());
+            assertEquals(id, expectedDetail.getStatus(), details.getStatus());
+        }
+    }
+
+    private static byte[] read(String fixture) throws IOException {
+        InputStream inputStream = EarthquakeJsonParserTest.class.getClassLoader().getResourceAsStream(fixture);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static InputStream stream(String json) throws IOException {
+        return new ByteArrayInputStream(json.getBytes("UTF-8"));
+    }
+}
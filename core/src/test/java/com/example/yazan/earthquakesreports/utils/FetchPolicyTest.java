@@ -0,0 +1,302 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FetchPolicy}, and for {@link QueryUtils} following it against
+ * a stand-in USGS server injecting faults on localhost.
+ */
+public class FetchPolicyTest {
+
+    private static final String FIXTURE = "usgs_query_10.geojson";
+
+    /**
+     * faults of the stand-in server, each one is injected in one response
+     */
+    private static final String FAULT_UNAVAILABLE = "503";
+    private static final String FAULT_NOT_FOUND = "404";
+    private static final String FAULT_DROP = "drop";
+    private static final String FAULT_STALL = "stall";
+    private static final String FAULT_SLOW_BODY = "slow-body";
+
+    /**
+     * makes the URL of every test unique, the result cache of QueryUtils outlives a test
+     */
+    private static final AtomicInteger sTestCount = new AtomicInteger();
+
+    private final int mTestId = sTestCount.incrementAndGet();
+    private HttpServer mServer;
+    private byte[] mFixture;
+
+    /** faults of the next responses, in order, the responses after them succeed */
+    private final Queue<String> mFaults = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mRequests = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        mFixture = readFixture();
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/fdsnws/event/1/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                String fault = mFaults.poll();
+                if (FAULT_UNAVAILABLE.equals(fault) || FAULT_NOT_FOUND.equals(fault)) {
+                    exchange.sendResponseHeaders(Integer.parseInt(fault), -1);
+                    exchange.close();
+                    return;
+                }
+                if (FAULT_DROP.equals(fault)) {
+                    // close the connection without a response
+                    exchange.close();
+                    return;
+                }
+                if (FAULT_STALL.equals(fault)) {
+                    try {
+                        Thread.sleep(20000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.sendResponseHeaders(200, mFixture.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                if (FAULT_SLOW_BODY.equals(fault)) {
+                    // a large response: the headers right away, the body over a second
+                    outputStream.write(mFixture, 0, mFixture.length / 2);
+                    outputStream.flush();
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    outputStream.write(mFixture, mFixture.length / 2, mFixture.length - mFixture.length / 2);
+                } else {
+                    outputStream.write(mFixture);
+                }
+                outputStream.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void stopServer() {
+        QueryUtils.setFetchPolicy(new FetchPolicy());
+        mServer.stop(0);
+    }
+
+    @Test
+    public void backoffIsJitteredAndBounded() {
+        FetchPolicy policy = new FetchPolicy(10, 100, 1000, true, new Random(3));
+        long[] bounds = {100, 200, 400, 800, 1000, 1000, 1000};
+        for (int attempt = 1; attempt <= bounds.length; attempt++) {
+            long smallest = Long.MAX_VALUE;
+            long largest = 0;
+            for (int i = 0; i < 1000; i++) {
+                long backoff = policy.getBackoffMillis(attempt);
+                smallest = Math.min(smallest, backoff);
+                largest = Math.max(largest, backoff);
+            }
+            assertTrue(smallest >= 0 && smallest < bounds[attempt - 1] / 10);
+            assertTrue(largest <= bounds[attempt - 1] && largest > bounds[attempt - 1] * 9 / 10);
+        }
+    }
+
+    @Test
+    public void timeoutsFollowRecentLatencies() {
+        FetchPolicy policy = new FetchPolicy();
+        assertEquals(FetchPolicy.DEFAULT_CONNECT_TIMEOUT, policy.getConnectTimeoutMillis());
+        assertEquals(-1, policy.getHedgeDelayMillis());
+
+        for (int i = 0; i < 20; i++) {
+            policy.recordLatency(400 + i * 10);
+        }
+        // hedged after the 95th percentile, timeouts 4 times it but no less than 3s
+        assertEquals(580, policy.getHedgeDelayMillis());
+        assertEquals(3000, policy.getConnectTimeoutMillis());
+        assertEquals(3000, policy.getReadTimeoutMillis());
+
+        // only the recent latencies count
+        for (int i = 0; i < 64; i++) {
+            policy.recordLatency(1000);
+        }
+        assertEquals(4000, policy.getConnectTimeoutMillis());
+        assertEquals(4000, policy.getReadTimeoutMillis());
+
+        for (int i = 0; i < 64; i++) {
+            policy.recordLatency(9000);
+        }
+        assertEquals(FetchPolicy.DEFAULT_CONNECT_TIMEOUT, policy.getConnectTimeoutMillis());
+        assertEquals(FetchPolicy.DEFAULT_READ_TIMEOUT, policy.getReadTimeoutMillis());
+    }
+
+    @Test
+    public void serverErrorsAreRetried() {
+        QueryUtils.setFetchPolicy(new FetchPolicy(3, 10, 100, false, new Random()));
+        mFaults.add(FAULT_UNAVAILABLE);
+        mFaults.add(FAULT_UNAVAILABLE);
+
+        List<Earthquake> earthquakes = QueryUtils.fetchEarthquakeData(queryUrl());
+
+        assertEquals(9, earthquakes.size());
+        assertEquals(3, mRequests.get());
+    }
+
+    @Test
+    public void attemptsAreBounded() {
+        QueryUtils.setFetchPolicy(new FetchPolicy(3, 10, 100, false, new Random()));
+        for (int i = 0; i < 5; i++) {
+            mFaults.add(FAULT_UNAVAILABLE);
+        }
+
+        assertNull(QueryUtils.fetchEarthquakeData(queryUrl()));
+        assertEquals(3, mRequests.get());
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() {
+        QueryUtils.setFetchPolicy(new FetchPolicy(3, 10, 100, false, new Random()));
+        mFaults.add(FAULT_NOT_FOUND);
+
+        assertNull(QueryUtils.fetchEarthquakeData(queryUrl()));
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void droppedConnectionIsRetried() {
+        QueryUtils.setFetchPolicy(new FetchPolicy(3, 10, 100, false, new Random()));
+        mFaults.add(FAULT_DROP);
+
+        assertEquals(9, QueryUtils.fetchEarthquakeData(queryUrl()).size());
+        assertTrue(mFaults.isEmpty());
+    }
+
+    @Test
+    public void stalledResponseTimesOutAfterTheRecentLatencies() {
+        FetchPolicy policy = new FetchPolicy(3, 10, 100, false, new Random());
+        QueryUtils.setFetchPolicy(policy);
+        warmUp(policy);
+        mFaults.add(FAULT_STALL);
+
+        long start = System.nanoTime();
+        assertEquals(9, QueryUtils.fetchEarthquakeData(queryUrl()).size());
+
+        // the read timeout is 3s instead of 10s
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(6));
+        assertEquals(2, mRequests.get());
+    }
+
+    @Test
+    public void slowRequestIsHedged() {
+        FetchPolicy policy = new FetchPolicy(3, 10, 100, true, new Random());
+        QueryUtils.setFetchPolicy(policy);
+        warmUp(policy);
+        mFaults.add(FAULT_STALL);
+
+        long start = System.nanoTime();
+        assertEquals(9, QueryUtils.fetchEarthquakeData(queryUrl()).size());
+
+        // the hedge answered long before the read timeout of the stalled request
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(2, mRequests.get());
+    }
+
+    @Test
+    public void streamingResponseIsNotHedged() {
+        FetchPolicy policy = new FetchPolicy(3, 10, 100, true, new Random());
+        QueryUtils.setFetchPolicy(policy);
+        warmUp(policy);
+        mFaults.add(FAULT_SLOW_BODY);
+
+        // the download is much slower than the recent requests, but it started
+        assertEquals(9, QueryUtils.fetchEarthquakeData(queryUrl()).size());
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void cancellationStopsTheBackoff() throws Exception {
+        QueryUtils.setFetchPolicy(new FetchPolicy(3, 10000, 10000, false, new Random()));
+        for (int i = 0; i < 3; i++) {
+            mFaults.add(FAULT_UNAVAILABLE);
+        }
+        final FetchCancellation cancellation = new FetchCancellation();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Earthquake>> fetch = executor.submit(new Callable<List<Earthquake>>() {
+                @Override
+                public List<Earthquake> call() {
+                    return QueryUtils.fetchEarthquakeData(queryUrl(), cancellation);
+                }
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (mRequests.get() < 1) {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(5);
+            }
+            Thread.sleep(50);
+            cancellation.cancel();
+
+            assertNull(fetch.get(1, TimeUnit.SECONDS));
+            assertEquals(1, mRequests.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * record the latencies of a few requests, so the policy adapts to them
+     */
+    private void warmUp(FetchPolicy policy) {
+        for (int i = 0; i < 10; i++) {
+            QueryUtils.fetchEarthquakeData(queryUrl() + "&warmup=" + i);
+        }
+        assertTrue(policy.getReadTimeoutMillis() < FetchPolicy.DEFAULT_READ_TIMEOUT);
+        mRequests.set(0);
+    }
+
+    private String queryUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort()
+                + "/fdsnws/event/1/query?format=geojson&test=" + mTestId;
+    }
+
+    private byte[] readFixture() throws IOException {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(FIXTURE);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
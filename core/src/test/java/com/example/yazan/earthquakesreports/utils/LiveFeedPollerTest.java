@@ -0,0 +1,169 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LiveFeedPoller} against a stand-in USGS server on localhost,
+ * replaying two recorded snapshots of the past-hour summary feed.
+ */
+public class LiveFeedPollerTest {
+
+    /**
+     * the second snapshot has a new event, a revised event, and an event out of the window
+     */
+    private static final String[] SNAPSHOTS = {"usgs_all_hour_1.geojson", "usgs_all_hour_2.geojson"};
+
+    private static final AtomicInteger sTestCount = new AtomicInteger();
+
+    private final int mTestId = sTestCount.incrementAndGet();
+    private HttpServer mServer;
+    private volatile int mSnapshot;
+    private final AtomicInteger mFullResponses = new AtomicInteger();
+    private final AtomicInteger mNotModifiedResponses = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        final byte[][] snapshots = new byte[SNAPSHOTS.length][];
+        for (int i = 0; i < SNAPSHOTS.length; i++) {
+            snapshots[i] = readResource(SNAPSHOTS[i]);
+        }
+
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/earthquakes/feed/v1.0/summary/all_hour.geojson", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String etag = "\"snapshot-" + mSnapshot + "\"";
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    mNotModifiedResponses.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+
+                byte[] body = snapshots[mSnapshot];
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+                mFullResponses.incrementAndGet();
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void firstPollReportsTheWholeFeed() {
+        LiveFeedPoller poller = new LiveFeedPoller(feedUrl());
+
+        assertEquals(Arrays.asList("ak15300345", "hv61672391", "ci37166079"), ids(poller.poll()));
+        assertEquals(LiveFeedPoller.MIN_INTERVAL, poller.getIntervalMillis());
+    }
+
+    @Test
+    public void unchangedFeedIsRevalidatedAndSlowsDown() {
+        LiveFeedPoller poller = new LiveFeedPoller(feedUrl());
+        poller.poll();
+
+        assertTrue(poller.poll().isEmpty());
+        assertTrue(poller.poll().isEmpty());
+
+        assertEquals(1, mFullResponses.get());
+        assertEquals(2, mNotModifiedResponses.get());
+        assertTrue(poller.getIntervalMillis() > LiveFeedPoller.MIN_INTERVAL);
+    }
+
+    @Test
+    public void reportsOnlyNewAndRevisedEvents() {
+        LiveFeedPoller poller = new LiveFeedPoller(feedUrl());
+        poller.poll();
+        poller.poll();
+
+        mSnapshot = 1;
+        List<Earthquake> changes = poller.poll();
+
+        // the Alaska event is unchanged, the Hawaii event left the window
+        assertEquals(Arrays.asList("nc72778741", "ci37166079"), ids(changes));
+        assertEquals(4.5, changes.get(1).getMagnitude(), 0);
+        assertEquals(LiveFeedPoller.MIN_INTERVAL, poller.getIntervalMillis());
+    }
+
+    @Test
+    public void failedPollBacksOff() {
+        LiveFeedPoller poller = new LiveFeedPoller(feedUrl());
+        mServer.stop(0);
+
+        assertNull(poller.poll());
+        assertNull(poller.poll());
+        assertEquals(4 * LiveFeedPoller.MIN_INTERVAL, poller.getIntervalMillis());
+    }
+
+    @Test
+    public void mergeMovesRevisedEventsAndSkipsEventsPastTheLoadedPages() {
+        List<Earthquake> shown = new ArrayList<>(Arrays.asList(
+                earthquake("a", 6.0), earthquake("b", 5.0), earthquake("c", 4.0)));
+        List<Earthquake> changes = Arrays.asList(
+                earthquake("new", 5.5), earthquake("c", 6.5), earthquake("small", 3.0));
+
+        int added = LiveFeedPoller.mergeInto(shown, changes, ShardedQuery.getOrder("magnitude"), false);
+
+        assertEquals(Arrays.asList("c", "a", "new", "b"), ids(shown));
+        assertEquals(1, added);
+    }
+
+    private String feedUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort()
+                + "/earthquakes/feed/v1.0/summary/all_hour.geojson?test=" + mTestId;
+    }
+
+    private static Earthquake earthquake(String id, double magnitude) {
+        return new Earthquake(id, magnitude, "10km N of Somewhere", 0, 0, "");
+    }
+
+    private static List<String> ids(List<Earthquake> earthquakes) {
+        List<String> ids = new ArrayList<>();
+        for (Earthquake earthquake : earthquakes) {
+            ids.add(earthquake.getId());
+        }
+        return ids;
+    }
+
+    private byte[] readResource(String name) throws IOException {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(name);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
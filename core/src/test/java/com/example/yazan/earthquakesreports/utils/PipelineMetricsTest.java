@@ -0,0 +1,74 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PipelineMetrics}.
+ */
+public class PipelineMetricsTest {
+
+    @Before
+    public void enable() {
+        PipelineMetrics.reset();
+        PipelineMetrics.setEnabled(true);
+    }
+
+    @After
+    public void disable() {
+        PipelineMetrics.setEnabled(false);
+        PipelineMetrics.reset();
+    }
+
+    @Test
+    public void disabledMetricsRecordNothing() {
+        PipelineMetrics.setEnabled(false);
+
+        long start = PipelineMetrics.start();
+        PipelineMetrics.recordSince(PipelineMetrics.PARSE, start);
+        PipelineMetrics.record(PipelineMetrics.EVENT_COUNT, 20);
+
+        assertEquals(0, start);
+        assertEquals(0, PipelineMetrics.getHistogram(PipelineMetrics.PARSE).getCount());
+        assertEquals(0, PipelineMetrics.getHistogram(PipelineMetrics.EVENT_COUNT).getCount());
+    }
+
+    @Test
+    public void histogramSummarizesTheSamples() {
+        for (int value = 1; value <= 100; value++) {
+            PipelineMetrics.record(PipelineMetrics.PAYLOAD_BYTES, value);
+        }
+        PipelineMetrics.Histogram histogram = PipelineMetrics.getHistogram(PipelineMetrics.PAYLOAD_BYTES);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+        assertEquals(100, histogram.getMax());
+        // percentiles are bucket upper bounds: within twice the exact value
+        assertEquals(63, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(95));
+        assertEquals(1, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void recordSinceMeasuresMicroseconds() throws InterruptedException {
+        long start = PipelineMetrics.start();
+        Thread.sleep(20);
+        PipelineMetrics.recordSince(PipelineMetrics.DIFF, start);
+
+        long micros = PipelineMetrics.getHistogram(PipelineMetrics.DIFF).getMax();
+        assertTrue(micros >= 20000 && micros < 2000000);
+    }
+
+    @Test
+    public void resetDropsTheSamples() {
+        PipelineMetrics.record(PipelineMetrics.BIND, 7);
+        PipelineMetrics.reset();
+
+        assertEquals(0, PipelineMetrics.getHistogram(PipelineMetrics.BIND).getCount());
+        assertEquals(0, PipelineMetrics.getHistogram(PipelineMetrics.BIND).getPercentile(50));
+    }
+}
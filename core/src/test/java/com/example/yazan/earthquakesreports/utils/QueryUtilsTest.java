@@ -0,0 +1,392 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link QueryUtils} against a stand-in USGS server on localhost.
+ */
+public class QueryUtilsTest {
+
+    private static final String FIXTURE = "usgs_query_10.geojson";
+
+    private static final String CSV_FIXTURE = "usgs_query_10.csv";
+
+    private static final String ETAG = "\"usgs-1488965042000\"";
+
+    /**
+     * makes the URL of every test unique, the result cache of QueryUtils outlives a test
+     */
+    private static final AtomicInteger sTestCount = new AtomicInteger();
+
+    private final int mTestId = sTestCount.incrementAndGet();
+    private HttpServer mServer;
+    private byte[] mFixture;
+    private byte[] mCsvFixture;
+    private final AtomicInteger mFullResponses = new AtomicInteger();
+    private final AtomicInteger mNotModifiedResponses = new AtomicInteger();
+    private volatile boolean mGzipRequested;
+
+    /** counted down once the stalled response has sent its first half */
+    private final CountDownLatch mStalled = new CountDownLatch(1);
+
+    /** the held responses are sent once this is counted down */
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private final AtomicInteger mHeldRequests = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        // the tests count the requests, none may be hedged
+        QueryUtils.setFetchPolicy(new FetchPolicy(3, 10, 100, false, new Random()));
+        mFixture = readFixture(FIXTURE);
+        mCsvFixture = readFixture(CSV_FIXTURE);
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/fdsnws/event/1/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    mNotModifiedResponses.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+
+                byte[] body = mFixture;
+                if (exchange.getRequestURI().getQuery().contains("format=csv")) {
+                    body = mCsvFixture;
+                    exchange.getResponseHeaders().set("Content-Type", "text/csv;charset=UTF-8");
+                }
+                String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                mGzipRequested = acceptEncoding != null && acceptEncoding.contains("gzip");
+                if (mGzipRequested) {
+                    body = gzip(body);
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                // counted before the client can see the response, handlers run on several threads
+                mFullResponses.incrementAndGet();
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        // sends half of the response, then trickles whitespace and never the rest
+        mServer.createContext("/stalled", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(mFixture, 0, mFixture.length / 2);
+                outputStream.flush();
+                mStalled.countDown();
+                try {
+                    for (int i = 0; i < 300; i++) {
+                        Thread.sleep(100);
+                        outputStream.write(' ');
+                        outputStream.flush();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    // the client went away
+                }
+                exchange.close();
+            }
+        });
+        // answers once the test releases it
+        mServer.createContext("/held", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mHeldRequests.incrementAndGet();
+                try {
+                    mRelease.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(200, mFixture.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(mFixture);
+                outputStream.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void stopServer() {
+        QueryUtils.setFetchPolicy(new FetchPolicy());
+        mServer.stop(0);
+    }
+
+    @Test
+    public void decompressesGzipResponse() {
+        List<Earthquake> earthquakes = QueryUtils.fetchEarthquakeData(queryUrl());
+
+        assertTrue(mGzipRequested);
+        assertEquals(9, earthquakes.size());
+        assertEquals("us20008vhl", earthquakes.get(0).getId());
+    }
+
+    @Test
+    public void recordsThePhasesOfARequest() {
+        PipelineMetrics.reset();
+        PipelineMetrics.setEnabled(true);
+        try {
+            QueryUtils.fetchEarthquakeData(queryUrl());
+        } finally {
+            PipelineMetrics.setEnabled(false);
+        }
+
+        for (int metric : new int[]{PipelineMetrics.CONNECT, PipelineMetrics.FIRST_BYTE,
+                PipelineMetrics.DOWNLOAD, PipelineMetrics.PARSE}) {
+            assertEquals(PipelineMetrics.getName(metric), 1, PipelineMetrics.getHistogram(metric).getCount());
+        }
+        assertEquals(9, PipelineMetrics.getHistogram(PipelineMetrics.EVENT_COUNT).getMax());
+        // the gzip compressed body
+        long payloadBytes = PipelineMetrics.getHistogram(PipelineMetrics.PAYLOAD_BYTES).getMax();
+        assertTrue(payloadBytes > 0 && payloadBytes < mFixture.length);
+        PipelineMetrics.reset();
+    }
+
+    @Test
+    public void notModifiedReusesPreviousResult() {
+        String url = queryUrl();
+        List<Earthquake> first = QueryUtils.fetchEarthquakeData(url);
+        List<Earthquake> second = QueryUtils.fetchEarthquakeData(url);
+
+        assertEquals(1, mFullResponses.get());
+        assertEquals(1, mNotModifiedResponses.get());
+        // the result of the 304 is the cached one, nothing was parsed again
+        assertSame(first, second);
+    }
+
+    @Test
+    public void differentQueriesAreNotRevalidatedWithEachOther() {
+        QueryUtils.fetchEarthquakeData(queryUrl() + "&orderby=time");
+        QueryUtils.fetchEarthquakeData(queryUrl() + "&orderby=magnitude");
+
+        assertEquals(2, mFullResponses.get());
+        assertEquals(0, mNotModifiedResponses.get());
+    }
+
+    @Test
+    public void largeQueryIsFetchedAsCsv() {
+        List<Earthquake> geoJson = QueryUtils.fetchEarthquakeData(queryUrl());
+        List<Earthquake> csv = QueryUtils.fetchEarthquakeData(queryUrl().replace("&limit=10", ""));
+
+        assertEquals(2, mFullResponses.get());
+        assertEquals(geoJson.size(), csv.size());
+        for (int i = 0; i < geoJson.size(); i++) {
+            assertEquals(geoJson.get(i).getId(), csv.get(i).getId());
+            assertEquals(geoJson.get(i).getUrl(), csv.get(i).getUrl());
+        }
+    }
+
+    @Test
+    public void onlyLargeGeoJsonQueriesAreNegotiated() {
+        String url = "https://earthquake.usgs.gov/fdsnws/event/1/query?format=geojson&orderby=time";
+
+        assertEquals("https://earthquake.usgs.gov/fdsnws/event/1/query?format=csv&orderby=time",
+                QueryUtils.negotiateFormat(url));
+        assertEquals(url.replace("geojson", "csv") + "&limit=20000",
+                QueryUtils.negotiateFormat(url + "&limit=20000"));
+        // the pages of the list, single events and other formats are left alone
+        assertEquals(url + "&offset=1&limit=20", QueryUtils.negotiateFormat(url + "&offset=1&limit=20"));
+        assertEquals(url + "&eventid=us1", QueryUtils.negotiateFormat(url + "&eventid=us1"));
+        assertEquals("https://earthquake.usgs.gov/fdsnws/event/1/query?format=xml",
+                QueryUtils.negotiateFormat("https://earthquake.usgs.gov/fdsnws/event/1/query?format=xml"));
+    }
+
+    @Test
+    public void shardsOfTheAppQueryAreNegotiated() {
+        String url = "https://earthquake.usgs.gov/fdsnws/event/1/query?format=geojson"
+                + "&maxmagnitude=8&minmagnitude=4&orderby=magnitude";
+        String shardUrl = url + "&starttime=" + ShardedQuery.formatTime(1488961470000L)
+                + "&endtime=" + ShardedQuery.formatTime(1489220670000L);
+
+        assertEquals(shardUrl.replace("format=geojson", "format=csv"), QueryUtils.negotiateFormat(shardUrl));
+        // the sync changes are fewer than a shard and keep their GeoJSON details
+        String changesUrl = url + "&updatedafter=" + ShardedQuery.formatTime(1488961470000L)
+                + "&includedeleted=true&limit=100";
+        assertEquals(changesUrl, QueryUtils.negotiateFormat(changesUrl));
+    }
+
+    @Test
+    public void cancellationStopsAResponseStillArriving() throws Exception {
+        final FetchCancellation cancellation = new FetchCancellation();
+        final String url = "http://127.0.0.1:" + mServer.getAddress().getPort() + "/stalled?test=" + mTestId;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Earthquake>> fetch = executor.submit(new Callable<List<Earthquake>>() {
+                @Override
+                public List<Earthquake> call() {
+                    return QueryUtils.fetchEarthquakeData(url, cancellation);
+                }
+            });
+            assertTrue(mStalled.await(5, TimeUnit.SECONDS));
+
+            // cancelling does not wait for the connection
+            long start = System.nanoTime();
+            cancellation.cancel();
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+
+            // the parse stops long before the 30s of the response
+            assertNull(fetch.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelledRequestIsNotMade() {
+        FetchCancellation cancellation = new FetchCancellation();
+        cancellation.cancel();
+
+        assertNull(QueryUtils.fetchEarthquakeData(queryUrl(), cancellation));
+        assertEquals(0, mFullResponses.get());
+    }
+
+    @Test
+    public void normalizedUrlIgnoresParameterOrder() throws Exception {
+        String normalized = QueryUtils.normalizeUrl(
+                new URL("HTTPS://Earthquake.USGS.gov:443/fdsnws/event/1/query?orderby=time&format=geojson&limit=20"));
+
+        assertEquals("https://earthquake.usgs.gov/fdsnws/event/1/query?format=geojson&limit=20&orderby=time",
+                normalized);
+        assertEquals(normalized, QueryUtils.normalizeUrl(
+                new URL("https://earthquake.usgs.gov/fdsnws/event/1/query?limit=20&format=geojson&orderby=time")));
+        assertNotEquals(normalized, QueryUtils.normalizeUrl(
+                new URL("https://earthquake.usgs.gov/fdsnws/event/1/query?format=geojson&limit=20&orderby=magnitude")));
+        // the values of a repeated parameter are not reordered
+        assertEquals("http://example.com/?a=1&b=2&b=1", QueryUtils.normalizeUrl(new URL("http://example.com?b=2&a=1&b=1")));
+    }
+
+    @Test
+    public void concurrentCallersShareOneRequest() throws Exception {
+        String base = "http://127.0.0.1:" + mServer.getAddress().getPort() + "/held?test=" + mTestId;
+        String[] urls = {base + "&orderby=time&minmagnitude=4", base + "&minmagnitude=4&orderby=time"};
+        int callerCount = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(callerCount);
+        try {
+            List<Future<List<Earthquake>>> results = new ArrayList<>();
+            for (int i = 0; i < callerCount; i++) {
+                results.add(executor.submit(fetch(urls[i % urls.length], null)));
+            }
+            awaitWaitingCallers(urls[0], callerCount);
+            mRelease.countDown();
+
+            List<Earthquake> first = results.get(0).get(5, TimeUnit.SECONDS);
+            assertEquals(9, first.size());
+            for (Future<List<Earthquake>> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, mHeldRequests.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelledCallerDoesNotFailTheOthers() throws Exception {
+        String url = "http://127.0.0.1:" + mServer.getAddress().getPort() + "/held?test=" + mTestId;
+        FetchCancellation firstCancellation = new FetchCancellation();
+        FetchCancellation secondCancellation = new FetchCancellation();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // the first caller makes the request, the others wait for it
+            Future<List<Earthquake>> first = executor.submit(fetch(url, firstCancellation));
+            awaitWaitingCallers(url, 1);
+            Future<List<Earthquake>> second = executor.submit(fetch(url, secondCancellation));
+            Future<List<Earthquake>> third = executor.submit(fetch(url, new FetchCancellation()));
+            awaitWaitingCallers(url, 3);
+
+            // a waiting caller leaves right away
+            secondCancellation.cancel();
+            assertNull(second.get(5, TimeUnit.SECONDS));
+
+            // the caller making the request finishes it for the others
+            firstCancellation.cancel();
+            mRelease.countDown();
+            assertNull(first.get(5, TimeUnit.SECONDS));
+            assertEquals(9, third.get(5, TimeUnit.SECONDS).size());
+            assertEquals(1, mHeldRequests.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Callable<List<Earthquake>> fetch(final String url, final FetchCancellation cancellation) {
+        return new Callable<List<Earthquake>>() {
+            @Override
+            public List<Earthquake> call() {
+                return QueryUtils.fetchEarthquakeData(url, cancellation);
+            }
+        };
+    }
+
+    private static void awaitWaitingCallers(String url, int callerCount) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (QueryUtils.getWaitingCallers(url) < callerCount) {
+            assertTrue("callers did not join", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private String queryUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort()
+                + "/fdsnws/event/1/query?format=geojson&test=" + mTestId + "&limit=10";
+    }
+
+    private byte[] readFixture(String fixture) throws IOException {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fixture);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream);
+        gzipOutputStream.write(bytes);
+        gzipOutputStream.close();
+        return outputStream.toByteArray();
+    }
+}
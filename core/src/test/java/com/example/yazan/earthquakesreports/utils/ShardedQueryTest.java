@@ -0,0 +1,207 @@
+package com.example.yazan.earthquakesreports.utils;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ShardedQuery} against a stand-in USGS server on localhost.
+ * Every shard response holds one event at each end of the shard window.
+ */
+public class ShardedQueryTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 2017-02-01T00:00:00Z
+     */
+    private static final long WINDOW_START = 1485907200000L;
+
+    private static final AtomicInteger sTestCount = new AtomicInteger();
+
+    private final int mTestId = sTestCount.incrementAndGet();
+    private HttpServer mServer;
+    private ExecutorService mServerExecutor;
+    private volatile long mResponseDelay;
+    private volatile long mFailingShardStart = -1;
+    private final AtomicInteger mInFlight = new AtomicInteger();
+    private final AtomicInteger mMaxInFlight = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServerExecutor = Executors.newCachedThreadPool();
+        mServer.setExecutor(mServerExecutor);
+        mServer.createContext("/fdsnws/event/1/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int inFlight = mInFlight.incrementAndGet();
+                try {
+                    mMaxInFlight.set(Math.max(mMaxInFlight.get(), inFlight));
+                    Thread.sleep(mResponseDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    mInFlight.decrementAndGet();
+                }
+
+                String query = exchange.getRequestURI().getQuery();
+                long start = ShardedQuery.parseTime(parameter(query, "starttime"));
+                long end = ShardedQuery.parseTime(parameter(query, "endtime"));
+                if (start == mFailingShardStart) {
+                    exchange.sendResponseHeaders(500, -1);
+                    exchange.close();
+                    return;
+                }
+
+                // USGS order: most recent first
+                byte[] body = ("{\"type\":\"FeatureCollection\",\"features\":["
+                        + feature("e" + (end - 1000), end - 1000, 4.5) + ","
+                        + feature("s" + start, start, 2.5) + "]}").getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop(0);
+        // wakes up the delayed responses, so they do not hold the shard threads
+        mServerExecutor.shutdownNow();
+    }
+
+    @Test
+    public void shardsCoverTheWindowWithoutGaps() {
+        ShardedQuery query = new ShardedQuery(queryUrl(), WINDOW_START, WINDOW_START + 8 * DAY, "time");
+
+        List<String> shardUrls = query.getShardUrls();
+        assertEquals(4, shardUrls.size());
+        assertEquals(WINDOW_START, ShardedQuery.parseTime(parameter(shardUrls.get(0), "starttime")));
+        for (int i = 1; i < shardUrls.size(); i++) {
+            assertEquals(parameter(shardUrls.get(i - 1), "endtime"), parameter(shardUrls.get(i), "starttime"));
+        }
+        assertEquals(WINDOW_START + 8 * DAY,
+                ShardedQuery.parseTime(parameter(shardUrls.get(3), "endtime")));
+    }
+
+    @Test
+    public void onlyLargeWindowsAreSharded() {
+        assertFalse(ShardedQuery.isLarge(WINDOW_START, WINDOW_START + DAY));
+        assertTrue(ShardedQuery.isLarge(WINDOW_START, WINDOW_START + 30 * DAY));
+    }
+
+    @Test
+    public void fetchesShardsInParallelAndMergesInQueryOrder() {
+        mResponseDelay = 400;
+        ShardedQuery query = new ShardedQuery(queryUrl(), WINDOW_START, WINDOW_START + 8 * DAY, "time");
+
+        long startNanos = System.nanoTime();
+        List<Earthquake> earthquakes = query.fetch();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        // about one shard delay, far from the 1600ms of four requests in a row
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 1200);
+        assertTrue(mMaxInFlight.get() > 1);
+
+        assertEquals(8, earthquakes.size());
+        for (int i = 1; i < earthquakes.size(); i++) {
+            assertTrue(earthquakes.get(i - 1).getTimeInMilliseconds()
+                    > earthquakes.get(i).getTimeInMilliseconds());
+        }
+        assertEquals("s" + WINDOW_START, earthquakes.get(7).getId());
+    }
+
+    @Test
+    public void failedShardFailsTheWholeQuery() {
+        mFailingShardStart = WINDOW_START + 2 * DAY;
+        ShardedQuery query = new ShardedQuery(queryUrl(), WINDOW_START, WINDOW_START + 8 * DAY, "time");
+
+        assertNull(query.fetch());
+    }
+
+    @Test
+    public void cancelStopsWaitingForTheShards() throws Exception {
+        mResponseDelay = 5000;
+        final ShardedQuery query = new ShardedQuery(queryUrl(), WINDOW_START, WINDOW_START + 8 * DAY, "time");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Earthquake>> result = executor.submit(new Callable<List<Earthquake>>() {
+                @Override
+                public List<Earthquake> call() {
+                    return query.fetch();
+                }
+            });
+            Thread.sleep(200);
+
+            query.cancel();
+
+            assertNull(result.get(1, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void mergeKeepsMagnitudeOrderAndDropsBoundaryDuplicates() {
+        Earthquake shared = earthquake("shared", 5.0, 2000);
+        List<List<Earthquake>> shards = new ArrayList<>();
+        shards.add(Arrays.asList(earthquake("a", 6.1, 1000), shared, earthquake("b", 1.2, 1500)));
+        shards.add(Arrays.asList(earthquake("c", 5.4, 3000), shared, earthquake("d", 3.3, 2500)));
+
+        List<Earthquake> merged = ShardedQuery.merge(shards, ShardedQuery.getOrder("magnitude"));
+
+        List<String> ids = new ArrayList<>();
+        for (Earthquake earthquake : merged) {
+            ids.add(earthquake.getId());
+        }
+        assertEquals(Arrays.asList("a", "c", "shared", "d", "b"), ids);
+    }
+
+    private String queryUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort()
+                + "/fdsnws/event/1/query?format=geojson&test=" + mTestId;
+    }
+
+    private static Earthquake earthquake(String id, double magnitude, long time) {
+        return new Earthquake(id, magnitude, "10km N of Somewhere", time, time, "");
+    }
+
+    private static String feature(String id, long time, double magnitude) {
+        return "{\"type\":\"Feature\",\"properties\":{\"mag\":" + magnitude
+                + ",\"place\":\"10km N of Somewhere\",\"time\":" + time + ",\"updated\":" + time
+                + ",\"url\":\"\"},\"id\":\"" + id + "\"}";
+    }
+
+    private static String parameter(String url, String name) {
+        for (String parameter : url.substring(url.indexOf('?') + 1).split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return parameter.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.yazan.earthquakesreports.ingest;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.utils.FetchCancellation;
+import com.example.yazan.earthquakesreports.utils.QueryUtils;
+import com.example.yazan.earthquakesreports.utils.ShardedQuery;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link CatalogIngester} downloads every earthquake of a long time range, i.e. years of
+ * the USGS catalog, as consecutive time windows fetched concurrently, and streams them to
+ * an {@link EarthquakeCsvWriter}, oldest first.
+ * <p>
+ * Twice as many windows as threads are in flight at most. The oldest window is written as
+ * soon as it is done, so memory holds a few windows whatever the length of the range.
+ * A window with as many earthquakes as a request may return was cut by USGS, it is split
+ * in two halves fetched again. An earthquake on the boundary of two windows is written once.
+ * <p>
+ * An ingester ingests once, {@link #cancel()} stops it from another thread.
+ */
+public final class CatalogIngester {
+
+    /**
+     * most earthquakes USGS returns for one request
+     */
+    public static final int USGS_MAX_EVENTS = 20000;
+
+    /**
+     * a full window shorter than this is not split anymore
+     */
+    private static final long MIN_WINDOW = TimeUnit.MINUTES.toMillis(1);
+
+    private final String mQueryUrl;
+    private final long mWindowMillis;
+    private final int mThreadCount;
+    private final int mMaxEventsPerRequest;
+
+    /** disconnects the requests in flight once cancelled or failed */
+    private final FetchCancellation mCancellation = new FetchCancellation();
+
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private int mWindowCount;
+
+    /**
+     * Construct a new {@link CatalogIngester} object.
+     *
+     * @param queryUrl            is the USGS GeoJSON query URL, without time window, order and limit
+     * @param windowMillis        is the length of the window of each request
+     * @param threadCount         is the number of requests in flight
+     * @param maxEventsPerRequest is the "limit" of every request, at most {@link #USGS_MAX_EVENTS}
+     */
+    public CatalogIngester(String queryUrl, long windowMillis, int threadCount, int maxEventsPerRequest) {
+        mQueryUrl = queryUrl;
+        mWindowMillis = Math.max(windowMillis, MIN_WINDOW);
+        mThreadCount = Math.max(threadCount, 1);
+        mMaxEventsPerRequest = maxEventsPerRequest;
+    }
+
+    /**
+     * Fetch and write every earthquake from the start to the end time.
+     *
+     * @param startTime is the start of the range, unix time in milliseconds
+     * @param endTime   is the end of the range, unix time in milliseconds
+     * @param writer    receives the earthquakes, oldest first
+     * @return number of earthquakes written
+     * @throws IOException if a window cannot be fetched, the earthquakes of the windows
+     *                     before it are written
+     */
+    public long ingest(long startTime, long endTime, EarthquakeCsvWriter writer) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(mThreadCount, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "catalog-ingest-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        Deque<Future<List<Earthquake>>> inFlight = new ArrayDeque<>();
+        // the earthquakes written at the latest time, the next window may return them again
+        Set<String> lastIds = new HashSet<>();
+        long lastTime = Long.MIN_VALUE;
+        long written = 0;
+        long nextStart = startTime;
+        boolean done = false;
+        try {
+            while (nextStart < endTime || !inFlight.isEmpty()) {
+                while (nextStart < endTime && inFlight.size() < 2 * mThreadCount) {
+                    final long windowStart = nextStart;
+                    final long windowEnd = Math.min(endTime, nextStart + mWindowMillis);
+                    inFlight.add(executor.submit(new Callable<List<Earthquake>>() {
+                        @Override
+                        public List<Earthquake> call() throws IOException {
+                            return fetchWindow(windowStart, windowEnd);
+                        }
+                    }));
+                    mWindowCount++;
+                    nextStart = windowEnd;
+                }
+
+                for (Earthquake earthquake : await(inFlight.removeFirst())) {
+                    long time = earthquake.getTimeInMilliseconds();
+                    if (time > lastTime) {
+                        lastTime = time;
+                        lastIds.clear();
+                    } else if (lastIds.contains(earthquake.getId())) {
+                        continue;
+                    }
+                    lastIds.add(earthquake.getId());
+                    writer.write(earthquake);
+                    written++;
+                }
+            }
+            writer.flush();
+            done = true;
+            return written;
+        } catch (IOException e) {
+            // keep the windows before the failed one
+            try {
+                writer.flush();
+            } catch (IOException flushFailure) {
+                e.addSuppressed(flushFailure);
+            }
+            throw e;
+        } finally {
+            if (!done) {
+                // stop the windows after the failed one
+                cancel();
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stop the ingestion, the requests in flight are disconnected.
+     */
+    public void cancel() {
+        mCancellation.cancel();
+    }
+
+    /**
+     * @return number of requests made, more than the windows when full windows were split
+     */
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * @return number of windows the range was split into
+     */
+    public int getWindowCount() {
+        return mWindowCount;
+    }
+
+    /**
+     * Helper method for {@link #ingest(long, long, EarthquakeCsvWriter)}
+     * <p>
+     * fetch one window, in halves if USGS cut it
+     *
+     * @return earthquakes of the window, oldest first
+     */
+    private List<Earthquake> fetchWindow(long startTime, long endTime) throws IOException {
+        mRequestCount.incrementAndGet();
+        String url = mQueryUrl + (mQueryUrl.indexOf('?') >= 0 ? "&" : "?")
+                + "starttime=" + ShardedQuery.formatTime(startTime)
+                + "&endtime=" + ShardedQuery.formatTime(endTime)
+                + "&orderby=time-asc&limit=" + mMaxEventsPerRequest;
+        List<Earthquake> earthquakes = QueryUtils.fetchEarthquakeData(url, mCancellation);
+        if (earthquakes == null) {
+            if (mCancellation.isCancelled()) {
+                throw new InterruptedIOException("Ingestion cancelled");
+            }
+            throw new IOException("Cannot fetch the window from " + ShardedQuery.formatTime(startTime)
+                    + " to " + ShardedQuery.formatTime(endTime));
+        }
+        if (earthquakes.size() < mMaxEventsPerRequest || endTime - startTime < 2 * MIN_WINDOW) {
+            return earthquakes;
+        }
+
+        long middle = startTime + (endTime - startTime) / 2;
+        List<Earthquake> firstHalf = fetchWindow(startTime, middle);
+        List<Earthquake> secondHalf = fetchWindow(middle, endTime);
+        List<Earthquake> window = new ArrayList<>(firstHalf.size() + secondHalf.size());
+        window.addAll(firstHalf);
+        window.addAll(secondHalf);
+        return window;
+    }
+
+    /**
+     * Helper method for {@link #ingest(long, long, EarthquakeCsvWriter)}
+     */
+    private static List<Earthquake> await(Future<List<Earthquake>> window) throws IOException {
+        try {
+            return window.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ingestion interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
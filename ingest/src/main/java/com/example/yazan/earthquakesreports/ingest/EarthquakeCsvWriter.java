@@ -0,0 +1,99 @@
+package com.example.yazan.earthquakesreports.ingest;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * {@link EarthquakeCsvWriter} writes earthquakes as CSV lines, one per earthquake, after a
+ * header line. Times are unix times in milliseconds, unknown coordinates are empty, and
+ * a text is quoted when it holds a comma, a quote or a line break.
+ * This class is not thread safe.
+ */
+public final class EarthquakeCsvWriter implements Closeable {
+
+    static final String HEADER = "id,time,updated,mag,latitude,longitude,depth,place,url";
+
+    private final Writer mWriter;
+
+    private long mCount;
+
+    /**
+     * Construct a new {@link EarthquakeCsvWriter} object and write the header.
+     *
+     * @param writer receives the CSV text, it is buffered by this writer
+     */
+    public EarthquakeCsvWriter(Writer writer) throws IOException {
+        mWriter = new BufferedWriter(writer, 64 * 1024);
+        mWriter.write(HEADER);
+        mWriter.write('\n');
+    }
+
+    public void write(Earthquake earthquake) throws IOException {
+        writeText(earthquake.getId());
+        mWriter.write(',');
+        mWriter.write(Long.toString(earthquake.getTimeInMilliseconds()));
+        mWriter.write(',');
+        mWriter.write(Long.toString(earthquake.getUpdatedTimeInMilliseconds()));
+        mWriter.write(',');
+        writeNumber(earthquake.getMagnitude());
+        mWriter.write(',');
+        writeNumber(earthquake.getLatitude());
+        mWriter.write(',');
+        writeNumber(earthquake.getLongitude());
+        mWriter.write(',');
+        writeNumber(earthquake.getDepth());
+        mWriter.write(',');
+        writeText(earthquake.getLocation());
+        mWriter.write(',');
+        writeText(earthquake.getUrl());
+        mWriter.write('\n');
+        mCount++;
+    }
+
+    /**
+     * @return number of earthquakes written
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    public void flush() throws IOException {
+        mWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mWriter.close();
+    }
+
+    /**
+     * unknown values (NaN) are empty
+     */
+    private void writeNumber(double value) throws IOException {
+        if (!Double.isNaN(value)) {
+            mWriter.write(Double.toString(value));
+        }
+    }
+
+    private void writeText(String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < text.length() && !quoted; i++) {
+            char c = text.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            mWriter.write(text);
+            return;
+        }
+        mWriter.write('"');
+        mWriter.write(text.replace("\"", "\"\""));
+        mWriter.write('"');
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.yazan.earthquakesreports.ingest;
+
+import com.example.yazan.earthquakesreports.utils.QueryUtils;
+import com.example.yazan.earthquakesreports.utils.ShardedQuery;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Command line of the {@link CatalogIngester}:
+ * <pre>
+ * ingest --start 2010-01-01 [--end 2017-01-01] --output catalog.csv[.gz]
+ *        [--min-magnitude 2.5] [--window-days 30] [--threads 4] [--url USGS query URL]
+ * </pre>
+ * The end defaults to now. An output ending with ".gz" is gzip compressed.
+ */
+public final class IngestCli {
+
+    private static final String DEFAULT_URL = "https://earthquake.usgs.gov/fdsnws/event/1/query?format=geojson";
+
+    private static final String USAGE = "usage: ingest --start <time> [--end <time>] --output <file[.gz]>"
+            + " [--min-magnitude <mag>] [--window-days <days>] [--threads <count>] [--url <query url>]";
+
+    /**
+     * private constructor no need to construct new {@link IngestCli} object
+     */
+    private IngestCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out));
+    }
+
+    /**
+     * Helper method for {@link #main(String[])}
+     *
+     * @param out receives the usage, the summary and the errors
+     * @return exit status of the command, 0 on success
+     */
+    static int run(String[] args, PrintStream out) {
+        String url = DEFAULT_URL;
+        String output = null;
+        String minMagnitude = null;
+        long startTime = -1;
+        long endTime = System.currentTimeMillis();
+        double windowDays = 30;
+        int threads = 4;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                if (value == null) {
+                    throw new IllegalArgumentException("missing value of " + args[i]);
+                }
+                switch (args[i++]) {
+                    case "--url":
+                        url = value;
+                        break;
+                    case "--output":
+                        output = value;
+                        break;
+                    case "--start":
+                        startTime = parseTime(value);
+                        break;
+                    case "--end":
+                        endTime = parseTime(value);
+                        break;
+                    case "--min-magnitude":
+                        minMagnitude = String.valueOf(Double.parseDouble(value));
+                        break;
+                    case "--window-days":
+                        windowDays = Double.parseDouble(value);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i - 1]);
+                }
+            }
+            if (startTime < 0 || output == null) {
+                throw new IllegalArgumentException("--start and --output are required");
+            }
+        } catch (IllegalArgumentException e) {
+            out.println(e.getMessage());
+            out.println(USAGE);
+            return 2;
+        }
+        if (minMagnitude != null) {
+            url += (url.indexOf('?') >= 0 ? "&" : "?") + "minmagnitude=" + minMagnitude;
+        }
+
+        // every window is requested once, keeping the results to revalidate them is a waste
+        QueryUtils.setResultCacheEnabled(false);
+        CatalogIngester ingester = new CatalogIngester(url, (long) (windowDays * TimeUnit.DAYS.toMillis(1)),
+                threads, CatalogIngester.USGS_MAX_EVENTS);
+
+        long start = System.nanoTime();
+        long count;
+        try {
+            OutputStream outputStream = new FileOutputStream(output);
+            if (output.endsWith(".gz")) {
+                outputStream = new GZIPOutputStream(outputStream, 64 * 1024);
+            }
+            EarthquakeCsvWriter writer = new EarthquakeCsvWriter(
+                    new OutputStreamWriter(outputStream, Charset.forName("UTF-8")));
+            try {
+                count = ingester.ingest(startTime, endTime, writer);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            out.println("Ingestion failed: " + e.getMessage());
+            return 1;
+        }
+
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        out.println(String.format(Locale.US, "Wrote %d earthquakes of %d windows (%d requests) to %s"
+                        + " in %.1fs, %.0f earthquakes/s",
+                count, ingester.getWindowCount(), ingester.getRequestCount(), output,
+                seconds, count / Math.max(seconds, 1e-3)));
+        return 0;
+    }
+
+    private static long parseTime(String value) {
+        long time = ShardedQuery.parseTime(value);
+        if (time < 0) {
+            throw new IllegalArgumentException("not a time: " + value);
+        }
+        return time;
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.yazan.earthquakesreports.ingest;
+
+import com.example.yazan.earthquakesreports.data.Earthquake;
+import com.example.yazan.earthquakesreports.utils.QueryUtils;
+import com.example.yazan.earthquakesreports.utils.ShardedQuery;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CatalogIngester} against a stand-in USGS server on localhost,
+ * which has one earthquake every hour.
+ */
+public class CatalogIngesterTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 2017-01-01T00:00:00 UTC
+     */
+    private static final long START = 1483228800000L;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicInteger mInFlight = new AtomicInteger();
+    private final AtomicInteger mMaxInFlight = new AtomicInteger();
+
+    /** start time of the window answered with "404 Not Found", or -1 */
+    private volatile long mFailingWindow = -1;
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/fdsnws/event/1/query", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                int inFlight = mInFlight.incrementAndGet();
+                int maxInFlight = mMaxInFlight.get();
+                while (inFlight > maxInFlight && !mMaxInFlight.compareAndSet(maxInFlight, inFlight)) {
+                    maxInFlight = mMaxInFlight.get();
+                }
+                try {
+                    respond(exchange);
+                } finally {
+                    mInFlight.decrementAndGet();
+                }
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+        QueryUtils.setResultCacheEnabled(false);
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void writesEveryEarthquakeOnceOldestFirst() throws IOException {
+        CatalogIngester ingester = new CatalogIngester(queryUrl(), DAY, 4, CatalogIngester.USGS_MAX_EVENTS);
+        StringWriter output = new StringWriter();
+
+        long count = ingester.ingest(START, START + 10 * DAY, new EarthquakeCsvWriter(output));
+
+        // both ends of the range are included, the windows share their boundaries
+        assertEquals(10 * 24 + 1, count);
+        assertEquals(10, ingester.getWindowCount());
+        assertEarthquakesEveryHour(output.toString(), 10 * 24 + 1);
+        // several windows were in flight at once
+        assertTrue(mMaxInFlight.get() > 1);
+    }
+
+    @Test
+    public void fullWindowIsSplit() throws IOException {
+        CatalogIngester ingester = new CatalogIngester(queryUrl(), 10 * DAY, 2, 50);
+        StringWriter output = new StringWriter();
+
+        long count = ingester.ingest(START, START + 10 * DAY, new EarthquakeCsvWriter(output));
+
+        assertEquals(10 * 24 + 1, count);
+        assertEquals(1, ingester.getWindowCount());
+        assertTrue(ingester.getRequestCount() > 1);
+        assertEarthquakesEveryHour(output.toString(), 10 * 24 + 1);
+    }
+
+    @Test
+    public void failedWindowFailsTheIngestion() throws IOException {
+        mFailingWindow = START + 3 * DAY;
+        CatalogIngester ingester = new CatalogIngester(queryUrl(), DAY, 4, CatalogIngester.USGS_MAX_EVENTS);
+        StringWriter output = new StringWriter();
+
+        try {
+            ingester.ingest(START, START + 10 * DAY, new EarthquakeCsvWriter(output));
+            fail("the window of the 4th day cannot be fetched");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains(ShardedQuery.formatTime(mFailingWindow)));
+        }
+        // the days before it were written
+        assertEarthquakesEveryHour(output.toString(), 3 * 24 + 1);
+    }
+
+    @Test
+    public void commandLineWritesCompressedCatalog() throws IOException {
+        File output = new File(mFolder.getRoot(), "catalog.csv.gz");
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+
+        int status = IngestCli.run(new String[]{"--url", queryUrl(), "--start", "2017-01-01",
+                "--end", "2017-01-03", "--window-days", "0.5", "--output", output.getPath()}, new PrintStream(console));
+
+        assertEquals(console.toString(), 0, status);
+        assertTrue(console.toString().contains("Wrote 49 earthquakes of 4 windows"));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(output)), "UTF-8"));
+        try {
+            StringBuilder text = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                text.append(line).append('\n');
+            }
+            assertEarthquakesEveryHour(text.toString(), 49);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void commandLineRejectsMissingOptions() {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+
+        assertEquals(2, IngestCli.run(new String[]{"--start", "2017-01-01"}, new PrintStream(console)));
+        assertTrue(console.toString().contains("usage:"));
+    }
+
+    @Test
+    public void placesWithCommasAreQuoted() throws IOException {
+        StringWriter output = new StringWriter();
+        EarthquakeCsvWriter writer = new EarthquakeCsvWriter(output);
+        writer.write(new Earthquake("us1", 4.5, "10km N of \"Town\", Region", 1000, 2000, "https://example.com/us1"));
+        writer.write(new Earthquake("us2", 2.1, "Region", 3000, 3000, null, Double.NaN, Double.NaN, Double.NaN));
+        writer.flush();
+
+        assertEquals(EarthquakeCsvWriter.HEADER + "\n"
+                + "us1,1000,2000,4.5,,,,\"10km N of \"\"Town\"\", Region\",https://example.com/us1\n"
+                + "us2,3000,3000,2.1,,,,Region,\n", output.toString());
+        assertEquals(2, writer.getCount());
+    }
+
+    /**
+     * the CSV lines are the earthquakes every hour from the start, each one once
+     */
+    private static void assertEarthquakesEveryHour(String csv, int count) {
+        String[] lines = csv.split("\n");
+        assertEquals(EarthquakeCsvWriter.HEADER, lines[0]);
+        assertEquals(count + 1, lines.length);
+        for (int i = 1; i < lines.length; i++) {
+            long time = START + (i - 1) * HOUR;
+            assertTrue(lines[i], lines[i].startsWith("ev" + time + "," + time + ","));
+        }
+    }
+
+    private String queryUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/fdsnws/event/1/query?format=geojson";
+    }
+
+    /**
+     * answer the earthquakes of the hours from "starttime" to "endtime", both included,
+     * oldest first and at most "limit" of them
+     */
+    private void respond(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        for (String parameter : exchange.getRequestURI().getRawQuery().split("&")) {
+            String[] nameAndValue = parameter.split("=", 2);
+            parameters.put(nameAndValue[0], URLDecoder.decode(nameAndValue[1], "UTF-8"));
+        }
+        long startTime = ShardedQuery.parseTime(parameters.get("starttime"));
+        long endTime = ShardedQuery.parseTime(parameters.get("endtime"));
+        int limit = Integer.parseInt(parameters.get("limit"));
+        if (startTime == mFailingWindow) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        try {
+            // long enough for the requests to overlap
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<String> features = new ArrayList<>();
+        for (long time = (startTime + HOUR - 1) / HOUR * HOUR; time <= endTime && features.size() < limit;
+             time += HOUR) {
+            features.add("{\"type\":\"Feature\",\"properties\":{\"mag\":" + (2 + time / HOUR % 50 / 10.0)
+                    + ",\"place\":\"10km N of Town, Region\",\"time\":" + time + ",\"updated\":" + time
+                    + ",\"url\":\"https://earthquake.usgs.gov/earthquakes/eventpage/ev" + time + "\"},"
+                    + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[10.5,20.25,5]},\"id\":\"ev" + time + "\"}");
+        }
+        StringBuilder body = new StringBuilder("{\"type\":\"FeatureCollection\",\"features\":[");
+        for (int i = 0; i < features.size(); i++) {
+            body.append(i > 0 ? "," : "").append(features.get(i));
+        }
+        byte[] bytes = body.append("]}").toString().getBytes("UTF-8");
+
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream outputStream = exchange.getResponseBody();
+        outputStream.write(bytes);
+        outputStream.close();
+    }
+}